@@ -4,20 +4,32 @@ import time
 import random
 from gym import spaces
 from gym_sts.utils.communication import STSCommunicator
+from gym_sts.utils.shm_communication import STSShmCommunicator
 from gym_sts.protos import sts_state_pb2
 
 class SlayTheSpireEnv(gym.Env):
     metadata = {'render_modes': ['human', 'log']}
 
-    def __init__(self, run_mode='headless', port=9999, normalize_obs=True, seed=42):
+    def __init__(self, run_mode='headless', port=9999, normalize_obs=True, seed=42, step_mode=False, transport='tcp',
+                 communicator=None):
         super(SlayTheSpireEnv, self).__init__()
         self.run_mode = run_mode
         self.port = port
+        # step_mode: bridge launched with -Dsts.ai.emit.mode=step, exactly one GameState per action
+        self.step_mode = step_mode
+        self.next_action_id = 1
         self.normalize_obs = normalize_obs
         self.seed_value = seed
         self._seed(seed)
 
-        self.communicator = STSCommunicator(port=port)
+        if communicator is not None:
+            # e.g. STSPipeCommunicator(proc.stdout, proc.stdin) for a bridge launched with -Dsts.ai.transport=pipe
+            self.communicator = communicator
+        elif transport == 'shm':
+            # Bridge launched with -Dsts.ai.transport=shm; rings are named after sts.ai.port by default
+            self.communicator = STSShmCommunicator(name=str(port))
+        else:
+            self.communicator = STSCommunicator(port=port)
         self.game_state = None
         self.prev_game_state = None
         
@@ -113,13 +125,18 @@ class SlayTheSpireEnv(gym.Env):
         if not self.communicator.connected:
             self.communicator.connect()
         
-        self.communicator.send_message("RESET")
+        self.game_state = None
+        if self.step_mode:
+            self.communicator.send_message("RESET", action_id=self._next_action_id())
+            self.game_state = self.communicator.receive_state()
+        else:
+            self.communicator.send_message("RESET")
         # In a real scenario, we might need to wait for the game to actually restart.
         # But the bridge handles RESET by queuing it.
         # We need to wait for the first valid state.
         
         # Simple wait loop
-        max_retries = 20
+        max_retries = 0 if self.step_mode else 20
         for _ in range(max_retries):
             state = self.communicator.receive_state()
             if state and state.player.floor <= 1: # Assuming reset goes to floor 0 or 1
@@ -144,7 +161,7 @@ class SlayTheSpireEnv(gym.Env):
         command, p1, p2 = self._decode_action(action_idx)
         
         # Send action
-        self.communicator.send_message(command, p1, p2)
+        self.communicator.send_message(command, p1, p2, action_id=self._next_action_id())
         
         # Receive new state
         self.game_state = self.communicator.receive_state()
@@ -171,6 +188,11 @@ class SlayTheSpireEnv(gym.Env):
         
         return obs, reward, terminated, truncated, info
 
+    def _next_action_id(self):
+        action_id = self.next_action_id
+        self.next_action_id += 1
+        return action_id
+
     def _decode_action(self, action_idx):
         if 0 <= action_idx < 10:
             return "PLAY_CARD", action_idx, 0 # Target logic needs improvement (e.g. first monster)
@@ -19,7 +19,7 @@ DESCRIPTOR = _descriptor.FileDescriptor(
   syntax='proto3',
   serialized_options=b'\n\017sts.ai.state.v1P\001',
   create_key=_descriptor._internal_create_key,
-  serialized_pb=b'\n\x0fsts_state.proto\x12\x0fsts.ai.state.v1\"6\n\nPowerState\x12\n\n\x02id\x18\x01 \x01(\t\x12\x0c\n\x04name\x18\x02 \x01(\t\x12\x0e\n\x06\x61mount\x18\x03 \x01(\x05\"F\n\nRelicState\x12\n\n\x02id\x18\x01 \x01(\t\x12\x0c\n\x04name\x18\x02 \x01(\t\x12\x0f\n\x07\x63ounter\x18\x03 \x01(\x05\x12\r\n\x05price\x18\x04 \x01(\x05\"R\n\x08OrbState\x12\n\n\x02id\x18\x01 \x01(\t\x12\x0c\n\x04name\x18\x02 \x01(\t\x12\x14\n\x0c\x65voke_amount\x18\x03 \x01(\x05\x12\x16\n\x0epassive_amount\x18\x04 \x01(\x05\"\xf8\x01\n\x0bPlayerState\x12\n\n\x02hp\x18\x01 \x01(\x05\x12\x0e\n\x06max_hp\x18\x02 \x01(\x05\x12\x0c\n\x04gold\x18\x03 \x01(\x05\x12\x0e\n\x06\x65nergy\x18\x04 \x01(\x05\x12\r\n\x05\x62lock\x18\x05 \x01(\x05\x12\r\n\x05\x66loor\x18\x06 \x01(\x05\x12+\n\x06powers\x18\x07 \x03(\x0b\x32\x1b.sts.ai.state.v1.PowerState\x12+\n\x06relics\x18\x08 \x03(\x0b\x32\x1b.sts.ai.state.v1.RelicState\x12\x0e\n\x06stance\x18\t \x01(\t\x12\'\n\x04orbs\x18\n \x03(\x0b\x32\x19.sts.ai.state.v1.OrbState\"\xb2\x01\n\x0cMonsterState\x12\n\n\x02id\x18\x01 \x01(\t\x12\x0c\n\x04name\x18\x02 \x01(\t\x12\n\n\x02hp\x18\x03 \x01(\x05\x12\x0e\n\x06max_hp\x18\x04 \x01(\x05\x12\x0e\n\x06intent\x18\x05 \x01(\t\x12\r\n\x05\x62lock\x18\x06 \x01(\x05\x12+\n\x06powers\x18\x07 \x03(\x0b\x32\x1b.sts.ai.state.v1.PowerState\x12\x0f\n\x07move_id\x18\x08 \x01(\x05\x12\x0f\n\x07is_gone\x18\t \x01(\x08\"\xd0\x01\n\tCardState\x12\n\n\x02id\x18\x01 \x01(\t\x12\x0c\n\x04name\x18\x02 \x01(\t\x12\x0c\n\x04\x63ost\x18\x03 \x01(\x05\x12\x0c\n\x04type\x18\x04 \x01(\t\x12\x0e\n\x06\x64\x61mage\x18\x05 \x01(\x05\x12\x0e\n\x06target\x18\x06 \x01(\t\x12\r\n\x05\x62lock\x18\x07 \x01(\x05\x12\x13\n\x0bis_upgraded\x18\x08 \x01(\x08\x12\x14\n\x0cmagic_number\x18\t \x01(\x05\x12\x0f\n\x07\x65xhaust\x18\n \x01(\x08\x12\x13\n\x0bis_playable\x18\x0b \x01(\x08\x12\r\n\x05price\x18\x0c \x01(\x05\"q\n\x0bPotionState\x12\n\n\x02id\x18\x01 \x01(\t\x12\x0c\n\x04name\x18\x02 \x01(\t\x12\x12\n\nslot_index\x18\x03 \x01(\x05\x12\x11\n\tis_usable\x18\x04 \x01(\x08\x12\x12\n\ncan_target\x18\x05 \x01(\x08\x12\r\n\x05price\x18\x06 \x01(\x05\"a\n\x0f\x44ungeonMapState\x12\r\n\x05\x66loor\x18\x01 \x01(\x05\x12,\n\x05nodes\x18\x02 \x03(\x0b\x32\x1d.sts.ai.state.v1.MapNodeState\x12\x11\n\tboss_name\x18\x03 \x01(\t\"~\n\x0cMapNodeState\x12\t\n\x01x\x18\x01 \x01(\x05\x12\t\n\x01y\x18\x02 \x01(\x05\x12\x11\n\troom_type\x18\x03 \x01(\t\x12\x14\n\x0cis_available\x18\x04 \x01(\x08\x12/\n\x08\x63hildren\x18\x05 \x03(\x0b\x32\x1d.sts.ai.state.v1.MapEdgeState\",\n\x0cMapEdgeState\x12\r\n\x05\x64st_x\x18\x01 \x01(\x05\x12\r\n\x05\x64st_y\x18\x02 \x01(\x05\"\xbc\x01\n\tShopState\x12)\n\x05\x63\x61rds\x18\x01 \x03(\x0b\x32\x1a.sts.ai.state.v1.CardState\x12+\n\x06relics\x18\x02 \x03(\x0b\x32\x1b.sts.ai.state.v1.RelicState\x12-\n\x07potions\x18\x03 \x03(\x0b\x32\x1c.sts.ai.state.v1.PotionState\x12\x12\n\npurge_cost\x18\x04 \x01(\x05\x12\x14\n\x0c\x63urrent_gold\x18\x05 \x01(\x05\"~\n\rRestSiteState\x12\x10\n\x08has_rest\x18\x01 \x01(\x08\x12\x11\n\thas_smith\x18\x02 \x01(\x08\x12\x10\n\x08has_lift\x18\x03 \x01(\x08\x12\x10\n\x08has_toke\x18\x04 \x01(\x08\x12\x0f\n\x07has_dig\x18\x05 \x01(\x08\x12\x13\n\x0bheal_amount\x18\x06 \x01(\x05\"/\n\nEventState\x12\x10\n\x08\x65vent_id\x18\x01 \x01(\t\x12\x0f\n\x07options\x18\x02 \x03(\t\">\n\x0bRewardState\x12/\n\x05items\x18\x01 \x03(\x0b\x32 .sts.ai.state.v1.RewardItemState\"z\n\x0fRewardItemState\x12\x0c\n\x04type\x18\x01 \x01(\t\x12\x0e\n\x06\x61mount\x18\x02 \x01(\x05\x12\n\n\x02id\x18\x03 \x01(\t\x12)\n\x05\x63\x61rds\x18\x04 \x03(\x0b\x32\x1a.sts.ai.state.v1.CardState\x12\x12\n\nis_claimed\x18\x05 \x01(\x08\"W\n\x0bGameOutcome\x12\x0f\n\x07is_done\x18\x01 \x01(\x08\x12\x0f\n\x07victory\x18\x02 \x01(\x08\x12\r\n\x05score\x18\x03 \x01(\x05\x12\x17\n\x0f\x61scension_level\x18\x04 \x01(\x05\"\xa3\x04\n\tGameState\x12,\n\x06player\x18\x01 \x01(\x0b\x32\x1c.sts.ai.state.v1.PlayerState\x12/\n\x08monsters\x18\x02 \x03(\x0b\x32\x1d.sts.ai.state.v1.MonsterState\x12(\n\x04hand\x18\x03 \x03(\x0b\x32\x1a.sts.ai.state.v1.CardState\x12/\n\x0bmaster_deck\x18\x0b \x03(\x0b\x32\x1a.sts.ai.state.v1.CardState\x12-\n\x07potions\x18\x04 \x03(\x0b\x32\x1c.sts.ai.state.v1.PotionState\x12-\n\x03map\x18\x05 \x01(\x0b\x32 .sts.ai.state.v1.DungeonMapState\x12(\n\x04shop\x18\x06 \x01(\x0b\x32\x1a.sts.ai.state.v1.ShopState\x12\x31\n\trest_site\x18\x07 \x01(\x0b\x32\x1e.sts.ai.state.v1.RestSiteState\x12*\n\x05\x65vent\x18\x08 \x01(\x0b\x32\x1b.sts.ai.state.v1.EventState\x12,\n\x06reward\x18\t \x01(\x0b\x32\x1c.sts.ai.state.v1.RewardState\x12\x13\n\x0bscreen_type\x18\n \x01(\t\x12\x32\n\x0cgame_outcome\x18\x0c \x01(\x0b\x32\x1c.sts.ai.state.v1.GameOutcome\"K\n\nGameAction\x12\x13\n\x0b\x61\x63tion_type\x18\x01 \x01(\t\x12\x12\n\ncard_index\x18\x02 \x01(\x05\x12\x14\n\x0ctarget_index\x18\x03 \x01(\x05\x42\x13\n\x0fsts.ai.state.v1P\x01\x62\x06proto3'
+  serialized_pb=b'\n\x0fsts_state.proto\x12\x0fsts.ai.state.v1\"C\n\nPowerState\x12\n\n\x02id\x18\x01 \x01(\t\x12\x0c\n\x04name\x18\x02 \x01(\t\x12\x0e\n\x06\x61mount\x18\x03 \x01(\x05\x12\x0b\n\x03ref\x18\x04 \x01(\x05\"S\n\nRelicState\x12\n\n\x02id\x18\x01 \x01(\t\x12\x0c\n\x04name\x18\x02 \x01(\t\x12\x0f\n\x07\x63ounter\x18\x03 \x01(\x05\x12\r\n\x05price\x18\x04 \x01(\x05\x12\x0b\n\x03ref\x18\x05 \x01(\x05\"_\n\x08OrbState\x12\n\n\x02id\x18\x01 \x01(\t\x12\x0c\n\x04name\x18\x02 \x01(\t\x12\x14\n\x0c\x65voke_amount\x18\x03 \x01(\x05\x12\x16\n\x0epassive_amount\x18\x04 \x01(\x05\x12\x0b\n\x03ref\x18\x05 \x01(\x05\"\xf8\x01\n\x0bPlayerState\x12\n\n\x02hp\x18\x01 \x01(\x05\x12\x0e\n\x06max_hp\x18\x02 \x01(\x05\x12\x0c\n\x04gold\x18\x03 \x01(\x05\x12\x0e\n\x06\x65nergy\x18\x04 \x01(\x05\x12\r\n\x05\x62lock\x18\x05 \x01(\x05\x12\r\n\x05\x66loor\x18\x06 \x01(\x05\x12+\n\x06powers\x18\x07 \x03(\x0b\x32\x1b.sts.ai.state.v1.PowerState\x12+\n\x06relics\x18\x08 \x03(\x0b\x32\x1b.sts.ai.state.v1.RelicState\x12\x0e\n\x06stance\x18\t \x01(\t\x12\'\n\x04orbs\x18\n \x03(\x0b\x32\x19.sts.ai.state.v1.OrbState\"\xd3\x01\n\x0cMonsterState\x12\n\n\x02id\x18\x01 \x01(\t\x12\x0c\n\x04name\x18\x02 \x01(\t\x12\n\n\x02hp\x18\x03 \x01(\x05\x12\x0e\n\x06max_hp\x18\x04 \x01(\x05\x12\x0e\n\x06intent\x18\x05 \x01(\t\x12\r\n\x05\x62lock\x18\x06 \x01(\x05\x12+\n\x06powers\x18\x07 \x03(\x0b\x32\x1b.sts.ai.state.v1.PowerState\x12\x0f\n\x07move_id\x18\x08 \x01(\x05\x12\x0f\n\x07is_gone\x18\t \x01(\x08\x12\x0b\n\x03ref\x18\n \x01(\x05\x12\x12\n\nintent_ref\x18\x0b \x01(\x05\"\x83\x02\n\tCardState\x12\n\n\x02id\x18\x01 \x01(\t\x12\x0c\n\x04name\x18\x02 \x01(\t\x12\x0c\n\x04\x63ost\x18\x03 \x01(\x05\x12\x0c\n\x04type\x18\x04 \x01(\t\x12\x0e\n\x06\x64\x61mage\x18\x05 \x01(\x05\x12\x0e\n\x06target\x18\x06 \x01(\t\x12\r\n\x05\x62lock\x18\x07 \x01(\x05\x12\x13\n\x0bis_upgraded\x18\x08 \x01(\x08\x12\x14\n\x0cmagic_number\x18\t \x01(\x05\x12\x0f\n\x07\x65xhaust\x18\n \x01(\x08\x12\x13\n\x0bis_playable\x18\x0b \x01(\x08\x12\r\n\x05price\x18\x0c \x01(\x05\x12\x0b\n\x03ref\x18\r \x01(\x05\x12\x10\n\x08type_ref\x18\x0e \x01(\x05\x12\x12\n\ntarget_ref\x18\x0f \x01(\x05\"~\n\x0bPotionState\x12\n\n\x02id\x18\x01 \x01(\t\x12\x0c\n\x04name\x18\x02 \x01(\t\x12\x12\n\nslot_index\x18\x03 \x01(\x05\x12\x11\n\tis_usable\x18\x04 \x01(\x08\x12\x12\n\ncan_target\x18\x05 \x01(\x08\x12\r\n\x05price\x18\x06 \x01(\x05\x12\x0b\n\x03ref\x18\x07 \x01(\x05\"a\n\x0f\x44ungeonMapState\x12\r\n\x05\x66loor\x18\x01 \x01(\x05\x12,\n\x05nodes\x18\x02 \x03(\x0b\x32\x1d.sts.ai.state.v1.MapNodeState\x12\x11\n\tboss_name\x18\x03 \x01(\t\"\x95\x01\n\x0cMapNodeState\x12\t\n\x01x\x18\x01 \x01(\x05\x12\t\n\x01y\x18\x02 \x01(\x05\x12\x11\n\troom_type\x18\x03 \x01(\t\x12\x14\n\x0cis_available\x18\x04 \x01(\x08\x12/\n\x08\x63hildren\x18\x05 \x03(\x0b\x32\x1d.sts.ai.state.v1.MapEdgeState\x12\x15\n\rroom_type_ref\x18\x06 \x01(\x05\",\n\x0cMapEdgeState\x12\r\n\x05\x64st_x\x18\x01 \x01(\x05\x12\r\n\x05\x64st_y\x18\x02 \x01(\x05\"\xbc\x01\n\tShopState\x12)\n\x05\x63\x61rds\x18\x01 \x03(\x0b\x32\x1a.sts.ai.state.v1.CardState\x12+\n\x06relics\x18\x02 \x03(\x0b\x32\x1b.sts.ai.state.v1.RelicState\x12-\n\x07potions\x18\x03 \x03(\x0b\x32\x1c.sts.ai.state.v1.PotionState\x12\x12\n\npurge_cost\x18\x04 \x01(\x05\x12\x14\n\x0c\x63urrent_gold\x18\x05 \x01(\x05\"~\n\rRestSiteState\x12\x10\n\x08has_rest\x18\x01 \x01(\x08\x12\x11\n\thas_smith\x18\x02 \x01(\x08\x12\x10\n\x08has_lift\x18\x03 \x01(\x08\x12\x10\n\x08has_toke\x18\x04 \x01(\x08\x12\x0f\n\x07has_dig\x18\x05 \x01(\x08\x12\x13\n\x0bheal_amount\x18\x06 \x01(\x05\"/\n\nEventState\x12\x10\n\x08\x65vent_id\x18\x01 \x01(\t\x12\x0f\n\x07options\x18\x02 \x03(\t\">\n\x0bRewardState\x12/\n\x05items\x18\x01 \x03(\x0b\x32 .sts.ai.state.v1.RewardItemState\"z\n\x0fRewardItemState\x12\x0c\n\x04type\x18\x01 \x01(\t\x12\x0e\n\x06\x61mount\x18\x02 \x01(\x05\x12\n\n\x02id\x18\x03 \x01(\t\x12)\n\x05\x63\x61rds\x18\x04 \x03(\x0b\x32\x1a.sts.ai.state.v1.CardState\x12\x12\n\nis_claimed\x18\x05 \x01(\x08\"W\n\x0bGameOutcome\x12\x0f\n\x07is_done\x18\x01 \x01(\x08\x12\x0f\n\x07victory\x18\x02 \x01(\x08\x12\r\n\x05score\x18\x03 \x01(\x05\x12\x17\n\x0f\x61scension_level\x18\x04 \x01(\x05\"\xfc\x06\n\tGameState\x12,\n\x06player\x18\x01 \x01(\x0b\x32\x1c.sts.ai.state.v1.PlayerState\x12/\n\x08monsters\x18\x02 \x03(\x0b\x32\x1d.sts.ai.state.v1.MonsterState\x12(\n\x04hand\x18\x03 \x03(\x0b\x32\x1a.sts.ai.state.v1.CardState\x12/\n\x0bmaster_deck\x18\x0b \x03(\x0b\x32\x1a.sts.ai.state.v1.CardState\x12-\n\x07potions\x18\x04 \x03(\x0b\x32\x1c.sts.ai.state.v1.PotionState\x12-\n\x03map\x18\x05 \x01(\x0b\x32 .sts.ai.state.v1.DungeonMapState\x12(\n\x04shop\x18\x06 \x01(\x0b\x32\x1a.sts.ai.state.v1.ShopState\x12\x31\n\trest_site\x18\x07 \x01(\x0b\x32\x1e.sts.ai.state.v1.RestSiteState\x12*\n\x05\x65vent\x18\x08 \x01(\x0b\x32\x1b.sts.ai.state.v1.EventState\x12,\n\x06reward\x18\t \x01(\x0b\x32\x1c.sts.ai.state.v1.RewardState\x12\x13\n\x0bscreen_type\x18\n \x01(\t\x12\x32\n\x0cgame_outcome\x18\x0c \x01(\x0b\x32\x1c.sts.ai.state.v1.GameOutcome\x12\x15\n\rack_action_id\x18\r \x01(\x03\x12\x17\n\x0f\x61\x63tion_rejected\x18\x0e \x01(\x08\x12\x32\n\x0c\x62\x61tch_result\x18\x0f \x01(\x0b\x32\x1c.sts.ai.state.v1.BatchResult\x12\x0b\n\x03seq\x18\x10 \x01(\x03\x12\x12\n\nframe_type\x18\x11 \x01(\t\x12\x32\n\x0csession_info\x18\x12 \x01(\x0b\x32\x1c.sts.ai.state.v1.SessionInfo\x12)\n\x05\x64\x65lta\x18\x13 \x01(\x0b\x32\x1a.sts.ai.state.v1.DeltaInfo\x12/\n\x07\x63\x61talog\x18\x14 \x01(\x0b\x32\x1e.sts.ai.state.v1.CatalogUpdate\x12\x17\n\x0fscreen_type_ref\x18\x15 \x01(\x05\x12\x12\n\nstate_hash\x18\x16 \x01(\x06\x12\x15\n\rstate_version\x18\x17 \x01(\x03\"C\n\x0c\x43\x61talogEntry\x12\x0b\n\x03ref\x18\x01 \x01(\x05\x12\x0c\n\x04kind\x18\x02 \x01(\t\x12\n\n\x02id\x18\x03 \x01(\t\x12\x0c\n\x04name\x18\x04 \x01(\t\"?\n\rCatalogUpdate\x12.\n\x07\x65ntries\x18\x01 \x03(\x0b\x32\x1d.sts.ai.state.v1.CatalogEntry\"b\n\tDeltaInfo\x12\x10\n\x08\x62\x61se_seq\x18\x01 \x01(\x03\x12\x18\n\x10\x63hanged_sections\x18\x02 \x01(\x05\x12)\n\x05lists\x18\x03 \x03(\x0b\x32\x1a.sts.ai.state.v1.ListPatch\";\n\tListPatch\x12\r\n\x05\x66ield\x18\x01 \x01(\x05\x12\x0e\n\x06length\x18\x02 \x01(\x05\x12\x0f\n\x07indices\x18\x03 \x03(\x05\"\xae\x01\n\x0bSessionInfo\x12\x13\n\x0b\x63ompression\x18\x01 \x01(\t\x12\x1d\n\x15\x63ompression_threshold\x18\x02 \x01(\x05\x12\x1e\n\x16\x63ompression_dictionary\x18\x03 \x01(\x0c\x12\r\n\x05\x64\x65lta\x18\x04 \x01(\x08\x12\x19\n\x11keyframe_interval\x18\x05 \x01(\x05\x12\x10\n\x08sections\x18\x06 \x01(\x05\x12\x0f\n\x07\x63\x61talog\x18\x07 \x01(\x08\"t\n\x0b\x43lientHello\x12\x13\n\x0b\x63ompression\x18\x01 \x03(\t\x12\x1d\n\x15\x63ompression_threshold\x18\x02 \x01(\x05\x12\x10\n\x08observer\x18\x03 \x01(\x08\x12\r\n\x05\x64\x65lta\x18\x04 \x01(\x08\x12\x10\n\x08sections\x18\x05 \x01(\x05\"{\n\x0b\x42\x61tchResult\x12\x10\n\x08\x62\x61tch_id\x18\x01 \x01(\x03\x12\x10\n\x08\x65xecuted\x18\x02 \x01(\x05\x12\x0f\n\x07\x61\x62orted\x18\x03 \x01(\x08\x12\x37\n\x13intermediate_states\x18\x04 \x03(\x0b\x32\x1a.sts.ai.state.v1.GameState\"d\n\x0fGameActionBatch\x12,\n\x07\x61\x63tions\x18\x01 \x03(\x0b\x32\x1b.sts.ai.state.v1.GameAction\x12#\n\x1binclude_intermediate_states\x18\x02 \x01(\x08\"\xb5\x02\n\nGameAction\x12\x13\n\x0b\x61\x63tion_type\x18\x01 \x01(\t\x12\x12\n\ncard_index\x18\x02 \x01(\x05\x12\x14\n\x0ctarget_index\x18\x03 \x01(\x05\x12\x11\n\taction_id\x18\x04 \x01(\x03\x12/\n\x05\x62\x61tch\x18\x05 \x01(\x0b\x32 .sts.ai.state.v1.GameActionBatch\x12\x10\n\x08last_seq\x18\x06 \x01(\x03\x12+\n\x05hello\x18\x07 \x01(\x0b\x32\x1c.sts.ai.state.v1.ClientHello\x12\x0f\n\x07\x63redits\x18\x08 \x01(\x05\x12\x10\n\x08sections\x18\t \x01(\x05\x12\x17\n\x0f\x61\x63tion_type_ref\x18\n \x01(\x05\x12\x15\n\rafter_version\x18\x0b \x01(\x03\x12\x12\n\ntimeout_ms\x18\x0c \x01(\x05\x42\x13\n\x0fsts.ai.state.v1P\x01\x62\x06proto3'
 )
 
 
@@ -54,6 +54,13 @@ _POWERSTATE = _descriptor.Descriptor(
       message_type=None, enum_type=None, containing_type=None,
       is_extension=False, extension_scope=None,
       serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='ref', full_name='sts.ai.state.v1.PowerState.ref', index=3,
+      number=4, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
   ],
   extensions=[
   ],
@@ -67,7 +74,7 @@ _POWERSTATE = _descriptor.Descriptor(
   oneofs=[
   ],
   serialized_start=36,
-  serialized_end=90,
+  serialized_end=103,
 )
 
 
@@ -107,6 +114,13 @@ _RELICSTATE = _descriptor.Descriptor(
       message_type=None, enum_type=None, containing_type=None,
       is_extension=False, extension_scope=None,
       serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='ref', full_name='sts.ai.state.v1.RelicState.ref', index=4,
+      number=5, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
   ],
   extensions=[
   ],
@@ -119,8 +133,8 @@ _RELICSTATE = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=92,
-  serialized_end=162,
+  serialized_start=105,
+  serialized_end=188,
 )
 
 
@@ -160,6 +174,13 @@ _ORBSTATE = _descriptor.Descriptor(
       message_type=None, enum_type=None, containing_type=None,
       is_extension=False, extension_scope=None,
       serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='ref', full_name='sts.ai.state.v1.OrbState.ref', index=4,
+      number=5, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
   ],
   extensions=[
   ],
@@ -172,8 +193,8 @@ _ORBSTATE = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=164,
-  serialized_end=246,
+  serialized_start=190,
+  serialized_end=285,
 )
 
 
@@ -267,8 +288,8 @@ _PLAYERSTATE = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=249,
-  serialized_end=497,
+  serialized_start=288,
+  serialized_end=536,
 )
 
 
@@ -343,6 +364,20 @@ _MONSTERSTATE = _descriptor.Descriptor(
       message_type=None, enum_type=None, containing_type=None,
       is_extension=False, extension_scope=None,
       serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='ref', full_name='sts.ai.state.v1.MonsterState.ref', index=9,
+      number=10, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='intent_ref', full_name='sts.ai.state.v1.MonsterState.intent_ref', index=10,
+      number=11, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
   ],
   extensions=[
   ],
@@ -355,8 +390,8 @@ _MONSTERSTATE = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=500,
-  serialized_end=678,
+  serialized_start=539,
+  serialized_end=750,
 )
 
 
@@ -452,6 +487,27 @@ _CARDSTATE = _descriptor.Descriptor(
       message_type=None, enum_type=None, containing_type=None,
       is_extension=False, extension_scope=None,
       serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='ref', full_name='sts.ai.state.v1.CardState.ref', index=12,
+      number=13, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='type_ref', full_name='sts.ai.state.v1.CardState.type_ref', index=13,
+      number=14, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='target_ref', full_name='sts.ai.state.v1.CardState.target_ref', index=14,
+      number=15, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
   ],
   extensions=[
   ],
@@ -464,8 +520,8 @@ _CARDSTATE = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=681,
-  serialized_end=889,
+  serialized_start=753,
+  serialized_end=1012,
 )
 
 
@@ -519,6 +575,13 @@ _POTIONSTATE = _descriptor.Descriptor(
       message_type=None, enum_type=None, containing_type=None,
       is_extension=False, extension_scope=None,
       serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='ref', full_name='sts.ai.state.v1.PotionState.ref', index=6,
+      number=7, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
   ],
   extensions=[
   ],
@@ -531,8 +594,8 @@ _POTIONSTATE = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=891,
-  serialized_end=1004,
+  serialized_start=1014,
+  serialized_end=1140,
 )
 
 
@@ -577,8 +640,8 @@ _DUNGEONMAPSTATE = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=1006,
-  serialized_end=1103,
+  serialized_start=1142,
+  serialized_end=1239,
 )
 
 
@@ -625,6 +688,13 @@ _MAPNODESTATE = _descriptor.Descriptor(
       message_type=None, enum_type=None, containing_type=None,
       is_extension=False, extension_scope=None,
       serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='room_type_ref', full_name='sts.ai.state.v1.MapNodeState.room_type_ref', index=5,
+      number=6, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
   ],
   extensions=[
   ],
@@ -637,8 +707,8 @@ _MAPNODESTATE = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=1105,
-  serialized_end=1231,
+  serialized_start=1242,
+  serialized_end=1391,
 )
 
 
@@ -676,8 +746,8 @@ _MAPEDGESTATE = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=1233,
-  serialized_end=1277,
+  serialized_start=1393,
+  serialized_end=1437,
 )
 
 
@@ -736,8 +806,8 @@ _SHOPSTATE = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=1280,
-  serialized_end=1468,
+  serialized_start=1440,
+  serialized_end=1628,
 )
 
 
@@ -803,8 +873,8 @@ _RESTSITESTATE = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=1470,
-  serialized_end=1596,
+  serialized_start=1630,
+  serialized_end=1756,
 )
 
 
@@ -842,8 +912,8 @@ _EVENTSTATE = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=1598,
-  serialized_end=1645,
+  serialized_start=1758,
+  serialized_end=1805,
 )
 
 
@@ -874,8 +944,8 @@ _REWARDSTATE = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=1647,
-  serialized_end=1709,
+  serialized_start=1807,
+  serialized_end=1869,
 )
 
 
@@ -934,8 +1004,8 @@ _REWARDITEMSTATE = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=1711,
-  serialized_end=1833,
+  serialized_start=1871,
+  serialized_end=1993,
 )
 
 
@@ -987,8 +1057,8 @@ _GAMEOUTCOME = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=1835,
-  serialized_end=1922,
+  serialized_start=1995,
+  serialized_end=2082,
 )
 
 
@@ -1084,6 +1154,260 @@ _GAMESTATE = _descriptor.Descriptor(
       message_type=None, enum_type=None, containing_type=None,
       is_extension=False, extension_scope=None,
       serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='ack_action_id', full_name='sts.ai.state.v1.GameState.ack_action_id', index=12,
+      number=13, type=3, cpp_type=2, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='action_rejected', full_name='sts.ai.state.v1.GameState.action_rejected', index=13,
+      number=14, type=8, cpp_type=7, label=1,
+      has_default_value=False, default_value=False,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='batch_result', full_name='sts.ai.state.v1.GameState.batch_result', index=14,
+      number=15, type=11, cpp_type=10, label=1,
+      has_default_value=False, default_value=None,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='seq', full_name='sts.ai.state.v1.GameState.seq', index=15,
+      number=16, type=3, cpp_type=2, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='frame_type', full_name='sts.ai.state.v1.GameState.frame_type', index=16,
+      number=17, type=9, cpp_type=9, label=1,
+      has_default_value=False, default_value=b"".decode('utf-8'),
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='session_info', full_name='sts.ai.state.v1.GameState.session_info', index=17,
+      number=18, type=11, cpp_type=10, label=1,
+      has_default_value=False, default_value=None,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='delta', full_name='sts.ai.state.v1.GameState.delta', index=18,
+      number=19, type=11, cpp_type=10, label=1,
+      has_default_value=False, default_value=None,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='catalog', full_name='sts.ai.state.v1.GameState.catalog', index=19,
+      number=20, type=11, cpp_type=10, label=1,
+      has_default_value=False, default_value=None,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='screen_type_ref', full_name='sts.ai.state.v1.GameState.screen_type_ref', index=20,
+      number=21, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='state_hash', full_name='sts.ai.state.v1.GameState.state_hash', index=21,
+      number=22, type=6, cpp_type=4, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='state_version', full_name='sts.ai.state.v1.GameState.state_version', index=22,
+      number=23, type=3, cpp_type=2, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+  ],
+  extensions=[
+  ],
+  nested_types=[],
+  enum_types=[
+  ],
+  serialized_options=None,
+  is_extendable=False,
+  syntax='proto3',
+  extension_ranges=[],
+  oneofs=[
+  ],
+  serialized_start=2085,
+  serialized_end=2977,
+)
+
+
+_CATALOGENTRY = _descriptor.Descriptor(
+  name='CatalogEntry',
+  full_name='sts.ai.state.v1.CatalogEntry',
+  filename=None,
+  file=DESCRIPTOR,
+  containing_type=None,
+  create_key=_descriptor._internal_create_key,
+  fields=[
+    _descriptor.FieldDescriptor(
+      name='ref', full_name='sts.ai.state.v1.CatalogEntry.ref', index=0,
+      number=1, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='kind', full_name='sts.ai.state.v1.CatalogEntry.kind', index=1,
+      number=2, type=9, cpp_type=9, label=1,
+      has_default_value=False, default_value=b"".decode('utf-8'),
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='id', full_name='sts.ai.state.v1.CatalogEntry.id', index=2,
+      number=3, type=9, cpp_type=9, label=1,
+      has_default_value=False, default_value=b"".decode('utf-8'),
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='name', full_name='sts.ai.state.v1.CatalogEntry.name', index=3,
+      number=4, type=9, cpp_type=9, label=1,
+      has_default_value=False, default_value=b"".decode('utf-8'),
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+  ],
+  extensions=[
+  ],
+  nested_types=[],
+  enum_types=[
+  ],
+  serialized_options=None,
+  is_extendable=False,
+  syntax='proto3',
+  extension_ranges=[],
+  oneofs=[
+  ],
+  serialized_start=2979,
+  serialized_end=3046,
+)
+
+
+_CATALOGUPDATE = _descriptor.Descriptor(
+  name='CatalogUpdate',
+  full_name='sts.ai.state.v1.CatalogUpdate',
+  filename=None,
+  file=DESCRIPTOR,
+  containing_type=None,
+  create_key=_descriptor._internal_create_key,
+  fields=[
+    _descriptor.FieldDescriptor(
+      name='entries', full_name='sts.ai.state.v1.CatalogUpdate.entries', index=0,
+      number=1, type=11, cpp_type=10, label=3,
+      has_default_value=False, default_value=[],
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+  ],
+  extensions=[
+  ],
+  nested_types=[],
+  enum_types=[
+  ],
+  serialized_options=None,
+  is_extendable=False,
+  syntax='proto3',
+  extension_ranges=[],
+  oneofs=[
+  ],
+  serialized_start=3048,
+  serialized_end=3111,
+)
+
+
+_DELTAINFO = _descriptor.Descriptor(
+  name='DeltaInfo',
+  full_name='sts.ai.state.v1.DeltaInfo',
+  filename=None,
+  file=DESCRIPTOR,
+  containing_type=None,
+  create_key=_descriptor._internal_create_key,
+  fields=[
+    _descriptor.FieldDescriptor(
+      name='base_seq', full_name='sts.ai.state.v1.DeltaInfo.base_seq', index=0,
+      number=1, type=3, cpp_type=2, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='changed_sections', full_name='sts.ai.state.v1.DeltaInfo.changed_sections', index=1,
+      number=2, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='lists', full_name='sts.ai.state.v1.DeltaInfo.lists', index=2,
+      number=3, type=11, cpp_type=10, label=3,
+      has_default_value=False, default_value=[],
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+  ],
+  extensions=[
+  ],
+  nested_types=[],
+  enum_types=[
+  ],
+  serialized_options=None,
+  is_extendable=False,
+  syntax='proto3',
+  extension_ranges=[],
+  oneofs=[
+  ],
+  serialized_start=3113,
+  serialized_end=3211,
+)
+
+
+_LISTPATCH = _descriptor.Descriptor(
+  name='ListPatch',
+  full_name='sts.ai.state.v1.ListPatch',
+  filename=None,
+  file=DESCRIPTOR,
+  containing_type=None,
+  create_key=_descriptor._internal_create_key,
+  fields=[
+    _descriptor.FieldDescriptor(
+      name='field', full_name='sts.ai.state.v1.ListPatch.field', index=0,
+      number=1, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='length', full_name='sts.ai.state.v1.ListPatch.length', index=1,
+      number=2, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='indices', full_name='sts.ai.state.v1.ListPatch.indices', index=2,
+      number=3, type=5, cpp_type=1, label=3,
+      has_default_value=False, default_value=[],
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
   ],
   extensions=[
   ],
@@ -1096,8 +1420,234 @@ _GAMESTATE = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=1925,
-  serialized_end=2472,
+  serialized_start=3213,
+  serialized_end=3272,
+)
+
+
+_SESSIONINFO = _descriptor.Descriptor(
+  name='SessionInfo',
+  full_name='sts.ai.state.v1.SessionInfo',
+  filename=None,
+  file=DESCRIPTOR,
+  containing_type=None,
+  create_key=_descriptor._internal_create_key,
+  fields=[
+    _descriptor.FieldDescriptor(
+      name='compression', full_name='sts.ai.state.v1.SessionInfo.compression', index=0,
+      number=1, type=9, cpp_type=9, label=1,
+      has_default_value=False, default_value=b"".decode('utf-8'),
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='compression_threshold', full_name='sts.ai.state.v1.SessionInfo.compression_threshold', index=1,
+      number=2, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='compression_dictionary', full_name='sts.ai.state.v1.SessionInfo.compression_dictionary', index=2,
+      number=3, type=12, cpp_type=9, label=1,
+      has_default_value=False, default_value=b"",
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='delta', full_name='sts.ai.state.v1.SessionInfo.delta', index=3,
+      number=4, type=8, cpp_type=7, label=1,
+      has_default_value=False, default_value=False,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='keyframe_interval', full_name='sts.ai.state.v1.SessionInfo.keyframe_interval', index=4,
+      number=5, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='sections', full_name='sts.ai.state.v1.SessionInfo.sections', index=5,
+      number=6, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='catalog', full_name='sts.ai.state.v1.SessionInfo.catalog', index=6,
+      number=7, type=8, cpp_type=7, label=1,
+      has_default_value=False, default_value=False,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+  ],
+  extensions=[
+  ],
+  nested_types=[],
+  enum_types=[
+  ],
+  serialized_options=None,
+  is_extendable=False,
+  syntax='proto3',
+  extension_ranges=[],
+  oneofs=[
+  ],
+  serialized_start=3275,
+  serialized_end=3449,
+)
+
+
+_CLIENTHELLO = _descriptor.Descriptor(
+  name='ClientHello',
+  full_name='sts.ai.state.v1.ClientHello',
+  filename=None,
+  file=DESCRIPTOR,
+  containing_type=None,
+  create_key=_descriptor._internal_create_key,
+  fields=[
+    _descriptor.FieldDescriptor(
+      name='compression', full_name='sts.ai.state.v1.ClientHello.compression', index=0,
+      number=1, type=9, cpp_type=9, label=3,
+      has_default_value=False, default_value=[],
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='compression_threshold', full_name='sts.ai.state.v1.ClientHello.compression_threshold', index=1,
+      number=2, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='observer', full_name='sts.ai.state.v1.ClientHello.observer', index=2,
+      number=3, type=8, cpp_type=7, label=1,
+      has_default_value=False, default_value=False,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='delta', full_name='sts.ai.state.v1.ClientHello.delta', index=3,
+      number=4, type=8, cpp_type=7, label=1,
+      has_default_value=False, default_value=False,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='sections', full_name='sts.ai.state.v1.ClientHello.sections', index=4,
+      number=5, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+  ],
+  extensions=[
+  ],
+  nested_types=[],
+  enum_types=[
+  ],
+  serialized_options=None,
+  is_extendable=False,
+  syntax='proto3',
+  extension_ranges=[],
+  oneofs=[
+  ],
+  serialized_start=3451,
+  serialized_end=3567,
+)
+
+
+_BATCHRESULT = _descriptor.Descriptor(
+  name='BatchResult',
+  full_name='sts.ai.state.v1.BatchResult',
+  filename=None,
+  file=DESCRIPTOR,
+  containing_type=None,
+  create_key=_descriptor._internal_create_key,
+  fields=[
+    _descriptor.FieldDescriptor(
+      name='batch_id', full_name='sts.ai.state.v1.BatchResult.batch_id', index=0,
+      number=1, type=3, cpp_type=2, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='executed', full_name='sts.ai.state.v1.BatchResult.executed', index=1,
+      number=2, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='aborted', full_name='sts.ai.state.v1.BatchResult.aborted', index=2,
+      number=3, type=8, cpp_type=7, label=1,
+      has_default_value=False, default_value=False,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='intermediate_states', full_name='sts.ai.state.v1.BatchResult.intermediate_states', index=3,
+      number=4, type=11, cpp_type=10, label=3,
+      has_default_value=False, default_value=[],
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+  ],
+  extensions=[
+  ],
+  nested_types=[],
+  enum_types=[
+  ],
+  serialized_options=None,
+  is_extendable=False,
+  syntax='proto3',
+  extension_ranges=[],
+  oneofs=[
+  ],
+  serialized_start=3569,
+  serialized_end=3692,
+)
+
+
+_GAMEACTIONBATCH = _descriptor.Descriptor(
+  name='GameActionBatch',
+  full_name='sts.ai.state.v1.GameActionBatch',
+  filename=None,
+  file=DESCRIPTOR,
+  containing_type=None,
+  create_key=_descriptor._internal_create_key,
+  fields=[
+    _descriptor.FieldDescriptor(
+      name='actions', full_name='sts.ai.state.v1.GameActionBatch.actions', index=0,
+      number=1, type=11, cpp_type=10, label=3,
+      has_default_value=False, default_value=[],
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='include_intermediate_states', full_name='sts.ai.state.v1.GameActionBatch.include_intermediate_states', index=1,
+      number=2, type=8, cpp_type=7, label=1,
+      has_default_value=False, default_value=False,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+  ],
+  extensions=[
+  ],
+  nested_types=[],
+  enum_types=[
+  ],
+  serialized_options=None,
+  is_extendable=False,
+  syntax='proto3',
+  extension_ranges=[],
+  oneofs=[
+  ],
+  serialized_start=3694,
+  serialized_end=3794,
 )
 
 
@@ -1130,6 +1680,69 @@ _GAMEACTION = _descriptor.Descriptor(
       message_type=None, enum_type=None, containing_type=None,
       is_extension=False, extension_scope=None,
       serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='action_id', full_name='sts.ai.state.v1.GameAction.action_id', index=3,
+      number=4, type=3, cpp_type=2, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='batch', full_name='sts.ai.state.v1.GameAction.batch', index=4,
+      number=5, type=11, cpp_type=10, label=1,
+      has_default_value=False, default_value=None,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='last_seq', full_name='sts.ai.state.v1.GameAction.last_seq', index=5,
+      number=6, type=3, cpp_type=2, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='hello', full_name='sts.ai.state.v1.GameAction.hello', index=6,
+      number=7, type=11, cpp_type=10, label=1,
+      has_default_value=False, default_value=None,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='credits', full_name='sts.ai.state.v1.GameAction.credits', index=7,
+      number=8, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='sections', full_name='sts.ai.state.v1.GameAction.sections', index=8,
+      number=9, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='action_type_ref', full_name='sts.ai.state.v1.GameAction.action_type_ref', index=9,
+      number=10, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='after_version', full_name='sts.ai.state.v1.GameAction.after_version', index=10,
+      number=11, type=3, cpp_type=2, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
+    _descriptor.FieldDescriptor(
+      name='timeout_ms', full_name='sts.ai.state.v1.GameAction.timeout_ms', index=11,
+      number=12, type=5, cpp_type=1, label=1,
+      has_default_value=False, default_value=0,
+      message_type=None, enum_type=None, containing_type=None,
+      is_extension=False, extension_scope=None,
+      serialized_options=None, file=DESCRIPTOR,  create_key=_descriptor._internal_create_key),
   ],
   extensions=[
   ],
@@ -1142,8 +1755,8 @@ _GAMEACTION = _descriptor.Descriptor(
   extension_ranges=[],
   oneofs=[
   ],
-  serialized_start=2474,
-  serialized_end=2549,
+  serialized_start=3797,
+  serialized_end=4106,
 )
 
 _PLAYERSTATE.fields_by_name['powers'].message_type = _POWERSTATE
@@ -1168,6 +1781,16 @@ _GAMESTATE.fields_by_name['rest_site'].message_type = _RESTSITESTATE
 _GAMESTATE.fields_by_name['event'].message_type = _EVENTSTATE
 _GAMESTATE.fields_by_name['reward'].message_type = _REWARDSTATE
 _GAMESTATE.fields_by_name['game_outcome'].message_type = _GAMEOUTCOME
+_GAMESTATE.fields_by_name['batch_result'].message_type = _BATCHRESULT
+_GAMESTATE.fields_by_name['session_info'].message_type = _SESSIONINFO
+_GAMESTATE.fields_by_name['delta'].message_type = _DELTAINFO
+_GAMESTATE.fields_by_name['catalog'].message_type = _CATALOGUPDATE
+_CATALOGUPDATE.fields_by_name['entries'].message_type = _CATALOGENTRY
+_DELTAINFO.fields_by_name['lists'].message_type = _LISTPATCH
+_BATCHRESULT.fields_by_name['intermediate_states'].message_type = _GAMESTATE
+_GAMEACTIONBATCH.fields_by_name['actions'].message_type = _GAMEACTION
+_GAMEACTION.fields_by_name['batch'].message_type = _GAMEACTIONBATCH
+_GAMEACTION.fields_by_name['hello'].message_type = _CLIENTHELLO
 DESCRIPTOR.message_types_by_name['PowerState'] = _POWERSTATE
 DESCRIPTOR.message_types_by_name['RelicState'] = _RELICSTATE
 DESCRIPTOR.message_types_by_name['OrbState'] = _ORBSTATE
@@ -1185,6 +1808,14 @@ DESCRIPTOR.message_types_by_name['RewardState'] = _REWARDSTATE
 DESCRIPTOR.message_types_by_name['RewardItemState'] = _REWARDITEMSTATE
 DESCRIPTOR.message_types_by_name['GameOutcome'] = _GAMEOUTCOME
 DESCRIPTOR.message_types_by_name['GameState'] = _GAMESTATE
+DESCRIPTOR.message_types_by_name['CatalogEntry'] = _CATALOGENTRY
+DESCRIPTOR.message_types_by_name['CatalogUpdate'] = _CATALOGUPDATE
+DESCRIPTOR.message_types_by_name['DeltaInfo'] = _DELTAINFO
+DESCRIPTOR.message_types_by_name['ListPatch'] = _LISTPATCH
+DESCRIPTOR.message_types_by_name['SessionInfo'] = _SESSIONINFO
+DESCRIPTOR.message_types_by_name['ClientHello'] = _CLIENTHELLO
+DESCRIPTOR.message_types_by_name['BatchResult'] = _BATCHRESULT
+DESCRIPTOR.message_types_by_name['GameActionBatch'] = _GAMEACTIONBATCH
 DESCRIPTOR.message_types_by_name['GameAction'] = _GAMEACTION
 _sym_db.RegisterFileDescriptor(DESCRIPTOR)
 
@@ -1307,6 +1938,62 @@ GameState = _reflection.GeneratedProtocolMessageType('GameState', (_message.Mess
   })
 _sym_db.RegisterMessage(GameState)
 
+CatalogEntry = _reflection.GeneratedProtocolMessageType('CatalogEntry', (_message.Message,), {
+  'DESCRIPTOR' : _CATALOGENTRY,
+  '__module__' : 'sts_state_pb2'
+  # @@protoc_insertion_point(class_scope:sts.ai.state.v1.CatalogEntry)
+  })
+_sym_db.RegisterMessage(CatalogEntry)
+
+CatalogUpdate = _reflection.GeneratedProtocolMessageType('CatalogUpdate', (_message.Message,), {
+  'DESCRIPTOR' : _CATALOGUPDATE,
+  '__module__' : 'sts_state_pb2'
+  # @@protoc_insertion_point(class_scope:sts.ai.state.v1.CatalogUpdate)
+  })
+_sym_db.RegisterMessage(CatalogUpdate)
+
+DeltaInfo = _reflection.GeneratedProtocolMessageType('DeltaInfo', (_message.Message,), {
+  'DESCRIPTOR' : _DELTAINFO,
+  '__module__' : 'sts_state_pb2'
+  # @@protoc_insertion_point(class_scope:sts.ai.state.v1.DeltaInfo)
+  })
+_sym_db.RegisterMessage(DeltaInfo)
+
+ListPatch = _reflection.GeneratedProtocolMessageType('ListPatch', (_message.Message,), {
+  'DESCRIPTOR' : _LISTPATCH,
+  '__module__' : 'sts_state_pb2'
+  # @@protoc_insertion_point(class_scope:sts.ai.state.v1.ListPatch)
+  })
+_sym_db.RegisterMessage(ListPatch)
+
+SessionInfo = _reflection.GeneratedProtocolMessageType('SessionInfo', (_message.Message,), {
+  'DESCRIPTOR' : _SESSIONINFO,
+  '__module__' : 'sts_state_pb2'
+  # @@protoc_insertion_point(class_scope:sts.ai.state.v1.SessionInfo)
+  })
+_sym_db.RegisterMessage(SessionInfo)
+
+ClientHello = _reflection.GeneratedProtocolMessageType('ClientHello', (_message.Message,), {
+  'DESCRIPTOR' : _CLIENTHELLO,
+  '__module__' : 'sts_state_pb2'
+  # @@protoc_insertion_point(class_scope:sts.ai.state.v1.ClientHello)
+  })
+_sym_db.RegisterMessage(ClientHello)
+
+BatchResult = _reflection.GeneratedProtocolMessageType('BatchResult', (_message.Message,), {
+  'DESCRIPTOR' : _BATCHRESULT,
+  '__module__' : 'sts_state_pb2'
+  # @@protoc_insertion_point(class_scope:sts.ai.state.v1.BatchResult)
+  })
+_sym_db.RegisterMessage(BatchResult)
+
+GameActionBatch = _reflection.GeneratedProtocolMessageType('GameActionBatch', (_message.Message,), {
+  'DESCRIPTOR' : _GAMEACTIONBATCH,
+  '__module__' : 'sts_state_pb2'
+  # @@protoc_insertion_point(class_scope:sts.ai.state.v1.GameActionBatch)
+  })
+_sym_db.RegisterMessage(GameActionBatch)
+
 GameAction = _reflection.GeneratedProtocolMessageType('GameAction', (_message.Message,), {
   'DESCRIPTOR' : _GAMEACTION,
   '__module__' : 'sts_state_pb2'
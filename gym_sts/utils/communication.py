@@ -1,14 +1,191 @@
 import socket
 import struct
 import time
+import zlib
 from gym_sts.protos import sts_state_pb2
 
+COMPRESSED_FLAG = 0x80000000
+
+
+_FRAME_FIELDS = ("seq", "ack_action_id", "action_rejected", "batch_result", "screen_type_ref", "state_hash", "state_version")
+
+
+def section_mask(sections):
+    """Turn GameState field names (e.g. ["player", "hand", "monsters"]) into the bridge's subscription mask.
+
+    None or an empty list means every section. screen_type and game_outcome are always sent.
+    """
+    mask = 0
+    for name in sections or ():
+        mask |= 1 << sts_state_pb2.GameState.DESCRIPTOR.fields_by_name[name].number
+    return mask
+
+
+class Catalog:
+    """Client side of the bridge catalog (-Dsts.ai.catalog=true, see CatalogEntry in sts_state.proto).
+
+    In catalog mode frames carry integer refs instead of ids, names and type strings; merge() records the
+    entries of every CATALOG control frame and resolve() writes the strings back into a GameState, so
+    callers see the same fields as without a catalog.
+    """
+
+    def __init__(self):
+        self.entries = {}
+        self.actions = {}
+
+    def merge(self, update):
+        for entry in update.entries:
+            self.entries[entry.ref] = entry
+            if entry.kind == "action":
+                self.actions[entry.id] = entry.ref
+
+    def resolve(self, state):
+        """Fill id / name / type strings from refs in place; returns False if some ref is unknown."""
+        self._complete = True
+        player = state.player
+        for power in player.powers:
+            self._named(power)
+        for relic in player.relics:
+            self._named(relic)
+        for orb in player.orbs:
+            self._named(orb)
+        for monster in state.monsters:
+            self._named(monster)
+            if monster.intent_ref:
+                monster.intent = self._id(monster.intent_ref)
+            for power in monster.powers:
+                self._named(power)
+        for cards in (state.hand, state.master_deck, state.shop.cards):
+            for card in cards:
+                self._card(card)
+        for item in state.reward.items:
+            for card in item.cards:
+                self._card(card)
+        for potions in (state.potions, state.shop.potions):
+            for potion in potions:
+                self._named(potion)
+        for relic in state.shop.relics:
+            self._named(relic)
+        for node in state.map.nodes:
+            if node.room_type_ref:
+                node.room_type = self._id(node.room_type_ref)
+        if state.screen_type_ref:
+            state.screen_type = self._id(state.screen_type_ref)
+        return self._complete
+
+    def _entry(self, ref):
+        entry = self.entries.get(ref)
+        if entry is None:
+            self._complete = False
+        return entry
+
+    def _id(self, ref):
+        entry = self._entry(ref)
+        return entry.id if entry is not None else ""
+
+    def _named(self, message):
+        if message.ref:
+            entry = self._entry(message.ref)
+            if entry is not None:
+                message.id = entry.id
+                message.name = entry.name
+
+    def _card(self, card):
+        self._named(card)
+        if card.type_ref:
+            card.type = self._id(card.type_ref)
+        if card.target_ref:
+            card.target = self._id(card.target_ref)
+
+
+def _apply_delta(base, delta):
+    """Rebuild the full GameState from the previous full state and a delta frame (see DeltaInfo)."""
+    state = sts_state_pb2.GameState()
+    state.CopyFrom(base)
+    for name in _FRAME_FIELDS + ("frame_type", "session_info"):
+        state.ClearField(name)
+    patches = {patch.field: patch for patch in delta.delta.lists}
+    for field in sts_state_pb2.GameState.DESCRIPTOR.fields:
+        if not delta.delta.changed_sections & (1 << field.number) or field.name in _FRAME_FIELDS:
+            continue
+        if field.label == field.LABEL_REPEATED:
+            carried = getattr(delta, field.name)
+            patch = patches.get(field.number)
+            if patch is None:
+                entries = list(carried)
+            else:
+                entries = list(getattr(base, field.name))[:patch.length]
+                for index, entry in zip(patch.indices, carried):
+                    if index < len(entries):
+                        entries[index] = entry
+                    else:
+                        entries.append(entry)
+            target = getattr(state, field.name)
+            del target[:]
+            target.extend(entries)
+        elif field.message_type is not None:
+            if delta.HasField(field.name):
+                getattr(state, field.name).CopyFrom(getattr(delta, field.name))
+            else:
+                state.ClearField(field.name)
+        else:
+            setattr(state, field.name, getattr(delta, field.name))
+    state.seq = delta.seq
+    state.ack_action_id = delta.ack_action_id
+    state.action_rejected = delta.action_rejected
+    state.screen_type_ref = delta.screen_type_ref
+    state.state_hash = delta.state_hash
+    state.state_version = delta.state_version
+    if delta.HasField("batch_result"):
+        state.batch_result.CopyFrom(delta.batch_result)
+    return state
+
+
+def _set_action_type(action, command_type, catalog):
+    """Send the action type as a catalog ref when the bridge published one, otherwise as a string."""
+    ref = catalog.actions.get(command_type)
+    if ref:
+        action.action_type_ref = ref
+    else:
+        action.action_type = command_type
+
+
 class STSCommunicator:
-    def __init__(self, port=9999):
-        self.host = 'localhost'
+    def __init__(self, port=9999, read_timeout=None, host='localhost', compression=None, compression_threshold=0,
+                 observer=False, delta=False, sections=None, resolve_catalog=True):
+        """read_timeout (seconds) turns a silent bridge into a socket.timeout instead of a hang.
+
+        Pair it with -Dsts.ai.heartbeat.intervalMs on the bridge so idle sessions still see PING frames.
+        compression='deflate' asks the bridge to deflate large frames (useful when the trainer runs on
+        another host); the bridge confirms it in a HELLO control frame.
+        observer=True joins as a read-only observer (recorders, dashboards) that never takes the
+        controller slot, so it can attach to a running instance without affecting the trainer.
+        delta=True lets the bridge send only the sections that changed since the previous frame;
+        receive_state() patches them onto the last full state, so callers always get complete frames.
+        sections limits frames to the listed GameState fields (see section_mask); unlisted sections
+        stay empty unless another consumer of the same bridge subscribed to them.
+        When the bridge runs with -Dsts.ai.catalog=true, resolve_catalog=True fills the id / name / type
+        strings back in from the catalog (see Catalog); False leaves only the integer refs, which is
+        cheaper when the caller maps refs to embeddings itself. self.catalog holds the entries either way.
+        """
+        self.host = host
         self.port = port
+        self.read_timeout = read_timeout
+        self.compression = compression
+        self.compression_threshold = compression_threshold
+        self.compression_dictionary = None
+        self.observer = observer
+        self.delta = delta
+        self.sections = sections
+        self.resolve_catalog = resolve_catalog
+        self.catalog = Catalog()
+        self._catalog_requested = False
+        self._base_state = None
         self.socket = None
         self.connected = False
+        self.last_seq = 0
+        self.state_version = 0
+        self.last_pong_at = None
 
     def connect(self):
         """Establish connection to the Java bridge."""
@@ -20,7 +197,10 @@ class STSCommunicator:
             # Disable Nagle's algorithm for lower latency
             self.socket.setsockopt(socket.IPPROTO_TCP, socket.TCP_NODELAY, 1)
             self.socket.connect((self.host, self.port))
+            self.socket.settimeout(self.read_timeout)
             self.connected = True
+            if self.compression or self.observer or self.delta or self.sections:
+                self._send_hello()
             print(f"Connected to STS Bridge on port {self.port}")
         except ConnectionRefusedError:
             print(f"Connection refused on port {self.port}. Is the game running?")
@@ -29,15 +209,117 @@ class STSCommunicator:
             print(f"Failed to connect: {e}")
             raise
 
-    def send_message(self, command_type, card_index=0, target_index=0):
-        """Send a GameAction to the bridge."""
-        if not self.connected:
-            raise RuntimeError("Not connected to STS Bridge")
+    def send_message(self, command_type, card_index=0, target_index=0, action_id=0):
+        """Send a GameAction to the bridge.
 
+        In step mode (-Dsts.ai.emit.mode=step) the bridge answers every action with exactly
+        one GameState whose ack_action_id echoes action_id.
+        """
         action = sts_state_pb2.GameAction()
-        action.action_type = command_type
+        _set_action_type(action, command_type, self.catalog)
         action.card_index = card_index
         action.target_index = target_index
+        action.action_id = action_id
+        self._send_action(action)
+
+    def send_batch(self, actions, include_intermediate_states=False, action_id=0):
+        """Send several actions as one GameActionBatch.
+
+        actions is a list of (command_type, card_index, target_index) tuples. The bridge runs them
+        in order, one per stable frame, stops at the first rejected action and answers with a single
+        GameState whose batch_result reports how many were executed.
+        """
+        action = sts_state_pb2.GameAction()
+        action.action_id = action_id
+        action.batch.include_intermediate_states = include_intermediate_states
+        for command_type, card_index, target_index in actions:
+            item = action.batch.actions.add()
+            item.action_type = command_type
+            item.card_index = card_index
+            item.target_index = target_index
+        self._send_action(action)
+
+    def reconnect(self):
+        """Reconnect after a dropped connection and ask the bridge to replay missed frames.
+
+        The bridge keeps a small replay buffer; frames older than it are gone, which shows up as a
+        jump in GameState.seq.
+        """
+        self.close()
+        self.connect()
+        action = sts_state_pb2.GameAction()
+        action.action_type = "RESUME"
+        action.last_seq = self.last_seq
+        self._send_action(action)
+
+    def _send_hello(self):
+        action = sts_state_pb2.GameAction()
+        action.action_type = "HELLO"
+        if self.compression:
+            action.hello.compression.append(self.compression)
+        action.hello.compression_threshold = self.compression_threshold
+        action.hello.observer = self.observer
+        action.hello.delta = self.delta
+        action.hello.sections = section_mask(self.sections)
+        self._send_action(action)
+
+    def request_keyframe(self):
+        """Ask the bridge to send the next state frame in full (and, as controller, to send one now)."""
+        self._base_state = None
+        action = sts_state_pb2.GameAction()
+        action.action_type = "KEYFRAME"
+        self._send_action(action)
+
+    def subscribe(self, sections):
+        """Change the subscribed sections at runtime; None restores every section."""
+        self.sections = sections
+        action = sts_state_pb2.GameAction()
+        action.action_type = "SUBSCRIBE"
+        action.sections = section_mask(sections)
+        self._send_action(action)
+
+    def request_catalog(self):
+        """Ask the bridge to send the whole catalog again before the next state frame."""
+        self._catalog_requested = True
+        action = sts_state_pb2.GameAction()
+        action.action_type = "CATALOG"
+        self._send_action(action)
+
+    def get_state(self, after_version=None, timeout_ms=0):
+        """Long-poll for a state newer than after_version (default: the newest one received so far).
+
+        The bridge answers at once if it already has a newer state, otherwise when the next decision
+        point is reached or after timeout_ms (0 = the bridge default, -Dsts.ai.poll.timeoutMs), in which
+        case this returns None. After the first call the bridge stops pushing frames to this session,
+        so keep read_timeout above the poll timeout.
+        """
+        action = sts_state_pb2.GameAction()
+        action.action_type = "GET_STATE"
+        action.after_version = self.state_version if after_version is None else after_version
+        action.timeout_ms = timeout_ms
+        self._send_action(action)
+        state = self.receive_state()
+        if state is not None and state.frame_type == "NOT_MODIFIED":
+            return None
+        return state
+
+    def send_ping(self, nonce=0):
+        """Ask the bridge for a PONG control frame; receive_state() records its arrival in last_pong_at."""
+        action = sts_state_pb2.GameAction()
+        action.action_type = "PING"
+        action.action_id = nonce
+        self._send_action(action)
+
+    def grant_credits(self, n):
+        """Allow the bridge to send n more GameState frames (only meaningful with -Dsts.ai.flow=credit)."""
+        action = sts_state_pb2.GameAction()
+        action.action_type = "CREDIT"
+        action.credits = n
+        self._send_action(action)
+
+    def _send_action(self, action):
+        if not self.connected:
+            raise RuntimeError("Not connected to STS Bridge")
 
         payload = action.SerializeToString()
         try:
@@ -51,27 +333,71 @@ class STSCommunicator:
             raise
 
     def receive_state(self):
-        """Receive and parse a GameState from the bridge."""
+        """Receive and parse a GameState from the bridge.
+
+        Heartbeat control frames are handled here and never returned: PING is answered with a PONG
+        action, PONG only updates last_pong_at. A NOT_MODIFIED frame (an expired GET_STATE, see
+        get_state) is returned as-is.
+        """
         if not self.connected:
             raise RuntimeError("Not connected to STS Bridge")
 
         try:
-            # Read length (4 bytes)
-            length_bytes = self._recv_all(4)
-            if not length_bytes:
-                return None
-            
-            length = struct.unpack('>I', length_bytes)[0]
-            
-            # Read payload
-            payload = self._recv_all(length)
-            if not payload:
-                return None
+            while True:
+                # Read length (4 bytes)
+                length_bytes = self._recv_all(4)
+                if not length_bytes:
+                    return None
+
+                length = struct.unpack('>I', length_bytes)[0]
+                compressed = bool(length & COMPRESSED_FLAG)
+                length &= ~COMPRESSED_FLAG
+
+                # Read payload
+                payload = self._recv_all(length)
+                if payload is None:
+                    return None
+                if compressed:
+                    # Every frame is an independent raw deflate stream primed with the session dictionary
+                    inflater = zlib.decompressobj(wbits=-15, zdict=self.compression_dictionary)
+                    payload = inflater.decompress(bytes(payload)) + inflater.flush()
 
-            # Parse Protobuf
-            game_state = sts_state_pb2.GameState()
-            game_state.ParseFromString(payload)
-            return game_state
+                # Parse Protobuf
+                game_state = sts_state_pb2.GameState()
+                game_state.ParseFromString(payload)
+                if game_state.frame_type == "PING":
+                    pong = sts_state_pb2.GameAction()
+                    pong.action_type = "PONG"
+                    self._send_action(pong)
+                    continue
+                if game_state.frame_type == "PONG":
+                    self.last_pong_at = time.monotonic()
+                    continue
+                if game_state.frame_type == "HELLO":
+                    info = game_state.session_info
+                    self.compression_dictionary = info.compression_dictionary if info.compression else None
+                    print(f"STS Bridge session compression: {info.compression or 'none'}"
+                          f", delta frames: {'on' if info.delta else 'off'}"
+                          f", catalog: {'on' if info.catalog else 'off'}")
+                    continue
+                if game_state.frame_type == "CATALOG":
+                    self.catalog.merge(game_state.catalog)
+                    self._catalog_requested = False
+                    continue
+                if game_state.frame_type == "NOT_MODIFIED":
+                    return game_state
+                if game_state.HasField("delta"):
+                    if self._base_state is None or self._base_state.seq != game_state.delta.base_seq:
+                        # Missing base (e.g. after request_keyframe); wait for the keyframe
+                        continue
+                    game_state = _apply_delta(self._base_state, game_state)
+                if self.resolve_catalog and not self.catalog.resolve(game_state) and not self._catalog_requested:
+                    self.request_catalog()
+                if self.delta:
+                    self._base_state = game_state
+                self.last_seq = max(self.last_seq, game_state.seq)
+                self.state_version = max(self.state_version, game_state.state_version)
+                return game_state
 
         except Exception as e:
             print(f"Error receiving state: {e}")
@@ -0,0 +1,60 @@
+from gym_sts.utils.communication import STSCommunicator
+
+# Written by the bridge before the first frame; anything before it on stdout is ModTheSpire startup noise.
+PREAMBLE = b"\nSTS-AI-PIPE/1\n"
+
+
+class STSPipeCommunicator(STSCommunicator):
+    """Talks to a bridge launched as a child process with -Dsts.ai.transport=pipe.
+
+    reader / writer are binary file objects, typically proc.stdout / proc.stdin of a
+    subprocess.Popen(..., stdin=PIPE, stdout=PIPE), or named pipes when the bridge runs with
+    -Dsts.ai.pipe.in / -Dsts.ai.pipe.out.
+    """
+
+    def __init__(self, reader, writer):
+        super().__init__()
+        self.reader = reader
+        self.writer = writer
+
+    def connect(self):
+        if self.connected:
+            return
+        window = b""
+        while not window.endswith(PREAMBLE):
+            byte = self.reader.read(1)
+            if not byte:
+                raise ConnectionError("bridge closed its output before the pipe preamble")
+            window = (window + byte)[-len(PREAMBLE):]
+        self.connected = True
+        print("Attached to STS Bridge pipe")
+
+    def reconnect(self):
+        raise RuntimeError("A pipe transport cannot be resumed; restart the child process instead")
+
+    def request_keyframe(self):
+        raise RuntimeError("A pipe transport never sends delta frames; every state frame is already a keyframe")
+
+    def _send_action(self, action):
+        if not self.connected:
+            raise RuntimeError("Not connected to STS Bridge")
+        payload = action.SerializeToString()
+        self.writer.write(len(payload).to_bytes(4, 'big') + payload)
+        self.writer.flush()
+
+    def _recv_all(self, n):
+        data = bytearray()
+        while len(data) < n:
+            chunk = self.reader.read(n - len(data))
+            if not chunk:
+                return None
+            data.extend(chunk)
+        return data
+
+    def close(self):
+        for stream in (self.writer, self.reader):
+            try:
+                stream.close()
+            except Exception:
+                pass
+        self.connected = False
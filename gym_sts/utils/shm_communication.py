@@ -0,0 +1,192 @@
+import os
+import time
+
+import numpy as np
+
+from gym_sts.protos import sts_state_pb2
+from gym_sts.utils.communication import Catalog, _set_action_type, section_mask
+
+# Ring layout shared with sts-bridge-mod ShmRing.java (little endian).
+MAGIC = 0x53545352
+HEADER_BYTES = 64
+SLOT_HEADER_BYTES = 16
+OFF_SLOT_COUNT = 8
+OFF_SLOT_BYTES = 12
+OFF_WRITE_COUNT = 16
+OFF_READ_COUNT = 24
+OFF_READER_ATTACHED = 32
+
+
+class _Ring:
+    """One seqlock-guarded frame ring backed by a file under /dev/shm."""
+
+    def __init__(self, path):
+        self.mem = np.memmap(path, dtype=np.uint8, mode='r+')
+        if self._i32(0) != MAGIC:
+            raise RuntimeError(f"{path} is not an STS bridge ring (bad magic)")
+        self.slot_count = self._i32(OFF_SLOT_COUNT)
+        self.slot_bytes = self._i32(OFF_SLOT_BYTES)
+        self.next_read = self._i64(OFF_WRITE_COUNT)
+
+    def _i32(self, off):
+        return int(self.mem[off:off + 4].view('<i4')[0])
+
+    def _i64(self, off):
+        return int(self.mem[off:off + 8].view('<i8')[0])
+
+    def _set_i32(self, off, value):
+        self.mem[off:off + 4].view('<i4')[0] = value
+
+    def _set_i64(self, off, value):
+        self.mem[off:off + 8].view('<i8')[0] = value
+
+    def _slot(self, k):
+        return HEADER_BYTES + (k % self.slot_count) * (SLOT_HEADER_BYTES + self.slot_bytes)
+
+    def read(self):
+        """Return the next frame payload as bytes, or None when nothing new is published."""
+        while True:
+            written = self._i64(OFF_WRITE_COUNT)
+            if written <= self.next_read:
+                return None
+            if written - self.next_read > self.slot_count:
+                self.next_read = written - 1
+            k = self.next_read
+            slot = self._slot(k)
+            seq = self._i64(slot)
+            if seq != 2 * k + 2:
+                self.next_read = (self._i64(OFF_WRITE_COUNT) - 1) if seq > 2 * k + 2 else k + 1
+                continue
+            length = self._i32(slot + 8)
+            start = slot + SLOT_HEADER_BYTES
+            payload = bytes(self.mem[start:start + length])
+            if self._i64(slot) != seq:
+                continue
+            self.next_read = k + 1
+            self._set_i64(OFF_READ_COUNT, self.next_read)
+            return payload
+
+    def write(self, payload):
+        if len(payload) > self.slot_bytes:
+            raise ValueError(f"payload of {len(payload)} bytes exceeds slot size {self.slot_bytes}")
+        k = self._i64(OFF_WRITE_COUNT)
+        slot = self._slot(k)
+        self._set_i64(slot, 2 * k + 1)
+        self._set_i32(slot + 8, len(payload))
+        start = slot + SLOT_HEADER_BYTES
+        self.mem[start:start + len(payload)] = np.frombuffer(payload, dtype=np.uint8)
+        self._set_i64(slot, 2 * k + 2)
+        self._set_i64(OFF_WRITE_COUNT, k + 1)
+
+    def close(self):
+        self.mem.flush()
+        del self.mem
+
+
+class STSShmCommunicator:
+    """Drop-in replacement for STSCommunicator when the bridge runs with -Dsts.ai.transport=shm.
+
+    The bridge owns both ring files; this side only attaches to them. resolve_catalog has the same
+    meaning as for STSCommunicator; a reader that attaches late asks for the whole catalog on connect.
+    """
+
+    def __init__(self, name='9999', shm_dir='/dev/shm', poll_interval=0.0001, resolve_catalog=True):
+        self.state_path = os.path.join(shm_dir, f"sts-ai-{name}-state.ring")
+        self.action_path = os.path.join(shm_dir, f"sts-ai-{name}-action.ring")
+        self.poll_interval = poll_interval
+        self.resolve_catalog = resolve_catalog
+        self.catalog = Catalog()
+        self._catalog_requested = False
+        self.state_ring = None
+        self.action_ring = None
+        self.connected = False
+
+    def connect(self):
+        if self.connected:
+            return
+        self.state_ring = _Ring(self.state_path)
+        self.action_ring = _Ring(self.action_path)
+        self.state_ring._set_i32(OFF_READER_ATTACHED, 1)
+        self.connected = True
+        self.request_catalog()
+        print(f"Attached to STS Bridge shared memory {self.state_path}")
+
+    def send_message(self, command_type, card_index=0, target_index=0, action_id=0):
+        action = sts_state_pb2.GameAction()
+        _set_action_type(action, command_type, self.catalog)
+        action.card_index = card_index
+        action.target_index = target_index
+        action.action_id = action_id
+        self._send_action(action)
+
+    def send_batch(self, actions, include_intermediate_states=False, action_id=0):
+        """Same contract as STSCommunicator.send_batch."""
+        action = sts_state_pb2.GameAction()
+        action.action_id = action_id
+        action.batch.include_intermediate_states = include_intermediate_states
+        for command_type, card_index, target_index in actions:
+            item = action.batch.actions.add()
+            item.action_type = command_type
+            item.card_index = card_index
+            item.target_index = target_index
+        self._send_action(action)
+
+    def grant_credits(self, n):
+        """Same contract as STSCommunicator.grant_credits."""
+        action = sts_state_pb2.GameAction()
+        action.action_type = "CREDIT"
+        action.credits = n
+        self._send_action(action)
+
+    def subscribe(self, sections):
+        """Same contract as STSCommunicator.subscribe."""
+        action = sts_state_pb2.GameAction()
+        action.action_type = "SUBSCRIBE"
+        action.sections = section_mask(sections)
+        self._send_action(action)
+
+    def request_catalog(self):
+        """Same contract as STSCommunicator.request_catalog."""
+        self._catalog_requested = True
+        action = sts_state_pb2.GameAction()
+        action.action_type = "CATALOG"
+        self._send_action(action)
+
+    def _send_action(self, action):
+        if not self.connected:
+            raise RuntimeError("Not connected to STS Bridge")
+        self.action_ring.write(action.SerializeToString())
+
+    def receive_state(self, timeout=None):
+        """Spin (with a tiny sleep) until the next GameState is published; None on timeout."""
+        if not self.connected:
+            raise RuntimeError("Not connected to STS Bridge")
+        deadline = None if timeout is None else time.monotonic() + timeout
+        while True:
+            payload = self.state_ring.read()
+            if payload is not None:
+                game_state = sts_state_pb2.GameState()
+                game_state.ParseFromString(payload)
+                if game_state.frame_type == "CATALOG":
+                    self.catalog.merge(game_state.catalog)
+                    self._catalog_requested = False
+                    continue
+                if self.resolve_catalog and not self.catalog.resolve(game_state) and not self._catalog_requested:
+                    self.request_catalog()
+                return game_state
+            if deadline is not None and time.monotonic() >= deadline:
+                return None
+            if self.poll_interval:
+                time.sleep(self.poll_interval)
+
+    def close(self):
+        if self.state_ring is not None:
+            try:
+                self.state_ring._set_i32(OFF_READER_ATTACHED, 0)
+                self.state_ring.close()
+                self.action_ring.close()
+            except Exception:
+                pass
+        self.state_ring = None
+        self.action_ring = None
+        self.connected = False
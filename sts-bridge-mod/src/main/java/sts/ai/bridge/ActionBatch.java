@@ -0,0 +1,110 @@
+package sts.ai.bridge;
+
+import com.megacrit.cardcrawl.actions.GameActionManager;
+import com.megacrit.cardcrawl.characters.AbstractPlayer;
+import sts.ai.state.v1.BatchResult;
+import sts.ai.state.v1.GameAction;
+import sts.ai.state.v1.GameActionBatch;
+
+import java.util.List;
+
+/**
+ * 批量动作（GameAction.batch）的执行器。
+ * 约定：
+ * 1. 批内动作按顺序执行，每个稳定帧最多执行一个；上一个动作结算完成（决策点变化或超时）后才执行下一个
+ * 2. 某个动作被拒绝时终止整批，剩余动作不再执行（BatchResult.aborted = true）
+ * 3. 整批结束后只发送一帧 GameState，携带 BatchResult；批次执行期间不推送任何中间帧
+ *    - include_intermediate_states 为 true 时，每个被接受动作结算后的状态放入 BatchResult.intermediate_states
+ * 4. 应答帧的 ack_action_id 为承载该批次的 GameAction.action_id，锁步模式下一个批次视为一个动作
+ *
+ * 所有方法只允许在游戏主线程中调用。
+ */
+final class ActionBatch {
+    private static List<GameAction> actions;
+    private static boolean includeIntermediateStates = false;
+    private static BatchResult.Builder result;
+    private static int next = 0;
+    private static boolean awaiting = false;
+    private static boolean finished = false;
+    private static long signatureBefore = 0L;
+    private static int waitedFrames = 0;
+
+    private ActionBatch() {
+    }
+
+    /**
+     * 是否有批次正在执行或等待发送应答；此时不从动作队列取新动作。
+     */
+    static boolean isActive() {
+        return actions != null;
+    }
+
+    static void begin(GameAction action) {
+        GameActionBatch batch = action.getBatch();
+        actions = batch.getActionsList();
+        includeIntermediateStates = batch.getIncludeIntermediateStates();
+        result = BatchResult.newBuilder().setBatchId(action.getActionId());
+        next = 0;
+        awaiting = false;
+        finished = false;
+        signatureBefore = 0L;
+        waitedFrames = 0;
+    }
+
+    /**
+     * 每帧调用一次，累计等待帧数。
+     */
+    static void onFrame() {
+        if (awaiting) {
+            waitedFrames++;
+        }
+    }
+
+    /**
+     * 在稳定帧上、DecisionPoint.observe() 之后调用：等待上一个动作结算，然后执行下一个动作。
+     * 返回 true 表示整批已结束，调用方应在本帧发送应答。
+     */
+    static boolean advance(AbstractPlayer player, GameActionManager manager) {
+        if (finished) {
+            return true;
+        }
+        if (awaiting) {
+            if (!DecisionPoint.isSettled()) {
+                return false;
+            }
+            if (DecisionPoint.current() == signatureBefore && waitedFrames < StepMode.TIMEOUT_FRAMES) {
+                return false;
+            }
+            awaiting = false;
+            if (includeIntermediateStates) {
+                result.addIntermediateStates(StsAIBridge.collectGameState());
+            }
+        }
+        if (next < actions.size()) {
+            GameAction action = actions.get(next++);
+            long before = DecisionPoint.current();
+            if (StsAIBridge.executeAction(action, player, manager)) {
+                result.setExecuted(result.getExecuted() + 1);
+                awaiting = true;
+                signatureBefore = before;
+                waitedFrames = 0;
+                return false;
+            }
+            result.setAborted(true);
+        }
+        finished = true;
+        return true;
+    }
+
+    /**
+     * 为应答帧写入 BatchResult 与 ack 字段，并结束本批次。
+     */
+    static void completeResponse(StateSnapshot snapshot) {
+        snapshot.batchResult = result.build();
+        snapshot.ackActionId = result.getBatchId();
+        snapshot.actionRejected = result.getAborted();
+        actions = null;
+        result = null;
+        finished = false;
+    }
+}
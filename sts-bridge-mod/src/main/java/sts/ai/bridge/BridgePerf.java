@@ -0,0 +1,114 @@
+package sts.ai.bridge;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 轻量性能探针，通过 -Dsts.ai.perf=true 开启。
+ * 对每个采样帧分阶段记录耗时（nanoTime）与本线程分配字节数（com.sun.management.ThreadMXBean），
+ * 每 sts.ai.perf.reportEvery 帧输出一行 [STS-AI-PERF] 汇总，用于确认各阶段的开销和稳态零分配。
+ * 这里只用于游戏内观察；编码路径的稳态分配由 EncoderAllocationTest 在构建时检查，超出上限即失败。
+ * 每个实例只由一个线程使用：GAME_THREAD 统计游戏线程，ENCODER 统计快照编码线程（见 SnapshotEncoder），
+ * 汇总中只列出该线程实际经过的阶段，并给出合计，便于直接读出每帧占用游戏线程的时间。
+ * 关闭时所有方法都是空操作。
+ */
+final class BridgePerf {
+    static final boolean ENABLED = Boolean.getBoolean("sts.ai.perf");
+
+    /**
+     * 统计阶段：CAPTURE 为抓取快照，BUILD 为构建 Protobuf 对象，ENCODE 为编码 + 交给传输层，
+     * HANDOFF 为把快照交给编码线程（async 模式）。
+     */
+    static final int CAPTURE = 0;
+    static final int BUILD = 1;
+    static final int ENCODE = 2;
+    static final int HANDOFF = 3;
+    private static final String[] STAGE_NAMES = {"capture", "build", "encode+publish", "handoff"};
+
+    private static final int REPORT_EVERY = Math.max(1, StsAIBridge.intProperty("sts.ai.perf.reportEvery", 200));
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    static final BridgePerf GAME_THREAD = new BridgePerf("game-thread");
+    static final BridgePerf ENCODER = new BridgePerf("encoder");
+
+    private final String name;
+    private final long[] nanos = new long[STAGE_NAMES.length];
+    private final long[] bytes = new long[STAGE_NAMES.length];
+    private final boolean[] used = new boolean[STAGE_NAMES.length];
+    private long stageStartNanos;
+    private long stageStartBytes;
+    private int frames;
+
+    private BridgePerf(String name) {
+        this.name = name;
+    }
+
+    void begin() {
+        if (!ENABLED) {
+            return;
+        }
+        stageStartBytes = allocatedBytes();
+        stageStartNanos = System.nanoTime();
+    }
+
+    /**
+     * 结束一个阶段并立即开始下一个阶段的计时。
+     */
+    void end(int stage) {
+        if (!ENABLED) {
+            return;
+        }
+        long now = System.nanoTime();
+        long allocated = allocatedBytes();
+        nanos[stage] += now - stageStartNanos;
+        bytes[stage] += allocated - stageStartBytes;
+        used[stage] = true;
+        stageStartBytes = allocatedBytes();
+        stageStartNanos = System.nanoTime();
+    }
+
+    /**
+     * 一个采样帧结束，按需输出汇总并清零。
+     */
+    void frameDone() {
+        if (!ENABLED) {
+            return;
+        }
+        if (++frames < REPORT_EVERY) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder("[STS-AI-PERF] ").append(name).append(" frames=").append(frames);
+        long totalNanos = 0L;
+        for (int i = 0; i < STAGE_NAMES.length; i++) {
+            if (!used[i]) {
+                continue;
+            }
+            sb.append(", ").append(STAGE_NAMES[i])
+                    .append(" avg ").append(nanos[i] / frames / 1000).append("us / ")
+                    .append(bytes[i] / frames).append("B alloc");
+            totalNanos += nanos[i];
+            nanos[i] = 0L;
+            bytes[i] = 0L;
+            used[i] = false;
+        }
+        sb.append(", total avg ").append(totalNanos / frames / 1000).append("us");
+        System.out.println(sb);
+        frames = 0;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0L;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+            if (sun.isThreadAllocatedMemorySupported()) {
+                sun.setThreadAllocatedMemoryEnabled(true);
+                return sun;
+            }
+        }
+        return null;
+    }
+}
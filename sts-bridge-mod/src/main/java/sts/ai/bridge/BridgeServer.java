@@ -0,0 +1,905 @@
+package sts.ai.bridge;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ByteString;
+import sts.ai.state.v1.ClientHello;
+import sts.ai.state.v1.GameAction;
+import sts.ai.state.v1.GameState;
+import sts.ai.state.v1.SessionInfo;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 基于 java.nio Selector 的单线程 Socket 服务。
+ * 负责：
+ * 1. 在一个线程内多路复用所有客户端会话，不再为每个连接创建读线程，也不再使用全局类锁
+ * 2. 会话角色：控制端（trainer）只有一个，其余连接为只读观察端
+ *    - 角色在会话发来第一条消息时确定：是 HELLO(observer = true) 则为观察端，否则（HELLO 或任意其它动作）
+ *      在当前没有控制端时成为控制端；接入后一直不发消息的连接在 sts.ai.session.roleGraceMs（默认 200）后按后者处理。
+ *      确定之前按观察端对待（收帧但不执行动作），成为控制端时才重置流控信用（FlowControl.reset）
+ *    - 只有控制端发来的 GameAction 会进入动作队列，观察端的动作会被丢弃
+ *    - 录制器、看板、嗅探器等可在 HELLO 中声明 observer = true，即使先于训练端接入也不会占用控制端
+ *    - 观察端与控制端共享同一个帧对象（引用计数），各自拥有有界队列；观察端不允许使用 block 策略，
+ *      新帧总是先交给控制端写出，慢观察端不会增加控制端的延迟
+ *    - 控制端断开后，下一个确定角色的新连接成为控制端；已有观察端不会被提升
+ * 3. 发布线程（见 SnapshotEncoder）通过 publish() 投递已编码的帧，由 Selector 线程写入每个会话，发布线程不接触任何 Socket
+ *    - 所有会话共享同一个 EncodedFrame（引用计数），各自记录写出偏移，直接从 direct 缓冲区写入 Socket，不做拷贝
+ *    - 每个会话的待发送帧数有上限（sts.ai.queue.capacity，默认 64），写满后按 OverflowPolicy 处理：
+ *      block 让游戏线程在 publish() 中等待，drop_oldest 丢弃最旧的未发送帧，latest_only 只保留最新一帧
+ *    - 观察端默认 latest_only：落后的看板只会收到最新状态，不会在 Socket 缓冲区里堆积过期帧；终局帧与控制帧（HELLO、PONG、NOT_MODIFIED、CATALOG 等）始终保留
+ * 4. 断开处理：读到 EOF 或 IO 异常时只关闭该会话，其它会话不受影响
+ * 5. 断线续传：保留最近 sts.ai.replay.frames（默认 32）帧，重连的客户端发送 RESUME(last_seq) 后补发 seq 更大的帧；
+ *    早于缓冲区的帧无法补发，客户端可通过 seq 的跳变发现缺口
+ *    - 最后一个会话断开后游戏线程立即停止采样（见 hasSessions），断线期间不产生新帧，也就没有需要补齐的帧：
+ *      重连后先从缓冲区补发断线前已发布但未收到的帧，再由游戏线程重推当前状态，seq 保持连续
+ *    - 新控制端接入后等待 RESUME_GRACE_MS 再请求游戏线程重推当前状态；期间收到 RESUME 则在补发之后再重推，
+ *      保证客户端收到的 seq 单调递增
+ *    - 补发只包含 seq 大于本会话已入队的最大 seq 的帧：观察端确定角色时已拿到最近一帧，之后的 RESUME 不会再补发更早的帧
+ * 6. 心跳：客户端发送 PING 动作时立即回复 frame_type = "PONG" 的控制帧（ack_action_id 回显 action_id）；
+ *    开启 sts.ai.heartbeat.intervalMs 后，空闲会话会收到 frame_type = "PING" 的控制帧，客户端应回复 PONG 动作。
+ *    超过读 / 写超时的会话会被关闭并记录原因。控制帧不占用 seq，也不进入重放缓冲区
+ * 7. 压缩协商：客户端发送 HELLO 动作（ClientHello）声明可解码的编码，桥接层以 frame_type = "HELLO" 的控制帧应答
+ *    SessionInfo（编码、阈值、预置字典）；此后该会话中负载超过阈值的帧以 raw deflate 发送，长度前缀最高位置 1。
+ *    每个会话的原始字节、线上字节与压缩耗时在会话关闭时及每 sts.ai.stats.everyFrames 帧输出一次
+ * 8. 增量帧：ClientHello.delta = true 的会话在 HELLO 之后收到的状态帧，会在开始写出前相对本会话上一次写出的状态
+ *    重新编码为增量帧（见 DeltaEncoder），每 sts.ai.delta.keyframeEvery 帧（默认 100）发送一次完整的关键帧；
+ *    客户端发送 KEYFRAME 动作可要求下一帧为关键帧。基准是“实际写出的上一帧”，队列淘汰不会破坏增量链
+ * 9. 订阅掩码：ClientHello.sections 或 SUBSCRIBE 动作声明本会话需要的 GameState 段（见 SectionMask），
+ *    游戏线程按所有会话的并集抓取，未被任何会话订阅的段不再抓取与构建
+ * 10. 目录模式（-Dsts.ai.catalog=true，见 Catalog）：队首状态帧开始写出前，若它用到本会话尚未收到的目录条目，
+ *    先在它之前插入一个 "CATALOG" 控制帧（按会话压缩，不会被淘汰）；新会话的第一个目录帧包含全部条目，
+ *    客户端发送 CATALOG 动作后下一帧之前重新发送完整目录
+ * 11. 长轮询：GET_STATE(after_version) 请求 state_version 大于 after_version 的状态（见 DecisionPoint.version）。
+ *    最近发布的帧已满足时立即应答，否则挂起到下一个满足条件的帧发布，或在 timeout_ms（0 表示 sts.ai.poll.timeoutMs，
+ *    默认 1000）后以 frame_type = "NOT_MODIFIED" 的控制帧（携带当前 state_version）应答。
+ *    发送过 GET_STATE 的会话转为拉取模式，此后只收到应答 GET_STATE 的状态帧，不再接收推送
+ *
+ * 线程模型：除 publish()、hasSessions()、sectionMask() 外，所有状态只由 Selector 线程访问。
+ */
+final class BridgeServer implements Runnable, FrameTransport {
+    private static final int LENGTH_PREFIX_BYTES = EncodedFrame.LENGTH_PREFIX_BYTES;
+    private static final int INITIAL_READ_BUFFER = 4096;
+    private static final int REPLAY_FRAMES = Math.max(1, StsAIBridge.intProperty("sts.ai.replay.frames", 32));
+    private static final long RESUME_GRACE_MS = 50L;
+    /**
+     * 新会话等待第一条消息以确定角色的最长时间（毫秒），超时仍未发消息的会话按未声明 observer 处理。
+     */
+    private static final long ROLE_GRACE_MS = Math.max(0, StsAIBridge.intProperty("sts.ai.session.roleGraceMs", 200));
+    /**
+     * 心跳与超时（毫秒，0 表示关闭，默认全部关闭以兼容不处理控制帧的旧客户端）：
+     * - HEARTBEAT_MS：会话在该时间内没有任何出站数据时发送一个 PING 控制帧
+     * - READ_TIMEOUT_MS：会话在该时间内没有发来任何数据（动作或 PONG）即判定对端失联
+     * - WRITE_TIMEOUT_MS：待发送数据在该时间内没有任何写出进展即判定对端失联（半开连接、对端停止读取）
+     */
+    private static final long HEARTBEAT_MS = Math.max(0, StsAIBridge.intProperty("sts.ai.heartbeat.intervalMs", 0));
+    private static final long READ_TIMEOUT_MS = Math.max(0, StsAIBridge.intProperty("sts.ai.session.readTimeoutMs", 0));
+    private static final long WRITE_TIMEOUT_MS = Math.max(0, StsAIBridge.intProperty("sts.ai.session.writeTimeoutMs", 0));
+    private static final long HOUSEKEEPING_MS = 100L;
+    private static final boolean COMPRESSION_ENABLED =
+            FrameCompressor.CODEC.equalsIgnoreCase(System.getProperty("sts.ai.compression", FrameCompressor.CODEC));
+    private static final boolean DELTA_ENABLED = !"false".equalsIgnoreCase(System.getProperty("sts.ai.delta.enabled", "true"));
+    private static final int KEYFRAME_INTERVAL = Math.max(1, StsAIBridge.intProperty("sts.ai.delta.keyframeEvery", 100));
+    private static final long POLL_TIMEOUT_MS = Math.max(1, StsAIBridge.intProperty("sts.ai.poll.timeoutMs", 1000));
+    private static final long MAX_POLL_TIMEOUT_MS = 60000L;
+    /**
+     * 长轮询请求的动作类型。
+     */
+    static final String POLL_ACTION = "GET_STATE";
+    private static final int STATS_EVERY_FRAMES = Math.max(1, StsAIBridge.intProperty("sts.ai.stats.everyFrames", 1000));
+    /**
+     * 单个入站帧（GameAction）的最大字节数，超过即视为协议错误并断开会话，避免被损坏的长度前缀诱导分配巨大缓冲区。
+     */
+    static final int MAX_FRAME_BYTES = Math.max(64, StsAIBridge.intProperty("sts.ai.maxFrameBytes", 64 * 1024));
+    private static final int QUEUE_CAPACITY = Math.max(2, StsAIBridge.intProperty("sts.ai.queue.capacity", 64));
+    private static final OverflowPolicy OVERFLOW_POLICY =
+            OverflowPolicy.fromProperty("sts.ai.queue.overflow", OverflowPolicy.DROP_OLDEST);
+    private static final OverflowPolicy OBSERVER_OVERFLOW_POLICY = observerPolicy();
+
+    private final int port;
+    private final boolean observersOnly;
+    /**
+     * 游戏线程 -> Selector 线程的交接队列（单生产者）；ArrayBlockingQueue 的 offer / poll 不分配节点对象。
+     * BLOCK 策略下，只要有会话队列已满，Selector 线程就不再取帧，交接队列写满后游戏线程在 put() 上等待。
+     */
+    private final ArrayBlockingQueue<EncodedFrame> published = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final List<Session> sessions = new ArrayList<>();
+    private volatile Selector selector;
+    private volatile int sessionCount = 0;
+    /**
+     * 所有会话订阅掩码的并集，由 Selector 线程在会话变化时重算，游戏线程读取。
+     */
+    private volatile int sectionMask = SectionMask.ALL;
+    /**
+     * 控制端接入后请求重推当前状态的时间点（毫秒），0 表示没有待处理的请求。
+     */
+    private long resendDeadline = 0L;
+    private Session controller;
+    private EncodedFrame pingFrame;
+    /**
+     * 最近发布的帧（环形，持有引用），replayHead 指向下一个写入位置。
+     */
+    private final EncodedFrame[] replay = new EncodedFrame[REPLAY_FRAMES];
+    private int replayHead = 0;
+    private int replaySize = 0;
+    private int nextSessionId = 1;
+
+    /**
+     * @param observersOnly 为 true 时所有会话都是只读观察端（控制端由其它传输层承担，例如共享内存或管道）
+     */
+    BridgeServer(int port, boolean observersOnly) {
+        this.port = port;
+        this.observersOnly = observersOnly;
+    }
+
+    /**
+     * 由发布线程调用：投递一帧（已含长度前缀），由 Selector 线程发送给所有会话。
+     * 除 BLOCK 策略外不会等待；交接队列满时淘汰其中最旧的可淘汰帧。
+     */
+    @Override
+    public void publish(EncodedFrame frame) {
+        frame.retain();
+        if (OVERFLOW_POLICY == OverflowPolicy.BLOCK) {
+            try {
+                published.put(frame);
+            } catch (InterruptedException e) {
+                frame.release();
+                Thread.currentThread().interrupt();
+                return;
+            }
+        } else {
+            while (!published.offer(frame)) {
+                evictOldestPublished();
+            }
+        }
+        Selector s = selector;
+        if (s != null) {
+            s.wakeup();
+        }
+    }
+
+    /**
+     * 交接队列已满（Selector 线程长时间未调度）时由游戏线程调用。遍历会分配迭代器，但只发生在溢出路径上。
+     */
+    private void evictOldestPublished() {
+        for (EncodedFrame candidate : published) {
+            if (candidate.isEvictable()) {
+                if (published.remove(candidate)) {
+                    candidate.release();
+                }
+                return;
+            }
+        }
+        // 全部是不可淘汰帧时不丢弃，等待 Selector 线程取走
+        Thread.yield();
+    }
+
+    @Override
+    public int sectionMask() {
+        return sectionMask;
+    }
+
+    @Override
+    public boolean hasSessions() {
+        return sessionCount > 0;
+    }
+
+    @Override
+    public void run() {
+        ServerSocketChannel serverChannel = null;
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+            System.out.println("[STS-AI-SOCKET] Listening on port " + port);
+            while (true) {
+                long timeout = HEARTBEAT_MS > 0 || READ_TIMEOUT_MS > 0 || WRITE_TIMEOUT_MS > 0 ? HOUSEKEEPING_MS : 0L;
+                if (resendDeadline != 0L) {
+                    long untilResend = Math.max(1L, resendDeadline - System.currentTimeMillis());
+                    timeout = timeout == 0L ? untilResend : Math.min(timeout, untilResend);
+                }
+                long roleDeadline = assignExpiredRoles(System.currentTimeMillis());
+                if (roleDeadline != 0L) {
+                    long untilRole = Math.max(1L, roleDeadline - System.currentTimeMillis());
+                    timeout = timeout == 0L ? untilRole : Math.min(timeout, untilRole);
+                }
+                long pollDeadline = earliestPollDeadline();
+                if (pollDeadline != 0L) {
+                    long untilPoll = Math.max(1L, pollDeadline - System.currentTimeMillis());
+                    timeout = timeout == 0L ? untilPoll : Math.min(timeout, untilPoll);
+                }
+                if (timeout == 0L) {
+                    selector.select();
+                } else {
+                    selector.select(timeout);
+                }
+                long now = System.currentTimeMillis();
+                if (resendDeadline != 0L && now >= resendDeadline) {
+                    resendDeadline = 0L;
+                    StsAIBridge.requestStateResend();
+                }
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept(serverChannel);
+                        continue;
+                    }
+                    Session session = (Session) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(session);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(session);
+                        }
+                    } catch (IOException e) {
+                        close(session, e.getMessage());
+                    }
+                }
+                // 先处理可写事件再取新帧，BLOCK 策略下刚腾出空间的会话可以立即接收
+                drainPublished();
+                if (pollDeadline != 0L) {
+                    expirePolls(System.currentTimeMillis());
+                }
+                if (timeout != 0L) {
+                    checkLiveness(now);
+                }
+            }
+        } catch (BindException e) {
+            System.out.println("[STS-AI-SOCKET] Port bind failed (possibly in use): " + e.getMessage());
+        } catch (IOException | ClosedSelectorException e) {
+            System.out.println("[STS-AI-SOCKET] Server error: " + e.getMessage());
+        } finally {
+            for (Session session : new ArrayList<>(sessions)) {
+                close(session, "server shutdown");
+            }
+            closeQuietly(serverChannel);
+            Selector s = selector;
+            selector = null;
+            if (s != null) {
+                try {
+                    s.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel serverChannel) throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Session session = new Session(nextSessionId++, channel, OBSERVER_OVERFLOW_POLICY);
+        session.key = channel.register(selector, SelectionKey.OP_READ, session);
+        sessions.add(session);
+        sessionCount = sessions.size();
+        updateSectionMask();
+        System.out.println("[STS-AI-SOCKET] Client connected: " + channel.getRemoteAddress() + " (session " + session.id
+                + (observersOnly ? ", observer)" : ", role pending)"));
+        if (observersOnly) {
+            assignRole(session, true);
+        } else {
+            session.roleDeadline = System.currentTimeMillis() + ROLE_GRACE_MS;
+        }
+    }
+
+    /**
+     * 确定会话角色：未声明 observer 且控制端空缺时成为控制端，否则为观察端。
+     */
+    private void assignRole(Session session, boolean observer) {
+        session.roleDeadline = 0L;
+        if (!observer && controller == null && !observersOnly) {
+            controller = session;
+            session.writeQueue.setPolicy(OVERFLOW_POLICY);
+            FlowControl.reset();
+            // 由游戏线程在下一个稳定帧重新推送当前状态；先留出时间等待可能的 RESUME
+            resendDeadline = System.currentTimeMillis() + RESUME_GRACE_MS;
+            System.out.println("[STS-AI-SOCKET] Session " + session.id + " is the controller.");
+            return;
+        }
+        if (replaySize > 0) {
+            // 观察端立即拿到最近一帧，无需等待下一个决策点
+            enqueue(session, replay[(replayHead + REPLAY_FRAMES - 1) % REPLAY_FRAMES]);
+        }
+        System.out.println("[STS-AI-SOCKET] Session " + session.id + " is an observer.");
+    }
+
+    /**
+     * 为一直没有发消息、等待期已过的会话确定角色，返回仍在等待的会话中最早的到期时间（0 表示没有）。
+     */
+    private long assignExpiredRoles(long now) {
+        long earliest = 0L;
+        for (int i = 0; i < sessions.size(); i++) {
+            Session session = sessions.get(i);
+            if (session.roleDeadline == 0L) {
+                continue;
+            }
+            if (now >= session.roleDeadline) {
+                assignRole(session, false);
+            } else if (earliest == 0L || session.roleDeadline < earliest) {
+                earliest = session.roleDeadline;
+            }
+        }
+        closeFailed();
+        return earliest;
+    }
+
+    private void drainPublished() {
+        EncodedFrame frame;
+        while (!anyBlockingSessionFull() && (frame = published.poll()) != null) {
+            // publish() 时获得的引用转交给重放缓冲区，被挤出的最旧帧释放回池
+            if (replaySize == REPLAY_FRAMES) {
+                replay[replayHead].release();
+            } else {
+                replaySize++;
+            }
+            replay[replayHead] = frame;
+            replayHead = (replayHead + 1) % REPLAY_FRAMES;
+            // 控制端优先写出，观察端的入队（以及可能的压缩）排在其后
+            if (controller != null) {
+                offer(controller, frame);
+            }
+            for (int i = 0; i < sessions.size(); i++) {
+                Session session = sessions.get(i);
+                if (session != controller) {
+                    offer(session, frame);
+                }
+            }
+        }
+        closeFailed();
+    }
+
+    /**
+     * 把新发布的帧交给会话：推送模式直接入队；拉取模式只在它满足挂起的 GET_STATE 时入队并结束这次轮询。
+     */
+    private void offer(Session session, EncodedFrame frame) {
+        if (!session.polling) {
+            enqueue(session, frame);
+        } else if (session.pollDeadline != 0L && frame.stateVersion() > session.pollAfter) {
+            session.pollDeadline = 0L;
+            enqueue(session, frame);
+        }
+    }
+
+    /**
+     * 处理 GET_STATE：最近发布的帧已比 after_version 新时立即应答，否则挂起到 drainPublished() 或 expirePolls()。
+     */
+    private void poll(Session session, GameAction action) {
+        session.polling = true;
+        long after = action.getAfterVersion();
+        EncodedFrame latest = replaySize > 0 ? replay[(replayHead + REPLAY_FRAMES - 1) % REPLAY_FRAMES] : null;
+        if (latest != null && latest.stateVersion() > after) {
+            session.pollDeadline = 0L;
+            enqueue(session, latest);
+            return;
+        }
+        long timeout = action.getTimeoutMs() > 0 ? Math.min(action.getTimeoutMs(), MAX_POLL_TIMEOUT_MS) : POLL_TIMEOUT_MS;
+        session.pollAfter = after;
+        session.pollDeadline = System.currentTimeMillis() + timeout;
+        if (session == controller && DecisionPoint.version() > after) {
+            // 状态已经前进但还没有发布（例如事件模式下尚无流控信用），请游戏线程在下一个稳定帧推送
+            StsAIBridge.requestStateResend();
+        }
+    }
+
+    private long earliestPollDeadline() {
+        long earliest = 0L;
+        for (int i = 0; i < sessions.size(); i++) {
+            long deadline = sessions.get(i).pollDeadline;
+            if (deadline != 0L && (earliest == 0L || deadline < earliest)) {
+                earliest = deadline;
+            }
+        }
+        return earliest;
+    }
+
+    /**
+     * 以 NOT_MODIFIED 控制帧应答已到期的 GET_STATE。
+     */
+    private void expirePolls(long now) {
+        EncodedFrame notModified = null;
+        for (int i = 0; i < sessions.size(); i++) {
+            Session session = sessions.get(i);
+            if (session.pollDeadline != 0L && now >= session.pollDeadline) {
+                session.pollDeadline = 0L;
+                if (notModified == null) {
+                    notModified = encodeControlFrame(GameState.newBuilder()
+                            .setFrameType("NOT_MODIFIED")
+                            .setStateVersion(DecisionPoint.version())
+                            .build());
+                }
+                enqueue(session, notModified);
+            }
+        }
+        if (notModified != null) {
+            notModified.release();
+        }
+        closeFailed();
+    }
+
+    /**
+     * 处理 RESUME：按顺序补发重放缓冲区中 seq 大于 lastSeq 的帧。
+     * 已经入队过的帧（例如观察端确定角色时拿到的最近一帧）不再补发，保证会话收到的 seq 单调递增，增量帧链不会倒退。
+     */
+    private void resume(Session session, long lastSeq) {
+        int replayed = 0;
+        long firstSeq = 0L;
+        long after = Math.max(lastSeq, session.lastQueuedSeq);
+        for (int i = 0; i < replaySize; i++) {
+            EncodedFrame frame = replay[(replayHead + REPLAY_FRAMES - replaySize + i) % REPLAY_FRAMES];
+            if (frame.seq() > after) {
+                if (replayed == 0) {
+                    firstSeq = frame.seq();
+                }
+                enqueue(session, frame);
+                replayed++;
+            }
+        }
+        System.out.println("[STS-AI-SOCKET] Session " + session.id + " resumed after seq " + lastSeq + ", replayed " + replayed
+                + " frames" + (after > lastSeq ? " (frames up to " + after + " already queued)" : "")
+                + (replayed > 0 && firstSeq > after + 1 ? " (frames " + (after + 1) + ".." + (firstSeq - 1) + " no longer buffered)" : ""));
+    }
+
+    /**
+     * 发送心跳并检查读 / 写超时，超时的会话被关闭。
+     */
+    private void checkLiveness(long now) {
+        for (int i = 0; i < sessions.size(); i++) {
+            Session session = sessions.get(i);
+            if (READ_TIMEOUT_MS > 0 && now - session.lastReadAt > READ_TIMEOUT_MS) {
+                session.failure = "read timeout (no data from peer for " + (now - session.lastReadAt) + " ms)";
+            } else if (WRITE_TIMEOUT_MS > 0 && !session.writeQueue.isEmpty() && now - session.lastWriteProgressAt > WRITE_TIMEOUT_MS) {
+                session.failure = "write timeout (peer stopped reading for " + (now - session.lastWriteProgressAt) + " ms)";
+            } else if (HEARTBEAT_MS > 0 && session.writeQueue.isEmpty() && now - session.lastWriteProgressAt >= HEARTBEAT_MS) {
+                if (pingFrame == null) {
+                    pingFrame = encodeControlFrame("PING", 0L);
+                }
+                enqueue(session, pingFrame);
+            }
+        }
+        closeFailed();
+    }
+
+    /**
+     * 编码一个控制帧（不含状态，seq = 0），返回的帧带有一个引用。
+     */
+    private static EncodedFrame encodeControlFrame(String frameType, long ackActionId) {
+        return encodeControlFrame(GameState.newBuilder()
+                .setFrameType(frameType)
+                .setAckActionId(ackActionId)
+                .build());
+    }
+
+    private static EncodedFrame encodeControlFrame(GameState state) {
+        try {
+            return FrameEncoder.encode(state);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode " + state.getFrameType() + " frame", e);
+        }
+    }
+
+    private static OverflowPolicy observerPolicy() {
+        OverflowPolicy policy = OverflowPolicy.fromProperty("sts.ai.observer.overflow", OverflowPolicy.LATEST_ONLY);
+        if (policy == OverflowPolicy.BLOCK) {
+            System.err.println("[STS-AI] sts.ai.observer.overflow=block is not allowed (observers must not stall the game), using latest_only");
+            return OverflowPolicy.LATEST_ONLY;
+        }
+        return policy;
+    }
+
+    /**
+     * 处理 HELLO：按需把会话降为观察端，选择本会话的压缩方式与是否发送增量帧，并应答 SessionInfo。
+     * 应答帧本身不压缩，之后入队的帧才按新设置发送。
+     */
+    private void hello(Session session, ClientHello hello) {
+        if (hello.getObserver() && session == controller) {
+            controller = null;
+            resendDeadline = 0L;
+            session.writeQueue.setPolicy(OBSERVER_OVERFLOW_POLICY);
+            System.out.println("[STS-AI-SOCKET] Session " + session.id + " joined as observer, controller slot is free.");
+        }
+        SessionInfo.Builder info = SessionInfo.newBuilder();
+        FrameCompressor compressor = null;
+        if (COMPRESSION_ENABLED && hello.getCompressionList().contains(FrameCompressor.CODEC)) {
+            int threshold = hello.getCompressionThreshold() > 0 ? hello.getCompressionThreshold() : FrameCompressor.DEFAULT_THRESHOLD;
+            compressor = new FrameCompressor(threshold);
+            info.setCompression(FrameCompressor.CODEC)
+                    .setCompressionThreshold(threshold)
+                    .setCompressionDictionary(ByteString.copyFrom(FrameCompressor.DICTIONARY));
+        }
+        boolean delta = DELTA_ENABLED && hello.getDelta();
+        if (delta) {
+            info.setDelta(true).setKeyframeInterval(KEYFRAME_INTERVAL);
+        }
+        session.sections = SectionMask.normalize(hello.getSections());
+        updateSectionMask();
+        info.setSections(session.sections);
+        info.setCatalog(Catalog.ENABLED);
+        EncodedFrame reply = encodeControlFrame(GameState.newBuilder()
+                .setFrameType("HELLO")
+                .setSessionInfo(info)
+                .build());
+        enqueue(session, reply);
+        reply.release();
+        if (session.compressor != null) {
+            session.compressor.close();
+        }
+        session.compressor = compressor;
+        // 已入队的帧仍按完整帧发送，只有之后入队的状态帧才会被改写为增量帧
+        session.deltaFromSeq = delta ? session.lastQueuedSeq + 1 : Long.MAX_VALUE;
+        session.lastState = null;
+        System.out.println("[STS-AI-SOCKET] Session " + session.id + " negotiated compression: "
+                + (compressor != null ? FrameCompressor.CODEC + " (threshold " + compressor.threshold() + " bytes)" : "none")
+                + ", delta frames: " + (delta ? "on (keyframe every " + KEYFRAME_INTERVAL + ")" : "off"));
+    }
+
+    /**
+     * 重算订阅并集。没有会话时按全部段处理（此时游戏线程不采样）。
+     */
+    private void updateSectionMask() {
+        int mask = sessions.isEmpty() ? SectionMask.ALL : 0;
+        for (int i = 0; i < sessions.size(); i++) {
+            mask |= sessions.get(i).sections;
+        }
+        sectionMask = mask;
+    }
+
+    private static String stats(Session session) {
+        StringBuilder sb = new StringBuilder()
+                .append(session.framesSent).append(" frames, raw ").append(session.rawBytes)
+                .append(" B, wire ").append(session.wireBytes).append(" B");
+        if (session.rawBytes > 0) {
+            sb.append(" (").append(session.wireBytes * 100 / session.rawBytes).append("%)");
+        }
+        if (session.compressor != null) {
+            sb.append(", deflated ").append(session.compressor.framesCompressed()).append(" frames in ")
+                    .append(session.compressor.compressNanos() / 1000000L).append(" ms");
+        }
+        if (session.deltaFrames > 0) {
+            sb.append(", ").append(session.deltaFrames).append(" delta frames");
+        }
+        return sb.toString();
+    }
+
+    private boolean anyBlockingSessionFull() {
+        for (int i = 0; i < sessions.size(); i++) {
+            FrameQueue queue = sessions.get(i).writeQueue;
+            if (queue.policy() == OverflowPolicy.BLOCK && queue.isFull()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 追加一帧并立即尝试写出。写失败的会话只做标记，由 closeFailed() 统一关闭，避免遍历 sessions 时修改列表。
+     */
+    private void enqueue(Session session, EncodedFrame frame) {
+        session.rawBytes += frame.length();
+        session.lastQueuedSeq = Math.max(session.lastQueuedSeq, frame.seq());
+        // 增量会话的状态帧在开始写出时才编码与压缩，见 prepareHead()
+        boolean deferred = frame.seq() >= session.deltaFromSeq;
+        EncodedFrame compressed = session.compressor != null && !deferred ? session.compressor.compress(frame) : null;
+        if (compressed != null) {
+            // 压缩帧由本会话独占，借出时的引用直接交给队列
+            frame = compressed;
+        } else {
+            frame.retain();
+        }
+        if (session.writeQueue.isEmpty()) {
+            session.lastWriteProgressAt = System.currentTimeMillis();
+        }
+        if (session.writeQueue.add(frame) > 0 && !session.warnedOverflow) {
+            session.warnedOverflow = true;
+            System.out.println("[STS-AI-SOCKET] Session " + session.id + " is falling behind, dropping unsent frames ("
+                    + session.writeQueue.policy().name().toLowerCase(java.util.Locale.ROOT) + ").");
+        }
+        try {
+            flush(session);
+        } catch (IOException e) {
+            session.failure = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+    }
+
+    private void closeFailed() {
+        for (int i = sessions.size() - 1; i >= 0; i--) {
+            Session session = sessions.get(i);
+            if (session.failure != null) {
+                close(session, session.failure);
+            }
+        }
+    }
+
+    /**
+     * 尽可能多地写出会话的待发送帧；写不完时注册 OP_WRITE，等待 Socket 可写后继续。
+     * 帧缓冲区被多个会话共享，写出前按本会话的偏移重新设置 position / limit（只有 Selector 线程会这样做）。
+     */
+    private void flush(Session session) throws IOException {
+        EncodedFrame head;
+        while ((head = session.writeQueue.peek()) != null) {
+            if (!session.writeQueue.headPrepared() && head.catalogSize() > session.catalogSent) {
+                sendCatalog(session);
+                head = session.writeQueue.peek();
+            }
+            if (!session.writeQueue.headPrepared() && head.seq() >= session.deltaFromSeq) {
+                prepareHead(session, head);
+                head = session.writeQueue.peek();
+            }
+            session.writeQueue.markHeadPrepared();
+            ByteBuffer buf = head.buffer;
+            buf.limit(head.length());
+            buf.position(session.headOffset);
+            int written = session.channel.write(buf);
+            if (written > 0) {
+                session.lastWriteProgressAt = System.currentTimeMillis();
+                session.wireBytes += written;
+            }
+            session.headOffset = buf.position();
+            if (session.headOffset > 0) {
+                session.writeQueue.markHeadStarted();
+            }
+            if (session.headOffset < head.length()) {
+                break;
+            }
+            session.writeQueue.poll();
+            session.headOffset = 0;
+            head.release();
+            if (++session.framesSent % STATS_EVERY_FRAMES == 0) {
+                System.out.println("[STS-AI-SOCKET] Session " + session.id + " stats: " + stats(session));
+            }
+        }
+        if (session.key.isValid()) {
+            int ops = session.writeQueue.isEmpty() ? SelectionKey.OP_READ : (SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            if (session.key.interestOps() != ops) {
+                session.key.interestOps(ops);
+            }
+        }
+    }
+
+    /**
+     * 在队首插入本会话缺少的目录条目（截至当前目录大小），之后的帧只要不引用更新的条目就不再触发。
+     */
+    private void sendCatalog(Session session) {
+        int size = Catalog.size();
+        EncodedFrame catalog = FrameEncoder.encodeCatalog(session.catalogSent, size);
+        EncodedFrame compressed = session.compressor != null ? session.compressor.compress(catalog) : null;
+        if (compressed != null) {
+            catalog.release();
+            catalog = compressed;
+        }
+        session.rawBytes += catalog.length();
+        session.writeQueue.addFirst(catalog);
+        session.catalogSent = size;
+    }
+
+    /**
+     * 增量会话：队首状态帧开始写出前，相对本会话上一次写出的状态编码为增量帧（或按间隔发送关键帧），再按需压缩。
+     * 替换后的队首帧被标记为已开始写出，不会再被淘汰，因此 lastState 总是客户端实际收到的上一帧。
+     */
+    private void prepareHead(Session session, EncodedFrame head) throws IOException {
+        GameState state = head.state();
+        if (state == null) {
+            state = FrameEncoder.decode(head);
+            head.setState(state);
+        }
+        EncodedFrame out;
+        if (session.lastState != null && session.sinceKeyframe < KEYFRAME_INTERVAL) {
+            out = FrameEncoder.encode(DeltaEncoder.diff(session.lastState, state));
+            session.sinceKeyframe++;
+            session.deltaFrames++;
+        } else {
+            out = head;
+            out.retain();
+            session.sinceKeyframe = 0;
+        }
+        session.lastState = state;
+        if (session.compressor != null) {
+            EncodedFrame compressed = session.compressor.compress(out);
+            if (compressed != null) {
+                out.release();
+                out = compressed;
+            }
+        }
+        session.writeQueue.replaceHead(out).release();
+    }
+
+    /**
+     * 读取并拆分“4 字节长度前缀 + GameAction”帧，完整的帧解析后投递到动作队列。
+     * 会话的读缓冲区长期复用，只在遇到更大的帧时按 2 的幂扩容（上限 MAX_FRAME_BYTES），
+     * 解析直接基于缓冲区底层数组，不做拷贝，也不打印逐条日志。
+     */
+    private void read(Session session) throws IOException {
+        ByteBuffer buf = session.readBuffer;
+        int n = session.channel.read(buf);
+        if (n < 0) {
+            close(session, "peer closed");
+            return;
+        }
+        session.lastReadAt = System.currentTimeMillis();
+        buf.flip();
+        while (buf.remaining() >= LENGTH_PREFIX_BYTES) {
+            int length = buf.getInt(buf.position());
+            if (length < 0 || length > MAX_FRAME_BYTES) {
+                close(session, "invalid frame length " + length + " (max " + MAX_FRAME_BYTES
+                        + ", see -Dsts.ai.maxFrameBytes)");
+                return;
+            }
+            if (length == 0) {
+                buf.position(buf.position() + LENGTH_PREFIX_BYTES);
+                continue;
+            }
+            if (buf.remaining() < LENGTH_PREFIX_BYTES + length) {
+                if (LENGTH_PREFIX_BYTES + length > buf.capacity()) {
+                    int capacity = buf.capacity();
+                    while (capacity < LENGTH_PREFIX_BYTES + length) {
+                        capacity <<= 1;
+                    }
+                    ByteBuffer bigger = ByteBuffer.allocate(capacity);
+                    bigger.put(buf);
+                    session.readBuffer = bigger;
+                    return;
+                }
+                break;
+            }
+            int offset = buf.arrayOffset() + buf.position() + LENGTH_PREFIX_BYTES;
+            buf.position(buf.position() + LENGTH_PREFIX_BYTES + length);
+            try {
+                GameAction action = Catalog.resolve(GameAction.parseFrom(CodedInputStream.newInstance(buf.array(), offset, length)));
+                if (session.roleDeadline != 0L) {
+                    assignRole(session, "HELLO".equals(action.getActionType()) && action.getHello().getObserver());
+                }
+                if ("PING".equals(action.getActionType())) {
+                    EncodedFrame pong = encodeControlFrame("PONG", action.getActionId());
+                    enqueue(session, pong);
+                    pong.release();
+                } else if ("PONG".equals(action.getActionType())) {
+                    // 仅用于刷新 lastReadAt
+                } else if ("HELLO".equals(action.getActionType())) {
+                    hello(session, action.getHello());
+                } else if (SectionMask.SUBSCRIBE_ACTION.equals(action.getActionType())) {
+                    session.sections = SectionMask.normalize(action.getSections());
+                    updateSectionMask();
+                } else if (Catalog.REQUEST_ACTION.equals(action.getActionType())) {
+                    session.catalogSent = 0;
+                } else if (POLL_ACTION.equals(action.getActionType())) {
+                    poll(session, action);
+                } else if ("KEYFRAME".equals(action.getActionType())) {
+                    session.lastState = null;
+                    if (session == controller) {
+                        StsAIBridge.requestStateResend();
+                    }
+                } else if ("RESUME".equals(action.getActionType())) {
+                    resume(session, action.getLastSeq());
+                    if (session == controller) {
+                        // 补发帧已入队，再推送一帧当前状态，保证断线期间停止缓冲时控制端也能拿到最新状态
+                        resendDeadline = 0L;
+                        StsAIBridge.requestStateResend();
+                    }
+                } else if (session == controller) {
+                    StsAIBridge.enqueueAction(action);
+                } else if (!session.warnedReadOnly) {
+                    session.warnedReadOnly = true;
+                    System.out.println("[STS-AI-ACTION] Session " + session.id + " is a read-only observer, dropping its actions.");
+                }
+            } catch (Exception e) {
+                System.out.println("[STS-AI-ACTION] Failed to parse GameAction: " + e.getMessage());
+            }
+        }
+        buf.compact();
+    }
+
+    private void close(Session session, String reason) {
+        if (!sessions.remove(session)) {
+            return;
+        }
+        sessionCount = sessions.size();
+        updateSectionMask();
+        if (session.key != null) {
+            session.key.cancel();
+        }
+        closeQuietly(session.channel);
+        session.writeQueue.clear();
+        if (session.compressor != null) {
+            session.compressor.close();
+        }
+        if (session == controller) {
+            controller = null;
+            resendDeadline = 0L;
+        }
+        System.out.println("[STS-AI-SOCKET] Session " + session.id + " closed: " + reason
+                + (session.writeQueue.dropped() > 0 ? " (" + session.writeQueue.dropped() + " frames dropped)" : "")
+                + "; " + stats(session));
+    }
+
+    private static void closeQuietly(java.nio.channels.Channel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * 单个客户端会话的状态，仅由 Selector 线程访问。
+     */
+    private static final class Session {
+        private final int id;
+        private final SocketChannel channel;
+        private final FrameQueue writeQueue;
+        /**
+         * 队首帧已写出的字节数。
+         */
+        private int headOffset = 0;
+        private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER);
+        private SelectionKey key;
+        private boolean warnedReadOnly = false;
+        private boolean warnedOverflow = false;
+        private long lastReadAt = System.currentTimeMillis();
+        private FrameCompressor compressor;
+        /**
+         * 增量帧状态：seq 不小于 deltaFromSeq 的状态帧在写出前改写为增量帧（未协商时为 Long.MAX_VALUE）；
+         * lastState 为上一次写出的完整状态，为 null 时下一帧发送关键帧。
+         */
+        private long deltaFromSeq = Long.MAX_VALUE;
+        private long lastQueuedSeq = 0L;
+        private GameState lastState;
+        private int sinceKeyframe = 0;
+        /**
+         * 本会话订阅的状态段（见 SectionMask），默认全部。
+         */
+        private int sections = SectionMask.ALL;
+        /**
+         * 已交给本会话写队列的目录条目数（见 Catalog），CATALOG 动作把它清零。
+         */
+        private int catalogSent = 0;
+        /**
+         * 角色尚未确定时为等待期的截止时间（毫秒），确定后为 0。
+         */
+        private long roleDeadline = 0L;
+        /**
+         * 长轮询：polling 在第一次 GET_STATE 后置位；pollDeadline 非 0 表示有挂起的请求，等待 state_version 大于 pollAfter 的帧。
+         */
+        private boolean polling = false;
+        private long pollAfter = 0L;
+        private long pollDeadline = 0L;
+        private long deltaFrames = 0L;
+        private long rawBytes = 0L;
+        private long wireBytes = 0L;
+        private long framesSent = 0L;
+        /**
+         * 最近一次写出进展（写出了字节，或队列由空变为非空）的时间。
+         */
+        private long lastWriteProgressAt = System.currentTimeMillis();
+        private String failure;
+
+        private Session(int id, SocketChannel channel, OverflowPolicy policy) {
+            this.id = id;
+            this.channel = channel;
+            this.writeQueue = new FrameQueue(QUEUE_CAPACITY, policy);
+        }
+    }
+}
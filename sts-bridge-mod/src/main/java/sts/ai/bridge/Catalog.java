@@ -0,0 +1,180 @@
+package sts.ai.bridge;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import sts.ai.state.v1.CatalogEntry;
+import sts.ai.state.v1.CatalogUpdate;
+import sts.ai.state.v1.GameAction;
+import sts.ai.state.v1.GameState;
+
+/**
+ * 目录模式（-Dsts.ai.catalog=true）：卡牌、遗物、能力、药水、充能球、怪物的 (id, name)，以及意图、房间类型、界面类型、
+ * 卡牌类型 / 目标、动作类型等字符串，在帧中只以整数 ref 出现，ref 到字符串的映射通过 "CATALOG" 控制帧下发，协议见 CatalogEntry。
+ *
+ * 目录在进程内只增不减，ref 从 1 开始按首次出现的顺序分配（0 表示没有 ref）。动作类型与界面类型在类加载时预先登记，
+ * 其余条目在第一次出现时登记，因此 Mod 新增的内容不需要预先枚举。
+ * 每个传输层记录已下发给消费者的条目数，帧的 catalogSize（编码时的目录大小）超过它时，先补发缺少的条目再写出该帧。
+ *
+ * 线程模型：登记（ref）会在游戏线程（SectionCache 构建牌组 / 遗物 / 地图消息）和发布线程（StateSnapshot.resolveRefs）上发生，
+ * 由类锁串行化；读取（size / update / id）不加锁，条目先写入数组再发布 volatile 的 size。
+ */
+final class Catalog {
+    static final boolean ENABLED = Boolean.getBoolean("sts.ai.catalog");
+    /**
+     * 客户端请求重新下发完整目录的动作类型。
+     */
+    static final String REQUEST_ACTION = "CATALOG";
+
+    static final Kind CARD = new Kind("card");
+    static final Kind CARD_TYPE = new Kind("card_type");
+    static final Kind CARD_TARGET = new Kind("card_target");
+    static final Kind RELIC = new Kind("relic");
+    static final Kind POWER = new Kind("power");
+    static final Kind POTION = new Kind("potion");
+    static final Kind ORB = new Kind("orb");
+    static final Kind MONSTER = new Kind("monster");
+    static final Kind INTENT = new Kind("intent");
+    static final Kind ROOM_TYPE = new Kind("room_type");
+    static final Kind SCREEN_TYPE = new Kind("screen_type");
+    static final Kind ACTION = new Kind("action");
+
+    private static final String[] ACTION_TYPES = {
+            "PLAY_CARD", "END_TURN", "CHOOSE_REWARD", "SKIP_REWARD", "CHOOSE_MAP_NODE", "CHOOSE_REST_OPTION", "LEAVE_REST",
+            "CHOOSE_SHOP_CARD", "CHOOSE_SHOP_POTION", "CHOOSE_SHOP_RELIC", "PURGE_CARD", "LEAVE_SHOP", "NOOP", "RESET",
+            "PING", "PONG", "HELLO", "RESUME", "KEYFRAME", FlowControl.CREDIT_ACTION, SectionMask.SUBSCRIBE_ACTION, REQUEST_ACTION,
+            BridgeServer.POLL_ACTION
+    };
+    private static final String[] SCREEN_TYPES = {
+            "NONE", "COMBAT", "MAP", "REWARD", "SHOP", "REST", "EVENT", "VICTORY", "GAME_OVER"
+    };
+
+    private static Kind[] kinds = new Kind[256];
+    private static String[] ids = new String[256];
+    private static String[] names = new String[256];
+    private static volatile int size = 1;
+    /**
+     * 客户端经动作队列（共享内存 / 管道）请求重发目录的次数，对应传输层比较后把已下发计数清零。
+     */
+    private static volatile int localResends = 0;
+
+    static {
+        for (String type : ACTION_TYPES) {
+            ref(ACTION, type, "");
+        }
+        for (String type : SCREEN_TYPES) {
+            ref(SCREEN_TYPE, type, "");
+        }
+    }
+
+    private Catalog() {
+    }
+
+    /**
+     * 返回 (kind, id, name) 的 ref，第一次出现时登记。null 视为空字符串。
+     */
+    static synchronized int ref(Kind kind, String id, String name) {
+        if (id == null) {
+            id = "";
+        }
+        if (name == null) {
+            name = "";
+        }
+        Entry head = kind.entries.get(id);
+        for (Entry e = head; e != null; e = e.next) {
+            if (e.name == name || e.name.equals(name)) {
+                return e.ref;
+            }
+        }
+        int ref = size;
+        if (ref == ids.length) {
+            kinds = Arrays.copyOf(kinds, ref * 2);
+            ids = Arrays.copyOf(ids, ref * 2);
+            names = Arrays.copyOf(names, ref * 2);
+        }
+        kinds[ref] = kind;
+        ids[ref] = id;
+        names[ref] = name;
+        Entry entry = new Entry(name, ref, head);
+        kind.entries.put(id, entry);
+        size = ref + 1;
+        return ref;
+    }
+
+    /**
+     * 当前目录大小（最大 ref + 1）。
+     */
+    static int size() {
+        return size;
+    }
+
+    /**
+     * 取 ref 对应的 id，ref 无效时返回 null。
+     */
+    static String id(int ref) {
+        return ref > 0 && ref < size ? ids[ref] : null;
+    }
+
+    /**
+     * 构建 [from, to) 范围内条目的 "CATALOG" 控制帧内容。from 为 0 时从第一个条目开始。
+     */
+    static GameState update(int from, int to) {
+        CatalogUpdate.Builder update = CatalogUpdate.newBuilder();
+        String[] ids = Catalog.ids;
+        String[] names = Catalog.names;
+        Kind[] kinds = Catalog.kinds;
+        for (int ref = Math.max(1, from); ref < to; ref++) {
+            update.addEntries(CatalogEntry.newBuilder()
+                    .setRef(ref)
+                    .setKind(kinds[ref].name)
+                    .setId(ids[ref])
+                    .setName(names[ref]));
+        }
+        return GameState.newBuilder().setFrameType(REQUEST_ACTION).setCatalog(update).build();
+    }
+
+    /**
+     * 客户端用 action_type_ref 代替 action_type 时还原出字符串，其余情况原样返回。
+     */
+    static GameAction resolve(GameAction action) {
+        if (action.getActionTypeRef() == 0 || !action.getActionType().isEmpty()) {
+            return action;
+        }
+        String type = id(action.getActionTypeRef());
+        return type != null ? action.toBuilder().setActionType(type).build() : action;
+    }
+
+    /**
+     * 记录一次来自共享内存 / 管道的重发请求（经 StsAIBridge.enqueueAction）。
+     */
+    static void requestLocalResend() {
+        localResends++;
+    }
+
+    static int localResends() {
+        return localResends;
+    }
+
+    static final class Kind {
+        final String name;
+        /**
+         * id -> 条目链表（同一 id 可能有多个 name，例如升级后的卡牌），只在类锁内访问。
+         */
+        private final HashMap<String, Entry> entries = new HashMap<>();
+
+        private Kind(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Entry {
+        final String name;
+        final int ref;
+        final Entry next;
+
+        Entry(String name, int ref, Entry next) {
+            this.name = name;
+            this.ref = ref;
+            this.next = next;
+        }
+    }
+}
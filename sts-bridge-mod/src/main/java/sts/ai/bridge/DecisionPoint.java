@@ -0,0 +1,196 @@
+package sts.ai.bridge;
+
+import com.megacrit.cardcrawl.actions.GameActionManager;
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import com.megacrit.cardcrawl.characters.AbstractPlayer;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+import com.megacrit.cardcrawl.monsters.AbstractMonster;
+import com.megacrit.cardcrawl.rewards.RewardItem;
+import com.megacrit.cardcrawl.rooms.AbstractRoom;
+
+/**
+ * 决策点识别。
+ * 负责：
+ * 1. 在每个稳定帧上计算一个廉价的 64 位签名，用于判断“是否进入了新的决策点”
+ *    （玩家回合开始、切换到新界面、奖励列表变化、出牌后手牌 / 能量变化等）
+ * 2. 要求同一签名连续稳定若干帧后才允许推送，避免踩在动画 / 结算的中间态上
+ * 3. 记录最近一次已推送的签名，保证同一个决策点只推送一次
+ * 4. 维护决策状态版本号（GameState.state_version）：每当一个与上次不同的签名稳定下来就加 1，
+ *    与推送模式无关，供 GET_STATE 长轮询判断状态是否前进
+ *
+ * 签名只读取游戏对象上的基础字段，不构造任何 Protobuf 对象，可以放心地每帧调用。
+ * 所有方法只允许在游戏主线程（AbstractDungeon.update）中调用。
+ */
+final class DecisionPoint {
+    private static final long NONE = 0L;
+
+    /**
+     * 签名需要连续保持不变的稳定帧数，默认 2 帧（约 33ms）。
+     * 取 1 表示“第一次稳定即推送”。
+     */
+    private static final int SETTLE_FRAMES = Math.max(1, StsAIBridge.intProperty("sts.ai.emit.settleFrames", 2));
+
+    private static long candidate = NONE;
+    private static int candidateFrames = 0;
+    private static long lastEmitted = NONE;
+    /**
+     * 上一次计入版本号的签名。回到同一个决策点（例如中间态之后）不会增加版本号。
+     */
+    private static long lastVersioned = NONE;
+    /**
+     * 只由游戏线程写入；volatile 供 Selector 线程处理 GET_STATE 时读取。
+     */
+    private static volatile long version = 0L;
+
+    private DecisionPoint() {
+    }
+
+    /**
+     * 在每个稳定帧上调用一次：计算当前签名并累计其连续稳定的帧数，签名刚稳定且不同于上次计入的签名时版本号加 1。
+     * 不做任何推送判断。
+     */
+    static void observe() {
+        long signature = compute();
+        if (signature != candidate) {
+            candidate = signature;
+            candidateFrames = 0;
+        }
+        candidateFrames++;
+        if (candidateFrames == SETTLE_FRAMES && candidate != lastVersioned) {
+            lastVersioned = candidate;
+            version++;
+        }
+    }
+
+    /**
+     * 当前决策状态版本号，任意线程可读。
+     */
+    static long version() {
+        return version;
+    }
+
+    /**
+     * 当前候选签名是否已经连续稳定了 SETTLE_FRAMES 帧。
+     */
+    static boolean isSettled() {
+        return candidate != NONE && candidateFrames >= SETTLE_FRAMES;
+    }
+
+    /**
+     * 最近一次 observe() 得到的签名，非稳定帧之后为 0。
+     */
+    static long current() {
+        return candidate;
+    }
+
+    /**
+     * 若当前候选签名已稳定且尚未推送过，则记为“已推送”并返回 true。
+     */
+    static boolean claimIfNew() {
+        if (!isSettled() || candidate == lastEmitted) {
+            return false;
+        }
+        lastEmitted = candidate;
+        return true;
+    }
+
+    /**
+     * 无条件地把当前候选签名记为“已推送”，用于 step 模式下的应答帧。
+     */
+    static void markEmitted() {
+        lastEmitted = candidate;
+    }
+
+    /**
+     * 在非稳定帧上调用：清空候选签名，重新开始计数。
+     * 注意不清除 lastEmitted，游戏从中间态回到同一个决策点时不会重复推送。
+     */
+    static void onUnstableFrame() {
+        candidate = NONE;
+        candidateFrames = 0;
+    }
+
+    /**
+     * 忘记最近一次推送的签名，使当前决策点在下一个稳定帧被再次推送。
+     * 用于新客户端接入等需要补发当前状态的场景。
+     */
+    static void invalidate() {
+        lastEmitted = NONE;
+    }
+
+    /**
+     * 计算当前决策点签名。
+     * 只覆盖“决策相关”的字段：界面、房间阶段、回合数、玩家数值、手牌身份、怪物数值、奖励领取情况等。
+     */
+    static long compute() {
+        long h = 0x9E3779B97F4A7C15L;
+        h = mix(h, AbstractDungeon.screen != null ? AbstractDungeon.screen.ordinal() + 1 : 0);
+        h = mix(h, AbstractDungeon.isScreenUp ? 1 : 0);
+        h = mix(h, AbstractDungeon.floorNum);
+
+        AbstractRoom room = AbstractDungeon.getCurrRoom();
+        if (room != null) {
+            h = mix(h, System.identityHashCode(room));
+            h = mix(h, room.phase != null ? room.phase.ordinal() + 1 : 0);
+        }
+
+        GameActionManager manager = AbstractDungeon.actionManager;
+        if (manager != null) {
+            h = mix(h, manager.turn);
+            h = mix(h, manager.turnHasEnded ? 1 : 0);
+        }
+
+        AbstractPlayer player = AbstractDungeon.player;
+        if (player != null) {
+            h = mix(h, player.currentHealth);
+            h = mix(h, player.maxHealth);
+            h = mix(h, player.currentBlock);
+            h = mix(h, player.gold);
+            h = mix(h, player.energy != null ? player.energy.energy : 0);
+            h = mix(h, player.powers != null ? player.powers.size() : 0);
+            h = mix(h, player.potions != null ? player.potions.size() : 0);
+            h = mix(h, player.relics != null ? player.relics.size() : 0);
+            h = mix(h, player.masterDeck != null ? player.masterDeck.size() : 0);
+            if (player.hand != null && player.hand.group != null) {
+                h = mix(h, player.hand.group.size());
+                for (AbstractCard c : player.hand.group) {
+                    h = mix(h, System.identityHashCode(c));
+                    if (c != null) {
+                        h = mix(h, c.costForTurn);
+                    }
+                }
+            }
+        }
+
+        if (AbstractDungeon.getMonsters() != null && AbstractDungeon.getMonsters().monsters != null) {
+            for (AbstractMonster m : AbstractDungeon.getMonsters().monsters) {
+                if (m == null) {
+                    continue;
+                }
+                h = mix(h, m.currentHealth);
+                h = mix(h, m.currentBlock);
+                h = mix(h, m.intent != null ? m.intent.ordinal() + 1 : 0);
+                h = mix(h, (m.isDead || m.isEscaping) ? 1 : 0);
+                h = mix(h, m.powers != null ? m.powers.size() : 0);
+            }
+        }
+
+        if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.COMBAT_REWARD
+                && AbstractDungeon.combatRewardScreen != null
+                && AbstractDungeon.combatRewardScreen.rewards != null) {
+            h = mix(h, AbstractDungeon.combatRewardScreen.rewards.size());
+            for (RewardItem item : AbstractDungeon.combatRewardScreen.rewards) {
+                h = mix(h, System.identityHashCode(item));
+                h = mix(h, item.isDone ? 1 : 0);
+            }
+        }
+
+        return h == NONE ? 1L : h;
+    }
+
+    private static long mix(long h, int v) {
+        h ^= v;
+        h *= 0x100000001B3L;
+        return h ^ (h >>> 29);
+    }
+}
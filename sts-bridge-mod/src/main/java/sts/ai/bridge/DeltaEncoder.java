@@ -0,0 +1,161 @@
+package sts.ai.bridge;
+
+import java.util.ArrayList;
+import java.util.List;
+import sts.ai.state.v1.CardState;
+import sts.ai.state.v1.DeltaInfo;
+import sts.ai.state.v1.GameState;
+import sts.ai.state.v1.ListPatch;
+import sts.ai.state.v1.MonsterState;
+import sts.ai.state.v1.PotionState;
+
+/**
+ * 生成增量帧：只携带相对上一帧发生变化的段（GameState 字段 1-12），协议见 sts_state.proto 中的 DeltaInfo。
+ * 规则：
+ * 1. 消息段（player / map / shop 等）整段比较，变化时整段发送，变为缺省时只置位不携带
+ * 2. 列表段（monsters / hand / potions / master_deck）逐项比较，只携带变化的项并用 ListPatch 标出位置；
+ *    全部项都变化时直接整段替换，不带 ListPatch
+ * 3. 帧级字段（seq、ack_action_id、action_rejected、batch_result、screen_type_ref、state_hash、state_version）始终完整携带
+ *
+ * 比较基于 Protobuf 的 equals，SectionCache 复用的子消息是同一对象，可以直接短路。
+ * 只在 Selector 线程中调用，不影响游戏线程。
+ */
+final class DeltaEncoder {
+    private DeltaEncoder() {
+    }
+
+    static GameState diff(GameState base, GameState next) {
+        GameState.Builder out = GameState.newBuilder()
+                .setSeq(next.getSeq())
+                .setAckActionId(next.getAckActionId())
+                .setActionRejected(next.getActionRejected())
+                .setScreenTypeRef(next.getScreenTypeRef())
+                .setStateHash(next.getStateHash())
+                .setStateVersion(next.getStateVersion());
+        if (next.hasBatchResult()) {
+            out.setBatchResult(next.getBatchResult());
+        }
+        DeltaInfo.Builder info = DeltaInfo.newBuilder().setBaseSeq(base.getSeq());
+        int changed = 0;
+
+        if (changed(base.hasPlayer(), base.getPlayer(), next.hasPlayer(), next.getPlayer())) {
+            changed |= bit(GameState.PLAYER_FIELD_NUMBER);
+            if (next.hasPlayer()) {
+                out.setPlayer(next.getPlayer());
+            }
+        }
+        if (changed(base.hasMap(), base.getMap(), next.hasMap(), next.getMap())) {
+            changed |= bit(GameState.MAP_FIELD_NUMBER);
+            if (next.hasMap()) {
+                out.setMap(next.getMap());
+            }
+        }
+        if (changed(base.hasShop(), base.getShop(), next.hasShop(), next.getShop())) {
+            changed |= bit(GameState.SHOP_FIELD_NUMBER);
+            if (next.hasShop()) {
+                out.setShop(next.getShop());
+            }
+        }
+        if (changed(base.hasRestSite(), base.getRestSite(), next.hasRestSite(), next.getRestSite())) {
+            changed |= bit(GameState.REST_SITE_FIELD_NUMBER);
+            if (next.hasRestSite()) {
+                out.setRestSite(next.getRestSite());
+            }
+        }
+        if (changed(base.hasEvent(), base.getEvent(), next.hasEvent(), next.getEvent())) {
+            changed |= bit(GameState.EVENT_FIELD_NUMBER);
+            if (next.hasEvent()) {
+                out.setEvent(next.getEvent());
+            }
+        }
+        if (changed(base.hasReward(), base.getReward(), next.hasReward(), next.getReward())) {
+            changed |= bit(GameState.REWARD_FIELD_NUMBER);
+            if (next.hasReward()) {
+                out.setReward(next.getReward());
+            }
+        }
+        if (changed(base.hasGameOutcome(), base.getGameOutcome(), next.hasGameOutcome(), next.getGameOutcome())) {
+            changed |= bit(GameState.GAME_OUTCOME_FIELD_NUMBER);
+            if (next.hasGameOutcome()) {
+                out.setGameOutcome(next.getGameOutcome());
+            }
+        }
+        if (!base.getScreenType().equals(next.getScreenType())) {
+            changed |= bit(GameState.SCREEN_TYPE_FIELD_NUMBER);
+            out.setScreenType(next.getScreenType());
+        }
+
+        List<Object> entries = new ArrayList<>();
+        if (diffList(base.getMonstersList(), next.getMonstersList(), GameState.MONSTERS_FIELD_NUMBER, info, entries)) {
+            changed |= bit(GameState.MONSTERS_FIELD_NUMBER);
+            for (Object o : entries) {
+                out.addMonsters((MonsterState) o);
+            }
+        }
+        if (diffList(base.getHandList(), next.getHandList(), GameState.HAND_FIELD_NUMBER, info, entries)) {
+            changed |= bit(GameState.HAND_FIELD_NUMBER);
+            for (Object o : entries) {
+                out.addHand((CardState) o);
+            }
+        }
+        if (diffList(base.getPotionsList(), next.getPotionsList(), GameState.POTIONS_FIELD_NUMBER, info, entries)) {
+            changed |= bit(GameState.POTIONS_FIELD_NUMBER);
+            for (Object o : entries) {
+                out.addPotions((PotionState) o);
+            }
+        }
+        if (diffList(base.getMasterDeckList(), next.getMasterDeckList(), GameState.MASTER_DECK_FIELD_NUMBER, info, entries)) {
+            changed |= bit(GameState.MASTER_DECK_FIELD_NUMBER);
+            for (Object o : entries) {
+                out.addMasterDeck((CardState) o);
+            }
+        }
+
+        return out.setDelta(info.setChangedSections(changed)).build();
+    }
+
+    private static int bit(int fieldNumber) {
+        return 1 << fieldNumber;
+    }
+
+    private static boolean changed(boolean baseHas, Object baseValue, boolean nextHas, Object nextValue) {
+        if (baseHas != nextHas) {
+            return true;
+        }
+        return nextHas && baseValue != nextValue && !baseValue.equals(nextValue);
+    }
+
+    /**
+     * 逐项比较列表段，把需要发送的项写入 entries（先清空）。返回 false 表示该段未变化。
+     */
+    private static boolean diffList(List<?> base, List<?> next, int field, DeltaInfo.Builder info, List<Object> entries) {
+        entries.clear();
+        ListPatch.Builder patch = null;
+        for (int i = 0; i < next.size(); i++) {
+            Object item = next.get(i);
+            if (i < base.size()) {
+                Object old = base.get(i);
+                if (old == item || old.equals(item)) {
+                    continue;
+                }
+            }
+            if (patch == null) {
+                patch = ListPatch.newBuilder().setField(field).setLength(next.size());
+            }
+            patch.addIndices(i);
+            entries.add(item);
+        }
+        if (patch == null) {
+            // 没有变化的项：长度相同则未变化，否则只是截断
+            if (base.size() == next.size()) {
+                return false;
+            }
+            info.addLists(ListPatch.newBuilder().setField(field).setLength(next.size()));
+            return true;
+        }
+        if (entries.size() < next.size()) {
+            info.addLists(patch);
+        }
+        return true;
+    }
+}
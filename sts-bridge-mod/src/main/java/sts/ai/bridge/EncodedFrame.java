@@ -0,0 +1,150 @@
+package sts.ai.bridge;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import sts.ai.state.v1.GameState;
+
+/**
+ * 一帧已编码的数据：direct ByteBuffer 中依次存放 4 字节大端长度前缀和 Protobuf 负载。
+ * 帧对象来自 FramePool，通过引用计数在游戏线程、Selector 线程和各会话之间共享，
+ * 最后一个持有者 release() 后自动归还到池中，稳态下不产生新的缓冲区分配。
+ *
+ * 约定：帧被发布给 BridgeServer 之后，只有 Selector 线程会修改 buffer 的 position / limit。
+ */
+final class EncodedFrame {
+    static final int LENGTH_PREFIX_BYTES = 4;
+
+    final ByteBuffer buffer;
+    private final FramePool pool;
+    private final AtomicInteger refs = new AtomicInteger();
+    private int length;
+    private boolean terminal;
+    /**
+     * 控制帧（frame_type 非空：PING / PONG / HELLO / CATALOG / NOT_MODIFIED），不携带状态。
+     */
+    private boolean control;
+    private long seq;
+    /**
+     * 目录模式下编码该帧时的目录大小（见 Catalog），传输层据此先补发客户端尚未收到的目录条目；其它帧为 0。
+     */
+    private int catalogSize;
+    /**
+     * 状态帧的 GameState.state_version，供 BridgeServer 应答 GET_STATE 长轮询；其它帧为 0。
+     */
+    private long stateVersion;
+    /**
+     * 编码前的 GameState（不可变），供需要按会话重新编码的场景使用（增量帧）。
+     * 压缩帧上为 null；WireEncoder 编码的帧初始为 null，首次需要时由 Selector 线程解析并记录。
+     */
+    private GameState state;
+
+    EncodedFrame(FramePool pool, int capacity) {
+        this.pool = pool;
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * 帧总长度（含长度前缀）。
+     */
+    int length() {
+        return length;
+    }
+
+    int payloadLength() {
+        return length - LENGTH_PREFIX_BYTES;
+    }
+
+    /**
+     * 是否为终局帧（携带 GameOutcome）。
+     */
+    boolean isTerminal() {
+        return terminal;
+    }
+
+    boolean isControl() {
+        return control;
+    }
+
+    void setControl(boolean control) {
+        this.control = control;
+    }
+
+    /**
+     * 终局帧与控制帧在任何溢出策略下都不会被合并或丢弃：前者保证消费者一定能看到对局结果，
+     * 后者是对某个请求的唯一应答（HELLO 之后的帧可能已按协商压缩，NOT_MODIFIED 结束一次长轮询），或后续帧依赖的目录条目。
+     */
+    boolean isEvictable() {
+        return !terminal && !control;
+    }
+
+    /**
+     * 帧对应的 GameState.seq。
+     */
+    long seq() {
+        return seq;
+    }
+
+    int catalogSize() {
+        return catalogSize;
+    }
+
+    void setCatalogSize(int catalogSize) {
+        this.catalogSize = catalogSize;
+    }
+
+    long stateVersion() {
+        return stateVersion;
+    }
+
+    void setStateVersion(long stateVersion) {
+        this.stateVersion = stateVersion;
+    }
+
+    GameState state() {
+        return state;
+    }
+
+    void setState(GameState state) {
+        this.state = state;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    void retain() {
+        refs.incrementAndGet();
+    }
+
+    void release() {
+        if (refs.decrementAndGet() == 0) {
+            state = null;
+            pool.recycle(this);
+        }
+    }
+
+    /**
+     * 由 FramePool 在借出时调用，调用方持有唯一的一个引用。
+     */
+    void reset() {
+        refs.set(1);
+        length = 0;
+        terminal = false;
+        control = false;
+        seq = 0L;
+        catalogSize = 0;
+        stateVersion = 0L;
+        buffer.clear();
+    }
+
+    /**
+     * 编码完成后调用：记录帧长度，并把 buffer 恢复为 [0, length) 的读视图。
+     */
+    void seal(int length, boolean terminal, long seq) {
+        this.length = length;
+        this.terminal = terminal;
+        this.seq = seq;
+        buffer.limit(length);
+        buffer.position(0);
+    }
+}
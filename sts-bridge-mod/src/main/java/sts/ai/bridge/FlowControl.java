@@ -0,0 +1,66 @@
+package sts.ai.bridge;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于信用（credit）的流控，通过 -Dsts.ai.flow=credit 开启。
+ * 约定：
+ * 1. 训练端发送 action_type = "CREDIT" 的 GameAction，credits 字段为授予的帧数，可累加
+ * 2. 桥接层每发出一帧状态消耗一个信用；信用为 0 时游戏照常运行，但 Postfix 不再构建快照，
+ *    当前决策点保持未发送状态，收到信用后在下一个稳定帧补发
+ * 3. 新的控制端接入时信用重置为 -Dsts.ai.flow.initialCredits（默认 0），需重新授予
+ *
+ * CREDIT 不进入动作队列，也不会触发应答帧。未开启时所有方法均为空操作。
+ */
+final class FlowControl {
+    static final boolean ENABLED = "credit".equalsIgnoreCase(System.getProperty("sts.ai.flow", "none"));
+    static final String CREDIT_ACTION = "CREDIT";
+
+    private static final int INITIAL_CREDITS = Math.max(0, StsAIBridge.intProperty("sts.ai.flow.initialCredits", 0));
+    private static final AtomicInteger credits = new AtomicInteger(INITIAL_CREDITS);
+
+    private FlowControl() {
+    }
+
+    /**
+     * 任意线程调用：累加信用，溢出时截断为 Integer.MAX_VALUE。
+     */
+    static void grant(int n) {
+        if (n <= 0) {
+            return;
+        }
+        int current;
+        int next;
+        do {
+            current = credits.get();
+            next = current > Integer.MAX_VALUE - n ? Integer.MAX_VALUE : current + n;
+        } while (!credits.compareAndSet(current, next));
+    }
+
+    /**
+     * 游戏主线程调用：是否允许构建并发送下一帧。
+     */
+    static boolean hasCredit() {
+        return !ENABLED || credits.get() > 0;
+    }
+
+    /**
+     * 游戏主线程调用：决定发送一帧后扣除一个信用。
+     */
+    static void consume() {
+        if (ENABLED) {
+            credits.decrementAndGet();
+        }
+    }
+
+    /**
+     * 新控制端接入时调用，丢弃上一个控制端剩余的信用。
+     */
+    static void reset() {
+        credits.set(INITIAL_CREDITS);
+    }
+
+    static int available() {
+        return credits.get();
+    }
+}
@@ -0,0 +1,118 @@
+package sts.ai.bridge;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+/**
+ * 单个会话的帧压缩器（raw deflate + 预置字典），由 Selector 线程在帧入队时调用。
+ * 约定：
+ * 1. 只压缩负载不小于阈值的帧；压缩后不比原始负载小时仍发送原始帧
+ * 2. 压缩帧的长度前缀最高位置 1（COMPRESSED_FLAG），其余 31 位为压缩后的长度
+ * 3. 每帧独立压缩（reset + setDictionary），客户端无需维护跨帧的流状态，丢帧 / 合并不影响解压
+ * 4. Deflater 与输入 / 输出数组在会话内复用
+ *
+ * 同时统计本会话的原始字节、线上字节和压缩耗时，用于评估带宽与 CPU 的取舍。
+ */
+final class FrameCompressor {
+    static final String CODEC = "deflate";
+    static final int COMPRESSED_FLAG = 0x80000000;
+    static final int DEFAULT_THRESHOLD = Math.max(0, StsAIBridge.intProperty("sts.ai.compression.threshold", 4096));
+    private static final int LEVEL = Math.max(1, Math.min(9, StsAIBridge.intProperty("sts.ai.compression.level", 1)));
+
+    /**
+     * 预置字典：协议中高频出现的字符串取值（界面、卡牌 / 意图类型、常见卡牌、能力、遗物、怪物名等）。
+     * zlib 对越靠后的内容匹配代价越低，因此最常见的字符串放在末尾。
+     * 字典在 HELLO 应答中下发给客户端，修改内容不需要同步修改客户端代码。
+     */
+    static final byte[] DICTIONARY = String.join("\u0000",
+            "Cultist", "Jaw Worm", "Louse", "Acid Slime (M)", "Spike Slime (M)", "Gremlin Nob", "Lagavulin", "Sentry",
+            "Slaver", "Fungi Beast", "Looter", "The Guardian", "Hexaghost", "Slime Boss",
+            "Anger", "Cleave", "Clothesline", "Flex", "Headbutt", "Iron Wave", "Pommel Strike", "Shrug It Off",
+            "Thunderclap", "Twin Strike", "Inflame", "Uppercut", "Carnage", "Bludgeon", "Offering", "Feed",
+            "Burning Blood", "Akabeko", "Anchor", "Bag of Marbles", "Vajra", "Lantern", "Orichalcum",
+            "Ritual", "Curl Up", "Angry", "Thorns", "Metallicize", "Artifact", "Plated Armor",
+            "Block Potion", "Fire Potion", "Strength Potion", "Energy Potion", "Potion Slot",
+            "UNKNOWN", "SLEEP", "STUN", "ESCAPE", "DEFEND_BUFF", "ATTACK_DEFEND", "ATTACK_BUFF", "ATTACK_DEBUFF",
+            "DEFEND", "BUFF", "DEBUFF", "STRONG_DEBUFF", "MAGIC",
+            "BASIC", "COMMON", "UNCOMMON", "RARE", "SPECIAL", "CURSE", "STATUS",
+            "GOLD", "RELIC", "CARD", "POTION", "EMERALD_KEY", "SAPPHIRE_KEY",
+            "GAME_OVER", "VICTORY", "EVENT", "REST", "SHOP", "MAP", "REWARD", "COMBAT", "NONE",
+            "SELF", "ALL_ENEMY", "ALL", "SELF_AND_ENEMY", "ENEMY",
+            "POWER", "SKILL", "ATTACK",
+            "Vulnerable", "Weakened", "Frail", "Dexterity", "Strength",
+            "Bash", "Defend", "Strike", "Defend_R", "Strike_R")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final Deflater deflater = new Deflater(LEVEL, true);
+    private final int threshold;
+    private byte[] input = new byte[16 * 1024];
+    private byte[] output = new byte[16 * 1024];
+    private long framesCompressed = 0L;
+    private long compressNanos = 0L;
+
+    FrameCompressor(int threshold) {
+        this.threshold = threshold;
+    }
+
+    int threshold() {
+        return threshold;
+    }
+
+    long framesCompressed() {
+        return framesCompressed;
+    }
+
+    long compressNanos() {
+        return compressNanos;
+    }
+
+    /**
+     * 需要压缩时返回新的压缩帧（调用方持有一个引用），否则返回 null 表示直接发送原始帧。
+     * 只读取 frame 的内容，会临时修改其 position，返回前恢复为 [0, length)。
+     */
+    EncodedFrame compress(EncodedFrame frame) {
+        int rawLength = frame.payloadLength();
+        if (rawLength < threshold || rawLength == 0) {
+            return null;
+        }
+        long start = System.nanoTime();
+        if (input.length < rawLength) {
+            input = new byte[Integer.highestOneBit(rawLength) << 1];
+        }
+        ByteBuffer src = frame.buffer;
+        src.position(EncodedFrame.LENGTH_PREFIX_BYTES);
+        src.get(input, 0, rawLength);
+        src.position(0);
+
+        deflater.reset();
+        deflater.setDictionary(DICTIONARY);
+        deflater.setInput(input, 0, rawLength);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == output.length) {
+                byte[] bigger = new byte[output.length << 1];
+                System.arraycopy(output, 0, bigger, 0, compressedLength);
+                output = bigger;
+            }
+            compressedLength += deflater.deflate(output, compressedLength, output.length - compressedLength);
+        }
+        EncodedFrame compressed = null;
+        if (compressedLength < rawLength) {
+            compressed = FrameEncoder.acquire(EncodedFrame.LENGTH_PREFIX_BYTES + compressedLength);
+            compressed.buffer.putInt(COMPRESSED_FLAG | compressedLength);
+            compressed.buffer.put(output, 0, compressedLength);
+            compressed.seal(compressed.buffer.position(), frame.isTerminal(), frame.seq());
+            compressed.setCatalogSize(frame.catalogSize());
+            compressed.setControl(frame.isControl());
+            framesCompressed++;
+        }
+        compressNanos += System.nanoTime() - start;
+        return compressed;
+    }
+
+    void close() {
+        deflater.end();
+    }
+}
@@ -0,0 +1,84 @@
+package sts.ai.bridge;
+
+import com.google.protobuf.CodedOutputStream;
+import sts.ai.state.v1.GameState;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 发布线程（见 SnapshotEncoder）上的帧编码器，BridgeServer 也用它编码控制帧与增量帧。
+ * 直接把 GameState 通过 CodedOutputStream 序列化进池化的 direct ByteBuffer（含长度前缀），
+ * 不再经过 toByteArray() 和 DataOutputStream 的中间拷贝；编码结果由各传输层按引用共享。
+ * 稳态下每帧只额外分配一个 CodedOutputStream 实例，缓冲区全部复用。
+ * 状态帧默认由 WireEncoder 直接从 StateSnapshot 写出，不经过 GameState 对象。
+ */
+final class FrameEncoder {
+    private static final FramePool POOL = new FramePool(Math.max(4, StsAIBridge.intProperty("sts.ai.framePool.size", 64)));
+
+    private FrameEncoder() {
+    }
+
+    /**
+     * 从帧池借出一个空帧（调用方持有一个引用），用于写入派生帧（例如压缩后的帧）。
+     */
+    static EncodedFrame acquire(int minCapacity) {
+        return POOL.acquire(minCapacity);
+    }
+
+    /**
+     * 编码一帧，返回的帧带有一个引用，调用方用完后必须 release()。
+     */
+    static EncodedFrame encode(GameState state) throws IOException {
+        int size = state.getSerializedSize();
+        EncodedFrame frame = POOL.acquire(EncodedFrame.LENGTH_PREFIX_BYTES + size);
+        frame.buffer.putInt(size);
+        CodedOutputStream out = CodedOutputStream.newInstance(frame.buffer);
+        state.writeTo(out);
+        out.flush();
+        frame.seal(frame.buffer.position(), state.hasGameOutcome(), state.getSeq());
+        frame.setControl(!state.getFrameType().isEmpty());
+        frame.setState(state);
+        return frame;
+    }
+
+    /**
+     * 用 WireEncoder 直接从快照编码一帧，帧上不带 GameState（需要时由 decode() 从负载解析）。
+     */
+    static EncodedFrame encode(StateSnapshot snapshot, WireEncoder wire) throws IOException {
+        int size = wire.sizeOf(snapshot);
+        EncodedFrame frame = POOL.acquire(EncodedFrame.LENGTH_PREFIX_BYTES + size);
+        frame.buffer.putInt(size);
+        CodedOutputStream out = CodedOutputStream.newInstance(frame.buffer);
+        wire.writeTo(snapshot, out);
+        out.flush();
+        if (frame.buffer.position() != EncodedFrame.LENGTH_PREFIX_BYTES + size) {
+            int written = frame.buffer.position() - EncodedFrame.LENGTH_PREFIX_BYTES;
+            frame.release();
+            throw new IOException("wire encoder wrote " + written + " bytes, expected " + size);
+        }
+        frame.seal(frame.buffer.position(), snapshot.gameOutcome != null, snapshot.seq);
+        return frame;
+    }
+
+    /**
+     * 编码 Catalog 中 [from, to) 的条目为 "CATALOG" 控制帧，返回的帧带有一个引用。
+     */
+    static EncodedFrame encodeCatalog(int from, int to) {
+        try {
+            return encode(Catalog.update(from, to));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode CATALOG frame", e);
+        }
+    }
+
+    /**
+     * 把未压缩帧的负载解析回 GameState，不修改帧缓冲区的 position / limit。
+     */
+    static GameState decode(EncodedFrame frame) throws IOException {
+        ByteBuffer payload = frame.buffer.duplicate();
+        payload.limit(frame.length());
+        payload.position(EncodedFrame.LENGTH_PREFIX_BYTES);
+        return GameState.parseFrom(payload);
+    }
+}
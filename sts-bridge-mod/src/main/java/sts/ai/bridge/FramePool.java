@@ -0,0 +1,39 @@
+package sts.ai.bridge;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * EncodedFrame 对象池。
+ * 使用 ArrayBlockingQueue 作为空闲列表（offer / poll 不分配节点对象），
+ * 池为空或空闲帧容量不足时才分配新的 direct 缓冲区，因此只会在预热阶段或遇到更大的帧时分配。
+ */
+final class FramePool {
+    private static final int MIN_FRAME_BYTES = 64 * 1024;
+
+    private final ArrayBlockingQueue<EncodedFrame> free;
+
+    FramePool(int maxIdleFrames) {
+        this.free = new ArrayBlockingQueue<>(maxIdleFrames);
+    }
+
+    /**
+     * 借出一个容量不小于 minCapacity 的帧，调用方持有一个引用。
+     */
+    EncodedFrame acquire(int minCapacity) {
+        EncodedFrame frame = free.poll();
+        if (frame == null || frame.capacity() < minCapacity) {
+            // 容量不足的旧帧直接丢弃，由 GC 回收，池会逐渐收敛到足够大的帧
+            int capacity = MIN_FRAME_BYTES;
+            while (capacity < minCapacity) {
+                capacity <<= 1;
+            }
+            frame = new EncodedFrame(this, capacity);
+        }
+        frame.reset();
+        return frame;
+    }
+
+    void recycle(EncodedFrame frame) {
+        free.offer(frame);
+    }
+}
@@ -0,0 +1,180 @@
+package sts.ai.bridge;
+
+/**
+ * 单个会话的有界出站帧队列（定长环形数组），只由 Selector 线程访问。
+ * 淘汰规则：
+ * 1. 队首帧可能已经写出一部分（headStarted），此时它不会被淘汰，否则客户端会收到被截断的帧
+ * 2. 终局帧与所有控制帧（frame_type 非空：HELLO / PONG / NOT_MODIFIED / CATALOG / PING，见 EncodedFrame.isEvictable()）
+ *    不会被淘汰，保证消费者一定能看到对局结果、请求的应答与目录条目；只有队列中全部都是这类帧时才退化为淘汰最旧的一帧
+ * 被淘汰的帧在这里直接 release()。
+ * headPrepared 记录 Selector 线程是否已为当前队首帧补发目录 / 编码增量帧；队首一旦变化（出队、插入、被淘汰）就清除，
+ * 新队首不会沿用上一个队首的检查结果。
+ */
+final class FrameQueue {
+    private final EncodedFrame[] ring;
+    private OverflowPolicy policy;
+    private int head = 0;
+    private int size = 0;
+    private boolean headStarted = false;
+    private boolean headPrepared = false;
+    private long dropped = 0L;
+
+    FrameQueue(int capacity, OverflowPolicy policy) {
+        this.ring = new EncodedFrame[Math.max(2, capacity)];
+        this.policy = policy;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean isFull() {
+        return size == ring.length;
+    }
+
+    OverflowPolicy policy() {
+        return policy;
+    }
+
+    /**
+     * 会话角色变化时切换策略，只影响之后入队的帧。
+     */
+    void setPolicy(OverflowPolicy policy) {
+        this.policy = policy;
+    }
+
+    long dropped() {
+        return dropped;
+    }
+
+    /**
+     * 追加一帧，调用方已为本队列 retain()。
+     * BLOCK 策略下调用方保证队列未满；其它策略下按策略淘汰旧帧，返回本次淘汰的帧数。
+     */
+    int add(EncodedFrame frame) {
+        int evicted = 0;
+        if (policy == OverflowPolicy.LATEST_ONLY) {
+            // 最新状态覆盖所有未发送的可淘汰帧（状态帧）
+            for (int i = size - 1; i >= (headStarted ? 1 : 0); i--) {
+                if (ring[(head + i) % ring.length].isEvictable()) {
+                    removeAt(i);
+                    evicted++;
+                }
+            }
+        }
+        if (size == ring.length) {
+            removeAt(oldestEvictable());
+            evicted++;
+        }
+        ring[(head + size) % ring.length] = frame;
+        size++;
+        dropped += evicted;
+        return evicted;
+    }
+
+    /**
+     * 在尚未开始写出的队首帧之前插入一帧（"CATALOG" 控制帧），调用方已为本队列 retain()。
+     * 队列已满时先淘汰一帧，返回本次淘汰的帧数。
+     */
+    int addFirst(EncodedFrame frame) {
+        int evicted = 0;
+        if (size == ring.length) {
+            removeAt(oldestEvictable());
+            evicted++;
+        }
+        head = (head - 1 + ring.length) % ring.length;
+        ring[head] = frame;
+        size++;
+        headStarted = false;
+        headPrepared = false;
+        dropped += evicted;
+        return evicted;
+    }
+
+    EncodedFrame peek() {
+        return size == 0 ? null : ring[head];
+    }
+
+    /**
+     * 标记队首帧已开始写出。
+     */
+    void markHeadStarted() {
+        headStarted = true;
+    }
+
+    boolean headPrepared() {
+        return headPrepared;
+    }
+
+    /**
+     * 标记当前队首帧已完成发送前的准备（目录检查、增量编码），写出 0 字节也不会重复准备。
+     */
+    void markHeadPrepared() {
+        headPrepared = true;
+    }
+
+    /**
+     * 用按会话重新编码的帧（增量帧、压缩帧）替换尚未开始写出的队首帧，并标记为已开始写出，之后不会再被淘汰。
+     * 返回原队首帧，由调用方 release()。
+     */
+    EncodedFrame replaceHead(EncodedFrame frame) {
+        EncodedFrame old = ring[head];
+        ring[head] = frame;
+        headStarted = true;
+        return old;
+    }
+
+    /**
+     * 移除已完整写出的队首帧，不 release()，由调用方处理。
+     */
+    EncodedFrame poll() {
+        if (size == 0) {
+            return null;
+        }
+        EncodedFrame frame = ring[head];
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        size--;
+        headStarted = false;
+        headPrepared = false;
+        return frame;
+    }
+
+    /**
+     * 释放全部帧，会话关闭时调用。
+     */
+    void clear() {
+        EncodedFrame frame;
+        while ((frame = poll()) != null) {
+            frame.release();
+        }
+    }
+
+    /**
+     * 返回最旧的可淘汰帧相对队首的位置：优先可淘汰帧，其次最旧的未开始写出的帧。
+     */
+    private int oldestEvictable() {
+        int first = headStarted ? 1 : 0;
+        for (int i = first; i < size; i++) {
+            if (ring[(head + i) % ring.length].isEvictable()) {
+                return i;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * 释放并移除相对队首第 offset 个帧，后面的帧依次前移一格，保持顺序。移除队首时清除 headPrepared。
+     */
+    private void removeAt(int offset) {
+        if (offset == 0) {
+            headPrepared = false;
+        }
+        ring[(head + offset) % ring.length].release();
+        for (int i = offset; i < size - 1; i++) {
+            ring[(head + i) % ring.length] = ring[(head + i + 1) % ring.length];
+        }
+        ring[(head + size - 1) % ring.length] = null;
+        size--;
+    }
+}
@@ -0,0 +1,24 @@
+package sts.ai.bridge;
+
+/**
+ * 状态帧的出口抽象。SnapshotEncoder 把编码好的 GameState 交给所有已启用的传输层，
+ * 发布线程为 STS-AI-Encoder（默认 async 模式）或游戏线程（sync 模式），任一时刻只有一个发布线程。
+ * 实现类必须保证 publish() 不会阻塞在网络 / 磁盘 IO 上。
+ */
+interface FrameTransport {
+    /**
+     * 当前是否有消费者在线；没有时调用方可以跳过编码。
+     */
+    boolean hasSessions();
+
+    /**
+     * 在线消费者订阅的状态段并集（见 SectionMask），任一消费者要求全部时返回 SectionMask.ALL。
+     */
+    int sectionMask();
+
+    /**
+     * 由发布线程调用：发布一帧已编码的 GameState（含长度前缀）。
+     * 调用方在返回后会释放自己的引用；需要异步使用该帧的实现必须先 retain()，用完后 release()。
+     */
+    void publish(EncodedFrame frame);
+}
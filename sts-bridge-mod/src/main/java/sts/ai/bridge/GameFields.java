@@ -0,0 +1,168 @@
+package sts.ai.bridge;
+
+import com.megacrit.cardcrawl.potions.AbstractPotion;
+import com.megacrit.cardcrawl.relics.AbstractRelic;
+import com.megacrit.cardcrawl.rooms.CampfireUI;
+import com.megacrit.cardcrawl.shop.ShopScreen;
+import com.megacrit.cardcrawl.shop.StorePotion;
+import com.megacrit.cardcrawl.shop.StoreRelic;
+import com.megacrit.cardcrawl.ui.campfire.AbstractCampfireOption;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 抓取商店、篝火等界面时需要读取的游戏私有字段。每个字段在类加载时只解析一次为 MethodHandle，
+ * 之后每帧的读取只是一次 invokeExact，不再重复 getDeclaredField / setAccessible。
+ *
+ * 字段沿声明类向上逐级查找（例如 usable 声明在 AbstractCampfireOption 上）。
+ * 游戏更新导致字段找不到时不影响加载：只停用读取这些字段的段（SHOP_AVAILABLE / REST_SITE_AVAILABLE 为 false，
+ * 对应界面仍会发送 screen_type，但不再抓取 shop / rest_site），其余段照常工作。
+ * StsAIBridge.initialize() 调用 verify()，一次性列出全部缺失的字段与被停用的段，而不是在运行中静默地发送缺少内容的状态。
+ */
+final class GameFields {
+    private static final List<String> missing = new ArrayList<>();
+
+    static final Accessor SHOP_RELICS = new Accessor(ShopScreen.class, "relics", ArrayList.class);
+    static final Accessor SHOP_POTIONS = new Accessor(ShopScreen.class, "potions", ArrayList.class);
+    static final Accessor SHOP_COLORED_CARDS = new Accessor(ShopScreen.class, "coloredCards", ArrayList.class);
+    static final Accessor SHOP_COLORLESS_CARDS = new Accessor(ShopScreen.class, "colorlessCards", ArrayList.class);
+    static final Accessor STORE_RELIC = new Accessor(StoreRelic.class, "relic", AbstractRelic.class);
+    static final Accessor STORE_RELIC_PRICE = new Accessor(StoreRelic.class, "price", int.class);
+    static final Accessor STORE_POTION = new Accessor(StorePotion.class, "potion", AbstractPotion.class);
+    static final Accessor STORE_POTION_PRICE = new Accessor(StorePotion.class, "price", int.class);
+    static final Accessor CAMPFIRE_BUTTONS = new Accessor(CampfireUI.class, "buttons", ArrayList.class);
+    static final Accessor CAMPFIRE_OPTION_USABLE = new Accessor(AbstractCampfireOption.class, "usable", boolean.class);
+
+    /**
+     * 商店段需要的字段全部解析成功且类型符合预期。
+     */
+    static final boolean SHOP_AVAILABLE = SHOP_RELICS.available() && SHOP_POTIONS.available()
+            && SHOP_COLORED_CARDS.available() && SHOP_COLORLESS_CARDS.available() && STORE_RELIC.available()
+            && STORE_RELIC_PRICE.available() && STORE_POTION.available() && STORE_POTION_PRICE.available();
+    /**
+     * 篝火段需要的字段全部解析成功且类型符合预期。
+     */
+    static final boolean REST_SITE_AVAILABLE = CAMPFIRE_BUTTONS.available() && CAMPFIRE_OPTION_USABLE.available();
+
+    private GameFields() {
+    }
+
+    /**
+     * 触发全部字段的解析并输出结果；有缺失时列出所有缺失的字段与因此停用的段，不抛出异常。
+     */
+    static void verify() {
+        if (missing.isEmpty()) {
+            System.out.println("[STS-AI] Resolved reflective game fields.");
+            return;
+        }
+        List<String> disabled = new ArrayList<>();
+        if (!SHOP_AVAILABLE) {
+            disabled.add("shop");
+        }
+        if (!REST_SITE_AVAILABLE) {
+            disabled.add("rest_site");
+        }
+        System.err.println("[STS-AI] Game fields not found (game version changed?): " + missing
+                + ", disabled sections: " + disabled);
+    }
+
+    /**
+     * 一个已解析的字段读取器，typed getter 对应字段的声明类型。
+     */
+    static final class Accessor {
+        private final String name;
+        private final MethodHandle objectGetter;
+        private final MethodHandle intGetter;
+        private final MethodHandle booleanGetter;
+
+        /**
+         * @param expected 读取方要求的字段类型：基本类型必须一致，引用类型必须可以赋给 expected
+         */
+        private Accessor(Class<?> owner, String fieldName, Class<?> expected) {
+            this.name = owner.getSimpleName() + "." + fieldName;
+            MethodHandle getter = null;
+            try {
+                Field field = find(owner, fieldName);
+                Class<?> actual = field.getType();
+                if (expected.isPrimitive() ? actual == expected : expected.isAssignableFrom(actual)) {
+                    field.setAccessible(true);
+                    getter = MethodHandles.lookup().unreflectGetter(field);
+                } else {
+                    missing.add(name + " (expected " + expected.getSimpleName() + ", found " + actual.getSimpleName() + ")");
+                }
+            } catch (NoSuchFieldException | IllegalAccessException | RuntimeException e) {
+                missing.add(name);
+            }
+            Class<?> type = getter != null ? getter.type().returnType() : Object.class;
+            this.objectGetter = getter != null && !type.isPrimitive()
+                    ? getter.asType(MethodType.methodType(Object.class, Object.class)) : null;
+            this.intGetter = type == int.class
+                    ? getter.asType(MethodType.methodType(int.class, Object.class)) : null;
+            this.booleanGetter = type == boolean.class
+                    ? getter.asType(MethodType.methodType(boolean.class, Object.class)) : null;
+        }
+
+        private static Field find(Class<?> owner, String fieldName) throws NoSuchFieldException {
+            for (Class<?> c = owner; c != null; c = c.getSuperclass()) {
+                try {
+                    return c.getDeclaredField(fieldName);
+                } catch (NoSuchFieldException ignored) {
+                    // 继续查找父类
+                }
+            }
+            throw new NoSuchFieldException(fieldName);
+        }
+
+        Object get(Object target) {
+            try {
+                return (Object) handle(objectGetter).invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(name, t);
+            }
+        }
+
+        /**
+         * 字段已找到且类型符合预期。
+         */
+        boolean available() {
+            return objectGetter != null || intGetter != null || booleanGetter != null;
+        }
+
+        ArrayList<?> getList(Object target) {
+            return (ArrayList<?>) get(target);
+        }
+
+        int getInt(Object target) {
+            try {
+                return (int) handle(intGetter).invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(name, t);
+            }
+        }
+
+        boolean getBoolean(Object target) {
+            try {
+                return (boolean) handle(booleanGetter).invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(name, t);
+            }
+        }
+
+        private MethodHandle handle(MethodHandle getter) {
+            if (getter == null) {
+                throw new IllegalStateException("Field " + name + " is missing or has a different type");
+            }
+            return getter;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package sts.ai.bridge;
+
+/**
+ * 出站帧队列写满时的处理策略：block | drop_oldest | latest_only。
+ * 控制端通过 -Dsts.ai.queue.overflow 配置（默认 drop_oldest），
+ * 观察端通过 -Dsts.ai.observer.overflow 配置（默认 latest_only，即最新状态覆盖未发送的旧状态）。
+ * 任何策略下终局帧与控制帧都不会被丢弃，见 FrameQueue。
+ */
+enum OverflowPolicy {
+    /**
+     * 游戏线程等待，直到所有会话的队列腾出空间（不丢帧，但慢消费者会拖慢游戏）。
+     */
+    BLOCK,
+    /**
+     * 丢弃最旧的未发送帧。
+     */
+    DROP_OLDEST,
+    /**
+     * 只保留最新的一帧未发送帧，适合只关心当前状态的消费者。
+     */
+    LATEST_ONLY;
+
+    static OverflowPolicy fromProperty(String key, OverflowPolicy defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(java.util.Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("[STS-AI] Invalid value for " + key + ": " + value + ", using "
+                    + defaultValue.name().toLowerCase(java.util.Locale.ROOT));
+            return defaultValue;
+        }
+    }
+}
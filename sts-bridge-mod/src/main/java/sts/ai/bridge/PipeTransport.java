@@ -0,0 +1,243 @@
+package sts.ai.bridge;
+
+import com.google.protobuf.CodedInputStream;
+import org.apache.logging.log4j.LogManager;
+import sts.ai.state.v1.GameAction;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 管道传输层，通过 -Dsts.ai.transport=pipe 启用，适用于由进程池管理器以子进程方式启动游戏的场景，不需要分配 TCP 端口。
+ * 负责：
+ * 1. 帧格式与 TCP 完全相同（4 字节大端长度前缀 + Protobuf），管道的读端即控制端
+ * 2. 默认使用标准输入 / 输出；也可以通过 sts.ai.pipe.in / sts.ai.pipe.out 指定命名管道或继承的文件描述符路径
+ *    （例如 /proc/self/fd/3、\\.\pipe\sts-ai-0），此时标准输出保持原样
+ * 3. 使用标准输出时，把 System.out 重定向到 System.err，并摘除 Log4j 中输出到 SYSTEM_OUT 的控制台 Appender，
+ *    保证游戏日志不会混入协议流；在此之前（ModTheSpire 启动阶段）已经写入标准输出的内容无法收回，
+ *    因此协议流以 PREAMBLE 开头，客户端先丢弃 PREAMBLE 之前的所有字节
+ * 4. 写线程（STS-AI-PipeWriter）从有界队列取帧写出，游戏线程只负责入队，队列满时按 sts.ai.queue.overflow 处理；
+ *    读线程（STS-AI-PipeReader）解析 GameAction 并放入动作队列
+ * 5. 管道断开（父进程退出）后停止发送并记录日志
+ * 6. 目录模式（见 Catalog）下，状态帧用到父进程尚未收到的目录条目时，先入队一个 "CATALOG" 控制帧（不会被淘汰）；
+ *    父进程发送 CATALOG 动作后，下一帧之前重新发送完整目录
+ */
+final class PipeTransport implements FrameTransport {
+    static final byte[] PREAMBLE = "\nSTS-AI-PIPE/1\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int QUEUE_CAPACITY = Math.max(2, StsAIBridge.intProperty("sts.ai.queue.capacity", 64));
+    private static final OverflowPolicy OVERFLOW_POLICY =
+            OverflowPolicy.fromProperty("sts.ai.queue.overflow", OverflowPolicy.DROP_OLDEST);
+
+    private final String inPath;
+    private final String outPath;
+    private final FileOutputStream stdout;
+    private final ArrayBlockingQueue<EncodedFrame> pending = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private volatile boolean open = false;
+    private volatile boolean broken = false;
+    /**
+     * 已入队的目录条目数，以及对应的重发请求计数（见 Catalog.localResends），只由发布线程访问。
+     */
+    private int catalogSent = 0;
+    private int catalogResends = 0;
+
+    private PipeTransport(String inPath, String outPath, FileOutputStream stdout) {
+        this.inPath = inPath;
+        this.outPath = outPath;
+        this.stdout = stdout;
+    }
+
+    /**
+     * 由 StsAIBridge.initialize() 调用。打开文件（命名管道的 open 可能阻塞到对端接入）放在读写线程中进行。
+     */
+    static PipeTransport start() {
+        String inPath = System.getProperty("sts.ai.pipe.in");
+        String outPath = System.getProperty("sts.ai.pipe.out");
+        FileOutputStream stdout = null;
+        if (outPath == null) {
+            System.out.flush();
+            stdout = new FileOutputStream(FileDescriptor.out);
+            System.setOut(System.err);
+            detachLog4jConsoleAppenders();
+        }
+        PipeTransport transport = new PipeTransport(inPath, outPath, stdout);
+        Thread writer = new Thread(transport::writeLoop, "STS-AI-PipeWriter");
+        writer.setDaemon(true);
+        writer.start();
+        Thread reader = new Thread(transport::readLoop, "STS-AI-PipeReader");
+        reader.setDaemon(true);
+        reader.start();
+        System.out.println("[STS-AI-PIPE] Pipe transport: in=" + (inPath != null ? inPath : "stdin")
+                + ", out=" + (outPath != null ? outPath : "stdout"));
+        return transport;
+    }
+
+    @Override
+    public boolean hasSessions() {
+        return open && !broken;
+    }
+
+    @Override
+    public int sectionMask() {
+        return SectionMask.local();
+    }
+
+    @Override
+    public void publish(EncodedFrame frame) {
+        int resends = Catalog.localResends();
+        if (resends != catalogResends) {
+            catalogResends = resends;
+            catalogSent = 0;
+        }
+        if (frame.catalogSize() > catalogSent) {
+            int size = Catalog.size();
+            EncodedFrame catalog = FrameEncoder.encodeCatalog(catalogSent, size);
+            offer(catalog);
+            catalog.release();
+            catalogSent = size;
+        }
+        offer(frame);
+    }
+
+    private void offer(EncodedFrame frame) {
+        frame.retain();
+        if (OVERFLOW_POLICY == OverflowPolicy.BLOCK) {
+            try {
+                pending.put(frame);
+            } catch (InterruptedException e) {
+                frame.release();
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        while (!pending.offer(frame)) {
+            evictOldest();
+        }
+    }
+
+    /**
+     * 队列已满时丢弃最旧的可淘汰帧（见 EncodedFrame.isEvictable()）；latest_only 在管道上等价于 drop_oldest（写线程会尽快取走队首）。
+     */
+    private void evictOldest() {
+        for (EncodedFrame candidate : pending) {
+            if (candidate.isEvictable()) {
+                if (pending.remove(candidate)) {
+                    candidate.release();
+                }
+                return;
+            }
+        }
+        Thread.yield();
+    }
+
+    private void writeLoop() {
+        try (FileOutputStream out = stdout != null ? stdout : new FileOutputStream(outPath)) {
+            FileChannel channel = out.getChannel();
+            channel.write(ByteBuffer.wrap(PREAMBLE));
+            open = true;
+            while (true) {
+                EncodedFrame frame = pending.take();
+                try {
+                    // 帧缓冲区可能同时被 Selector 线程使用，这里用独立的视图写出
+                    ByteBuffer view = frame.buffer.duplicate();
+                    view.limit(frame.length());
+                    view.position(0);
+                    while (view.hasRemaining()) {
+                        channel.write(view);
+                    }
+                } finally {
+                    frame.release();
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("[STS-AI-PIPE] Output pipe closed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            broken = true;
+            EncodedFrame frame;
+            while ((frame = pending.poll()) != null) {
+                frame.release();
+            }
+        }
+    }
+
+    private void readLoop() {
+        byte[] buffer = new byte[4096];
+        try (InputStream raw = inPath != null ? new FileInputStream(inPath) : new FileInputStream(FileDescriptor.in)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(raw));
+            while (true) {
+                int length = in.readInt();
+                if (length < 0 || length > BridgeServer.MAX_FRAME_BYTES) {
+                    System.out.println("[STS-AI-PIPE] Invalid frame length " + length + " on input pipe, stopping reader.");
+                    return;
+                }
+                if (length > buffer.length) {
+                    buffer = new byte[Integer.highestOneBit(length) << 1];
+                }
+                in.readFully(buffer, 0, length);
+                try {
+                    GameAction action = Catalog.resolve(GameAction.parseFrom(CodedInputStream.newInstance(buffer, 0, length)));
+                    // 心跳、续传、压缩协商、增量关键帧、长轮询只对 Socket 会话有意义，管道上忽略，不能当作游戏动作应答
+                    String type = action.getActionType();
+                    if (!"PING".equals(type) && !"PONG".equals(type) && !"HELLO".equals(type) && !"RESUME".equals(type)
+                            && !"KEYFRAME".equals(type) && !BridgeServer.POLL_ACTION.equals(type)) {
+                        StsAIBridge.enqueueAction(action);
+                    }
+                } catch (IOException e) {
+                    System.out.println("[STS-AI-PIPE] Failed to parse GameAction: " + e.getMessage());
+                }
+            }
+        } catch (EOFException e) {
+            System.out.println("[STS-AI-PIPE] Input pipe closed by parent process.");
+        } catch (IOException e) {
+            System.out.println("[STS-AI-PIPE] Input pipe error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 尽力摘除 Log4j 中目标为 SYSTEM_OUT 的控制台 Appender（这些 Appender 在重定向 System.out 之前就已绑定标准输出）。
+     * 只依赖 log4j-core 的公开方法，通过反射调用，失败时仅记录警告。
+     */
+    private static void detachLog4jConsoleAppenders() {
+        try {
+            Object context = LogManager.getContext(false);
+            Object config = context.getClass().getMethod("getConfiguration").invoke(context);
+            Map<?, ?> appenders = (Map<?, ?>) config.getClass().getMethod("getAppenders").invoke(config);
+            Map<?, ?> loggers = (Map<?, ?>) config.getClass().getMethod("getLoggers").invoke(config);
+            Object root = config.getClass().getMethod("getRootLogger").invoke(config);
+            int detached = 0;
+            for (Map.Entry<?, ?> entry : appenders.entrySet()) {
+                Object appender = entry.getValue();
+                if (!"ConsoleAppender".equals(appender.getClass().getSimpleName())) {
+                    continue;
+                }
+                Object target = appender.getClass().getMethod("getTarget").invoke(appender);
+                if (!"SYSTEM_OUT".equals(String.valueOf(target))) {
+                    continue;
+                }
+                for (Object loggerConfig : loggers.values()) {
+                    loggerConfig.getClass().getMethod("removeAppender", String.class).invoke(loggerConfig, entry.getKey());
+                }
+                root.getClass().getMethod("removeAppender", String.class).invoke(root, entry.getKey());
+                detached++;
+            }
+            context.getClass().getMethod("updateLoggers").invoke(context);
+            System.out.println("[STS-AI-PIPE] Detached " + detached + " log4j console appender(s) from stdout.");
+        } catch (Throwable t) {
+            System.out.println("[STS-AI-PIPE] Could not detach log4j console appenders (" + t + "), "
+                    + "use -Dsts.ai.pipe.out if game logs still reach stdout.");
+        }
+    }
+}
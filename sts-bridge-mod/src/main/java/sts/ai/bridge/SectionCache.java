@@ -0,0 +1,107 @@
+package sts.ai.bridge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按元素缓存已构建的 Protobuf 子消息，用于牌组、遗物、地图这类很少变化的列表段。
+ * 用法：每帧 begin() → 逐个 add(源对象) → finish() 取得消息列表。
+ *
+ * 每个元素由 key() 写出一组“键”：若干对象引用（按 == 比较）和若干 int（按值比较），
+ * 与上一帧同一位置的键完全一致时直接复用上一帧构建的不可变消息，否则调用 build() 重建该元素。
+ * 比较过程不分配对象，未变化时的代价只是一次遍历；末尾追加元素（新卡、新遗物）不影响前面元素的复用。
+ *
+ * 键必须覆盖 build() 读取的全部可变字段，否则会推送过期数据。
+ * 非线程安全，只允许在游戏主线程中调用。
+ */
+abstract class SectionCache<S, M> {
+    private final int refWidth;
+    private final int intWidth;
+    private final Object[] keyRefs;
+    private final int[] keyInts;
+    private Object[] refs;
+    private int[] ints;
+    private final ArrayList<M> messages = new ArrayList<>();
+    private int count;
+    private boolean changed;
+
+    SectionCache(int refWidth, int intWidth) {
+        this.refWidth = refWidth;
+        this.intWidth = intWidth;
+        this.keyRefs = new Object[refWidth];
+        this.keyInts = new int[intWidth];
+        this.refs = new Object[refWidth * 16];
+        this.ints = new int[intWidth * 16];
+    }
+
+    /**
+     * 写出 src 的键：refs[0..refWidth) 与 ints[0..intWidth)。
+     */
+    abstract void key(S src, Object[] refs, int[] ints);
+
+    abstract M build(S src);
+
+    void begin() {
+        count = 0;
+        changed = false;
+    }
+
+    void add(S src) {
+        key(src, keyRefs, keyInts);
+        int i = count++;
+        if (i < messages.size() && matches(i)) {
+            return;
+        }
+        if ((i + 1) * refWidth > refs.length || (i + 1) * intWidth > ints.length) {
+            int capacity = Math.max(i + 1, messages.size() * 2);
+            refs = Arrays.copyOf(refs, capacity * refWidth);
+            ints = Arrays.copyOf(ints, capacity * intWidth);
+        }
+        M message = build(src);
+        System.arraycopy(keyRefs, 0, refs, i * refWidth, refWidth);
+        System.arraycopy(keyInts, 0, ints, i * intWidth, intWidth);
+        if (i < messages.size()) {
+            messages.set(i, message);
+        } else {
+            messages.add(message);
+        }
+        changed = true;
+    }
+
+    /**
+     * 结束本帧，返回与 add() 顺序一致的消息列表。
+     * 返回的列表会在下一次 begin() 后被修改，调用方应立即拷贝（例如 Builder.addAllXxx）。
+     */
+    List<M> finish() {
+        if (count < messages.size()) {
+            messages.subList(count, messages.size()).clear();
+            Arrays.fill(refs, count * refWidth, refs.length, null);
+            changed = true;
+        }
+        return messages;
+    }
+
+    /**
+     * 本帧是否有任何元素被重建、增加或删除。
+     */
+    boolean changed() {
+        return changed;
+    }
+
+    private boolean matches(int i) {
+        int r = i * refWidth;
+        for (int k = 0; k < refWidth; k++) {
+            if (refs[r + k] != keyRefs[k]) {
+                return false;
+            }
+        }
+        int n = i * intWidth;
+        for (int k = 0; k < intWidth; k++) {
+            if (ints[n + k] != keyInts[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
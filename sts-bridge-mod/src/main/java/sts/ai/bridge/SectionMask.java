@@ -0,0 +1,42 @@
+package sts.ai.bridge;
+
+import sts.ai.state.v1.GameState;
+
+/**
+ * 状态段订阅掩码：第 n 位（1 << n）对应 GameState 的第 n 号字段，与 DeltaInfo.changed_sections 编码一致。
+ * 客户端通过 ClientHello.sections 在握手时声明、通过 SUBSCRIBE 动作在运行时修改，0 表示全部。
+ * screen_type 与 game_outcome 始终发送（终局识别依赖它们）。
+ *
+ * 桥接层按所有在线消费者掩码的并集抓取快照，未订阅的段不会被抓取和构建；
+ * 同一并集下，订阅较少的会话仍会收到其它消费者订阅的段。
+ * 共享内存与管道只有一个消费者，它们的 SUBSCRIBE 经动作队列入口（StsAIBridge.enqueueAction）记录在 local 中。
+ */
+final class SectionMask {
+    static final int ALL = -1;
+    static final String SUBSCRIBE_ACTION = "SUBSCRIBE";
+    private static final int ALWAYS = (1 << GameState.SCREEN_TYPE_FIELD_NUMBER) | (1 << GameState.GAME_OUTCOME_FIELD_NUMBER);
+
+    private static volatile int local = ALL;
+
+    private SectionMask() {
+    }
+
+    /**
+     * 把客户端请求的掩码规范化：0 表示全部，其余补上始终发送的段。
+     */
+    static int normalize(int requested) {
+        return requested == 0 ? ALL : requested | ALWAYS;
+    }
+
+    static boolean has(int mask, int fieldNumber) {
+        return (mask & (1 << fieldNumber)) != 0;
+    }
+
+    static int local() {
+        return local;
+    }
+
+    static void setLocal(int requested) {
+        local = normalize(requested);
+    }
+}
@@ -0,0 +1,242 @@
+package sts.ai.bridge;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 基于内存映射文件的单写单读帧环形缓冲区，每个槽位由 seqlock 保护。
+ *
+ * 文件布局（全部为小端序，Python 侧可直接用 numpy.memmap 读取）：
+ * <pre>
+ * 偏移  类型   含义
+ * 0     int32  magic = 0x53545352（"STSR"）
+ * 4     int32  version = 1
+ * 8     int32  slot_count
+ * 12    int32  slot_bytes，单个槽位的负载容量
+ * 16    int64  write_count，已完整发布的帧数
+ * 24    int64  read_count，读端已消费的帧数（仅供观测）
+ * 32    int32  reader_attached，读端在线时置 1
+ * 36..63       保留
+ * 64 + i * (16 + slot_bytes)：第 i 个槽位
+ *       int64  seq，写入第 k 帧时先置 2k+1（奇数表示写入中），写完后置 2k+2
+ *       int32  length
+ *       int32  保留
+ *       bytes  payload
+ * </pre>
+ * 第 k 帧固定写入槽位 k % slot_count。读端若落后超过 slot_count 帧，直接跳到最新一帧。
+ */
+final class ShmRing {
+    static final int MAGIC = 0x53545352;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int SLOT_HEADER_BYTES = 16;
+
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_VERSION = 4;
+    private static final int OFF_SLOT_COUNT = 8;
+    private static final int OFF_SLOT_BYTES = 12;
+    private static final int OFF_WRITE_COUNT = 16;
+    private static final int OFF_READ_COUNT = 24;
+    private static final int OFF_READER_ATTACHED = 32;
+
+    private static final Fences FENCES = new Fences();
+
+    private final String path;
+    private final MappedByteBuffer buffer;
+    /**
+     * 批量拷贝用的视图，各自只被写端 / 读端线程使用，避免每帧 duplicate()。
+     */
+    private final ByteBuffer writeView;
+    private final ByteBuffer readView;
+    private final int slotCount;
+    private final int slotBytes;
+    private long nextRead;
+
+    private ShmRing(String path, MappedByteBuffer buffer, int slotCount, int slotBytes) {
+        this.path = path;
+        this.buffer = buffer;
+        this.writeView = buffer.duplicate();
+        this.readView = buffer.duplicate();
+        this.slotCount = slotCount;
+        this.slotBytes = slotBytes;
+    }
+
+    /**
+     * 创建（或重建）环形缓冲区文件并写入头部，由桥接层在启动时调用。
+     */
+    static ShmRing create(String path, int slotCount, int slotBytes) throws IOException {
+        long size = HEADER_BYTES + (long) slotCount * (SLOT_HEADER_BYTES + slotBytes);
+        File file = new File(path);
+        MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            raf.setLength(size);
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(OFF_SLOT_COUNT, slotCount);
+        buffer.putInt(OFF_SLOT_BYTES, slotBytes);
+        buffer.putInt(OFF_VERSION, VERSION);
+        buffer.putLong(OFF_WRITE_COUNT, 0L);
+        buffer.putLong(OFF_READ_COUNT, 0L);
+        buffer.putInt(OFF_READER_ATTACHED, 0);
+        FENCES.storeFence();
+        buffer.putInt(OFF_MAGIC, MAGIC);
+        return new ShmRing(path, buffer, slotCount, slotBytes);
+    }
+
+    String path() {
+        return path;
+    }
+
+    int slotBytes() {
+        return slotBytes;
+    }
+
+    boolean isReaderAttached() {
+        return buffer.getInt(OFF_READER_ATTACHED) != 0;
+    }
+
+    /**
+     * 写端：从 src 的 [offset, offset + length) 发布一帧。负载超过槽位容量时返回 false，由调用方决定如何处理。
+     * 会临时修改 src 的 position / limit，返回前恢复为 [0, 原 limit)。
+     */
+    boolean write(ByteBuffer src, int offset, int length) {
+        if (length > slotBytes) {
+            return false;
+        }
+        long k = buffer.getLong(OFF_WRITE_COUNT);
+        int slot = slotOffset(k);
+        buffer.putLong(slot, 2 * k + 1);
+        FENCES.storeFence();
+        buffer.putInt(slot + 8, length);
+        writeView.clear();
+        writeView.position(slot + SLOT_HEADER_BYTES);
+        int limit = src.limit();
+        src.limit(offset + length);
+        src.position(offset);
+        writeView.put(src);
+        src.limit(limit);
+        src.position(0);
+        FENCES.storeFence();
+        buffer.putLong(slot, 2 * k + 2);
+        buffer.putLong(OFF_WRITE_COUNT, k + 1);
+        return true;
+    }
+
+    /**
+     * 读端：从当前写入位置开始读取，忽略启动前残留的帧。
+     */
+    void skipToEnd() {
+        nextRead = buffer.getLong(OFF_WRITE_COUNT);
+    }
+
+    /**
+     * 读端：读取下一帧到 dst，返回负载长度；没有新帧时返回 -1。
+     * dst 长度必须不小于 slot_bytes。
+     */
+    int read(byte[] dst) {
+        while (true) {
+            long written = buffer.getLong(OFF_WRITE_COUNT);
+            FENCES.loadFence();
+            if (written <= nextRead) {
+                return -1;
+            }
+            if (written - nextRead > slotCount) {
+                nextRead = written - 1;
+            }
+            long k = nextRead;
+            int slot = slotOffset(k);
+            long seq = buffer.getLong(slot);
+            if (seq != 2 * k + 2) {
+                if (seq > 2 * k + 2) {
+                    // 槽位已被更新的帧覆盖，跳到最新一帧
+                    nextRead = buffer.getLong(OFF_WRITE_COUNT) - 1;
+                } else {
+                    // 槽位内容与 write_count 不一致（写端异常退出等），丢弃该帧
+                    nextRead = k + 1;
+                }
+                continue;
+            }
+            FENCES.loadFence();
+            int length = buffer.getInt(slot + 8);
+            if (length < 0 || length > slotBytes) {
+                nextRead = k + 1;
+                continue;
+            }
+            readView.clear();
+            readView.position(slot + SLOT_HEADER_BYTES);
+            readView.get(dst, 0, length);
+            FENCES.loadFence();
+            if (buffer.getLong(slot) != seq) {
+                continue;
+            }
+            nextRead = k + 1;
+            buffer.putLong(OFF_READ_COUNT, nextRead);
+            return length;
+        }
+    }
+
+    private int slotOffset(long k) {
+        return HEADER_BYTES + (int) (k % slotCount) * (SLOT_HEADER_BYTES + slotBytes);
+    }
+
+    /**
+     * 内存屏障。Java 8 没有 VarHandle，优先通过 MethodHandle 调用 sun.misc.Unsafe 的 fence（编译期不依赖 sun.misc），
+     * 不可用时退化为 volatile 读写（在 HotSpot 上同样能阻止重排）。
+     */
+    private static final class Fences {
+        private final MethodHandle storeFence;
+        private final MethodHandle loadFence;
+        private volatile int barrier;
+
+        private Fences() {
+            MethodHandle store = null;
+            MethodHandle load = null;
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field f = unsafeClass.getDeclaredField("theUnsafe");
+                f.setAccessible(true);
+                Object unsafe = f.get(null);
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                store = lookup.unreflect(unsafeClass.getMethod("storeFence")).bindTo(unsafe);
+                load = lookup.unreflect(unsafeClass.getMethod("loadFence")).bindTo(unsafe);
+            } catch (Throwable ignored) {
+                store = null;
+                load = null;
+            }
+            this.storeFence = store;
+            this.loadFence = load;
+        }
+
+        void storeFence() {
+            if (storeFence != null) {
+                try {
+                    storeFence.invokeExact();
+                    return;
+                } catch (Throwable ignored) {
+                }
+            }
+            barrier = 1;
+        }
+
+        void loadFence() {
+            if (loadFence != null) {
+                try {
+                    loadFence.invokeExact();
+                    return;
+                } catch (Throwable ignored) {
+                }
+            }
+            int ignored = barrier;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package sts.ai.bridge;
+
+import com.google.protobuf.CodedInputStream;
+import sts.ai.state.v1.GameAction;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 共享内存传输层，通过 -Dsts.ai.transport=shm 启用，适用于训练进程与游戏进程部署在同一台机器的场景。
+ * 负责：
+ * 1. 在 sts.ai.shm.dir（默认 /dev/shm）下创建两个 ShmRing 文件：
+ *    - sts-ai-&lt;name&gt;-state.ring：桥接层写、训练端读，负载为 GameState 的 Protobuf 编码
+ *    - sts-ai-&lt;name&gt;-action.ring：训练端写、桥接层读，负载为 GameAction 的 Protobuf 编码
+ *    name 默认取 sts.ai.port，保证同机多实例互不冲突
+ * 2. 状态帧直接从编码缓冲区写入映射内存（一次内存拷贝），不经过任何 Socket / TCP 分帧
+ * 3. 动作环由游戏线程在每帧开始时轮询（pollActions），不需要额外线程
+ * 4. 目录模式（见 Catalog）下，状态帧用到读端尚未收到的目录条目时先写入一个 "CATALOG" 控制帧；
+ *    读端（重新）接入后发送 CATALOG 动作，下一帧之前会重新写入完整目录
+ *
+ * 共享内存的读端即控制端；同时启用 tcp 时，所有 TCP 会话都只作为观察端。
+ */
+final class ShmTransport implements FrameTransport {
+    private final ShmRing stateRing;
+    private final ShmRing actionRing;
+    private final byte[] actionBuffer;
+    private long oversizedFrames = 0L;
+    /**
+     * 已写入状态环的目录条目数，以及对应的重发请求计数（见 Catalog.localResends），只由发布线程访问。
+     */
+    private int catalogSent = 0;
+    private int catalogResends = 0;
+
+    private ShmTransport(ShmRing stateRing, ShmRing actionRing) {
+        this.stateRing = stateRing;
+        this.actionRing = actionRing;
+        this.actionBuffer = new byte[actionRing.slotBytes()];
+    }
+
+    static ShmTransport open(String name) throws IOException {
+        String dir = System.getProperty("sts.ai.shm.dir", "/dev/shm");
+        int slots = Math.max(2, StsAIBridge.intProperty("sts.ai.shm.slots", 8));
+        int slotBytes = Math.max(1024, StsAIBridge.intProperty("sts.ai.shm.slotBytes", 512 * 1024));
+        ShmRing state = ShmRing.create(new File(dir, "sts-ai-" + name + "-state.ring").getPath(), slots, slotBytes);
+        ShmRing action = ShmRing.create(new File(dir, "sts-ai-" + name + "-action.ring").getPath(), slots, 4096);
+        action.skipToEnd();
+        System.out.println("[STS-AI-SHM] State ring: " + state.path() + ", action ring: " + action.path());
+        return new ShmTransport(state, action);
+    }
+
+    @Override
+    public boolean hasSessions() {
+        return stateRing.isReaderAttached();
+    }
+
+    @Override
+    public int sectionMask() {
+        return SectionMask.local();
+    }
+
+    @Override
+    public void publish(EncodedFrame frame) {
+        int resends = Catalog.localResends();
+        if (resends != catalogResends) {
+            catalogResends = resends;
+            catalogSent = 0;
+        }
+        if (frame.catalogSize() > catalogSent) {
+            int size = Catalog.size();
+            EncodedFrame catalog = FrameEncoder.encodeCatalog(catalogSent, size);
+            try {
+                write(catalog);
+            } finally {
+                catalog.release();
+            }
+            catalogSent = size;
+        }
+        write(frame);
+    }
+
+    private void write(EncodedFrame frame) {
+        if (!stateRing.write(frame.buffer, EncodedFrame.LENGTH_PREFIX_BYTES, frame.payloadLength())) {
+            oversizedFrames++;
+            System.out.println("[STS-AI-SHM] Frame of " + frame.payloadLength() + " bytes exceeds slot size "
+                    + stateRing.slotBytes() + ", dropped (total " + oversizedFrames + "). Raise -Dsts.ai.shm.slotBytes.");
+        }
+    }
+
+    /**
+     * 由游戏线程调用：把动作环中的新动作全部取出并放入动作队列。
+     */
+    void pollActions() {
+        int length;
+        while ((length = actionRing.read(actionBuffer)) >= 0) {
+            try {
+                StsAIBridge.enqueueAction(GameAction.parseFrom(CodedInputStream.newInstance(actionBuffer, 0, length)));
+            } catch (Exception e) {
+                System.out.println("[STS-AI-SHM] Failed to parse GameAction: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package sts.ai.bridge;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import sts.ai.state.v1.GameState;
+
+/**
+ * 两阶段快照的第二阶段：把 StateSnapshot 编码并发布到各传输层。
+ * 模式由 -Dsts.ai.snapshot.mode 指定：
+ * - async（默认）：由单个工作线程 STS-AI-Encoder 完成，游戏线程只负责抓取快照并交接
+ * - sync：在游戏线程内直接完成（旧版行为），便于用 -Dsts.ai.perf=true 对比两种模式下游戏线程的耗时
+ *
+ * 只用一个工作线程：帧必须按 seq 顺序发布，且共享内存环只允许单个写端，多线程并行构建后还需要重新排序，得不偿失。
+ * 快照对象池大小为 sts.ai.snapshot.poolSize（默认 4）；工作线程落后这么多帧时，游戏线程在 acquire() 上等待，
+ * 与传输层的 block 溢出策略一起形成背压。
+ *
+ * 编码方式由 -Dsts.ai.wire.encoder 指定：
+ * - streaming（默认）：WireEncoder 直接从快照写出线格式，不创建逐帧的消息对象
+ * - builder：先 toBuilder().build() 得到 GameState 再序列化（旧版行为）
+ * 两者输出逐字节一致。-Dsts.ai.wire.verify=true 时每帧额外用 builder 方式编码一次并比对，不一致时打印首个差异位置；
+ * 配合 -Dsts.ai.perf=true 可以直接对比两种方式下 build / encode 阶段的耗时与分配。
+ */
+final class SnapshotEncoder {
+    static final boolean ASYNC = !"sync".equalsIgnoreCase(System.getProperty("sts.ai.snapshot.mode", "async"));
+    /**
+     * 逐帧打印完整 GameState（-Dsts.ai.log.states=true 开启），仅用于调试，默认关闭。
+     */
+    private static final boolean LOG_STATES = Boolean.getBoolean("sts.ai.log.states");
+    static final boolean STREAMING = !"builder".equalsIgnoreCase(System.getProperty("sts.ai.wire.encoder", "streaming"));
+    private static final boolean VERIFY = Boolean.getBoolean("sts.ai.wire.verify");
+    /**
+     * 只在发布线程上使用（async 模式为工作线程，sync 模式为游戏线程），两者不会同时存在。
+     */
+    private static final WireEncoder WIRE = new WireEncoder();
+    private static final int POOL_SIZE = Math.max(2, StsAIBridge.intProperty("sts.ai.snapshot.poolSize", 4));
+
+    private static final ArrayBlockingQueue<StateSnapshot> free = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final ArrayBlockingQueue<StateSnapshot> pending = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static volatile FrameTransport[] transports = new FrameTransport[0];
+
+    static {
+        for (int i = 0; i < POOL_SIZE; i++) {
+            free.add(new StateSnapshot());
+        }
+    }
+
+    private SnapshotEncoder() {
+    }
+
+    /**
+     * 设置传输层并按需启动工作线程，由 StsAIBridge.initialize() 调用一次。
+     */
+    static void start(FrameTransport[] enabled) {
+        transports = enabled;
+        if (!ASYNC) {
+            return;
+        }
+        Thread t = new Thread(SnapshotEncoder::run);
+        t.setDaemon(true);
+        t.setName("STS-AI-Encoder");
+        t.start();
+    }
+
+    /**
+     * 游戏线程调用：取得一个空快照，工作线程积压 POOL_SIZE 帧时阻塞等待。
+     */
+    static StateSnapshot acquire() {
+        StateSnapshot snapshot = free.poll();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        try {
+            return free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new StateSnapshot();
+        }
+    }
+
+    /**
+     * 游戏线程调用：交出已填好的快照。async 模式下立即返回，sync 模式下在当前线程完成构建与发布。
+     */
+    static void submit(StateSnapshot snapshot) {
+        if (!ASYNC) {
+            process(snapshot, BridgePerf.GAME_THREAD);
+            return;
+        }
+        try {
+            pending.put(snapshot);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            recycle(snapshot);
+        }
+    }
+
+    private static void run() {
+        while (true) {
+            StateSnapshot snapshot;
+            try {
+                snapshot = pending.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            process(snapshot, BridgePerf.ENCODER);
+            BridgePerf.ENCODER.frameDone();
+        }
+    }
+
+    private static void process(StateSnapshot snapshot, BridgePerf perf) {
+        EncodedFrame frame = null;
+        try {
+            if (!StsAIBridge.hasConsumers()) {
+                return;
+            }
+            perf.begin();
+            snapshot.resolveRefs();
+            if (STREAMING) {
+                frame = FrameEncoder.encode(snapshot, WIRE);
+            } else {
+                GameState gameState = snapshot.toBuilder().build();
+                perf.end(BridgePerf.BUILD);
+                frame = FrameEncoder.encode(gameState);
+            }
+            frame.setCatalogSize(snapshot.catalogSize);
+            frame.setStateVersion(snapshot.stateVersion);
+            if (VERIFY && STREAMING) {
+                // 发布之前比对：此时帧只被本线程持有，缓冲区不会被 Selector / 管道线程移动或归还帧池
+                verify(snapshot, frame);
+            }
+            publish(frame);
+            perf.end(BridgePerf.ENCODE);
+            if (LOG_STATES) {
+                GameState gameState = frame.state() != null ? frame.state() : snapshot.toBuilder().build();
+                System.out.println("[STS-AI-PROTO] " + gameState.toString());
+            }
+        } catch (IOException e) {
+            System.out.println("[STS-AI-PROTO] Failed to encode GameState: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.out.println("[STS-AI-PROTO] Failed to build GameState " + snapshot.seq + ": " + e);
+        } finally {
+            if (frame != null) {
+                frame.release();
+            }
+            recycle(snapshot);
+        }
+    }
+
+    /**
+     * 交给所有有消费者的传输层。按 transports 顺序发布：共享内存在本线程内同步拷贝完成，之后才交给 Selector 线程，
+     * 保证帧缓冲区的 position / limit 不会被两个线程同时修改。
+     */
+    private static void publish(EncodedFrame frame) {
+        for (FrameTransport transport : transports) {
+            if (transport.hasSessions()) {
+                transport.publish(frame);
+            }
+        }
+    }
+
+    /**
+     * 用 builder 方式重新编码同一快照并与 WireEncoder 的输出逐字节比对，必须在 publish() 之前调用。
+     */
+    private static void verify(StateSnapshot snapshot, EncodedFrame frame) {
+        byte[] expected = snapshot.toBuilder().build().toByteArray();
+        ByteBuffer actual = frame.buffer.duplicate();
+        actual.limit(frame.length());
+        actual.position(EncodedFrame.LENGTH_PREFIX_BYTES);
+        int n = Math.min(expected.length, actual.remaining());
+        int diff = expected.length == actual.remaining() ? -1 : n;
+        for (int i = 0; i < n; i++) {
+            if (expected[i] != actual.get(EncodedFrame.LENGTH_PREFIX_BYTES + i)) {
+                diff = i;
+                break;
+            }
+        }
+        if (diff >= 0) {
+            System.out.println("[STS-AI-PROTO] Wire encoder mismatch at seq " + snapshot.seq + ": streaming "
+                    + actual.remaining() + " bytes, builder " + expected.length + " bytes, first difference at offset " + diff);
+        }
+    }
+
+    private static void recycle(StateSnapshot snapshot) {
+        snapshot.clear();
+        free.offer(snapshot);
+    }
+}
@@ -0,0 +1,256 @@
+package sts.ai.bridge;
+
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import com.megacrit.cardcrawl.cards.CardGroup;
+import com.megacrit.cardcrawl.characters.AbstractPlayer;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+import com.megacrit.cardcrawl.monsters.AbstractMonster;
+import com.megacrit.cardcrawl.monsters.MonsterGroup;
+import com.megacrit.cardcrawl.orbs.AbstractOrb;
+import com.megacrit.cardcrawl.potions.AbstractPotion;
+import com.megacrit.cardcrawl.powers.AbstractPower;
+import com.megacrit.cardcrawl.relics.AbstractRelic;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 决策相关游戏状态的 64 位哈希（GameState.state_hash），训练端用作置换表、回放去重与错题集的键。
+ * 覆盖：玩家数值 / 姿态 / 能力 / 充能球、遗物、药水、手牌、牌组、抽牌堆 / 弃牌堆 / 消耗堆、怪物（含意图与能力）、界面类型；
+ * 地图、商店、奖励、事件等界面内容不计入。
+ *
+ * 哈希直接读取游戏对象，与订阅掩码（见 SectionMask）无关：无论连接的会话订阅了哪些段、快照是否抓取了这些段，
+ * 同一游戏状态总是得到同一个值。手牌按基础数值（baseDamage / baseBlock / baseMagicNumber）计入，
+ * 不依赖只在订阅手牌时才执行的 calculateCardDamage。
+ *
+ * 每帧代价为 O(元素数)：逐个元素直接算出元素哈希（几次乘法与移位，字符串哈希已缓存），写入段的 long[] 槽位，不装箱、不分配。
+ * 只有合并是 Zobrist 式增量的：元素哈希与上一帧同一位置相同时跳过，变化时只异或掉旧键、异或进新键，
+ * 段变短时移除多出的位置，而不是每帧重新合并整段。状态哈希是各段值的异或。
+ * 有序段的键由（段种子，位置，元素哈希）混合得到；牌组与三个牌堆按多重集合计算（键与位置无关、按加法累积），洗牌不改变哈希。
+ *
+ * 元素哈希只用 int 字段与 String.hashCode()（算法由 Java 规范固定，且缓存在字符串对象上），枚举取 name()，
+ * 因此同一状态在不同进程、是否开启目录模式（见 Catalog）时得到相同的值。
+ * 只由游戏线程访问（captureSnapshot，包括 collectGameState 的中间状态）。
+ */
+final class StateHash {
+    private final Section player = new Section(0x1L, false);
+    private final Section playerPowers = new Section(0x2L, false);
+    private final Section orbs = new Section(0x3L, false);
+    private final Section relics = new Section(0x4L, false);
+    private final Section potions = new Section(0x5L, false);
+    private final Section hand = new Section(0x6L, false);
+    private final Section masterDeck = new Section(0x7L, true);
+    private final Section drawPile = new Section(0x8L, true);
+    private final Section discardPile = new Section(0x9L, true);
+    private final Section exhaustPile = new Section(0xAL, true);
+    private final Section monsters = new Section(0xBL, false);
+    private final Section screen = new Section(0xCL, false);
+    private final Section monsterPowers = new Section(0xDL, false);
+
+    /**
+     * 读取当前游戏对象更新各段，返回状态哈希。screenType 为本帧 captureSnapshot 判定的界面类型。
+     */
+    long update(AbstractPlayer p, String screenType) {
+        if (p != null) {
+            long h = combine(combine(combine(p.currentHealth, p.maxHealth), combine(p.gold, p.energy != null ? p.energy.energy : 0)),
+                    combine(p.currentBlock, AbstractDungeon.floorNum));
+            player.set(0, combine(h, str(p.stance != null ? p.stance.ID : "")));
+            player.truncate(1);
+        } else {
+            player.truncate(0);
+        }
+
+        int n = 0;
+        if (p != null && p.powers != null) {
+            for (int i = 0; i < p.powers.size(); i++) {
+                AbstractPower w = p.powers.get(i);
+                if (w != null) {
+                    playerPowers.set(n++, power(w, -1));
+                }
+            }
+        }
+        playerPowers.truncate(n);
+
+        n = 0;
+        if (p != null && p.orbs != null) {
+            for (int i = 0; i < p.orbs.size(); i++) {
+                AbstractOrb o = p.orbs.get(i);
+                if (o != null) {
+                    orbs.set(n++, combine(combine(str(o.ID), o.evokeAmount), o.passiveAmount));
+                }
+            }
+        }
+        orbs.truncate(n);
+
+        n = 0;
+        if (p != null && p.relics != null) {
+            for (int i = 0; i < p.relics.size(); i++) {
+                AbstractRelic r = p.relics.get(i);
+                if (r != null) {
+                    relics.set(n++, combine(str(r.relicId), r.counter));
+                }
+            }
+        }
+        relics.truncate(n);
+
+        n = 0;
+        if (p != null && p.potions != null) {
+            for (int i = 0; i < p.potions.size(); i++) {
+                AbstractPotion pt = p.potions.get(i);
+                if (pt != null) {
+                    potions.set(n++, str(pt.ID));
+                }
+            }
+        }
+        potions.truncate(n);
+
+        n = 0;
+        List<AbstractCard> cards = p != null && p.hand != null ? p.hand.group : null;
+        if (cards != null) {
+            for (int i = 0; i < cards.size(); i++) {
+                AbstractCard c = cards.get(i);
+                if (c != null) {
+                    long h = combine(combine(str(c.cardID), c.costForTurn), combine(c.baseDamage, c.baseBlock));
+                    hand.set(n++, combine(combine(h, c.baseMagicNumber),
+                            combine(c.timesUpgraded, (c.upgraded ? 1 : 0) | (c.exhaust ? 2 : 0))));
+                }
+            }
+        }
+        hand.truncate(n);
+
+        pile(masterDeck, p != null ? p.masterDeck : null);
+        pile(drawPile, p != null ? p.drawPile : null);
+        pile(discardPile, p != null ? p.discardPile : null);
+        pile(exhaustPile, p != null ? p.exhaustPile : null);
+
+        MonsterGroup group = AbstractDungeon.getMonsters();
+        List<AbstractMonster> ms = group != null ? group.monsters : null;
+        n = 0;
+        int k = 0;
+        if (ms != null) {
+            for (int i = 0; i < ms.size(); i++) {
+                AbstractMonster m = ms.get(i);
+                if (m == null) {
+                    continue;
+                }
+                long h = combine(combine(str(m.id), m.currentHealth), combine(m.maxHealth, m.currentBlock));
+                monsters.set(n, combine(combine(h, str(m.intent != null ? m.intent.name() : null)), m.isEscaping || m.isDead ? 1 : 0));
+                if (m.powers != null) {
+                    for (int j = 0; j < m.powers.size(); j++) {
+                        AbstractPower w = m.powers.get(j);
+                        if (w != null) {
+                            monsterPowers.set(k++, power(w, n));
+                        }
+                    }
+                }
+                n++;
+            }
+        }
+        monsters.truncate(n);
+        monsterPowers.truncate(k);
+
+        screen.set(0, str(screenType != null ? screenType : "NONE"));
+        screen.truncate(1);
+
+        return player.value ^ playerPowers.value ^ orbs.value ^ relics.value ^ potions.value ^ hand.value
+                ^ masterDeck.value ^ drawPile.value ^ discardPile.value ^ exhaustPile.value ^ monsters.value
+                ^ monsterPowers.value ^ screen.value;
+    }
+
+    /**
+     * 牌组与三个牌堆：卡牌 ID、升级次数、费用与 misc（如 Genetic Algorithm 的成长值）。
+     */
+    private static void pile(Section section, CardGroup group) {
+        List<AbstractCard> cards = group != null ? group.group : null;
+        int n = 0;
+        if (cards != null) {
+            for (int i = 0; i < cards.size(); i++) {
+                AbstractCard c = cards.get(i);
+                if (c != null) {
+                    section.set(n++, combine(combine(str(c.cardID), c.timesUpgraded), combine(c.cost, c.misc)));
+                }
+            }
+        }
+        section.truncate(n);
+    }
+
+    /**
+     * 能力：ID 与层数。owner 为所属怪物序号（玩家能力为 -1），能力在怪物之间转移也会改变哈希。
+     */
+    private static long power(AbstractPower w, int owner) {
+        return combine(combine(str(w.ID), w.amount), owner);
+    }
+
+    private static long str(String s) {
+        return s != null ? s.hashCode() : 0L;
+    }
+
+    private static long combine(long h, long v) {
+        return mix(h * 0x9E3779B97F4A7C15L + v);
+    }
+
+    /**
+     * SplitMix64 的终混函数。
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 一个段：slots 为上一次每个位置的元素哈希，value 为各位置键的异或（多重集合段为和）。
+     * set() 必须按位置 0, 1, 2... 依次调用，最后 truncate(本次长度)。
+     */
+    private static final class Section {
+        private final long seed;
+        private final boolean multiset;
+        private long[] slots = new long[16];
+        private int size;
+        private long value;
+
+        Section(long seed, boolean multiset) {
+            this.seed = mix(seed);
+            this.multiset = multiset;
+        }
+
+        void set(int i, long h) {
+            if (i < size) {
+                long old = slots[i];
+                if (old == h) {
+                    return;
+                }
+                drop(i, old);
+            } else {
+                if (i == slots.length) {
+                    slots = Arrays.copyOf(slots, slots.length * 2);
+                }
+                size = i + 1;
+            }
+            slots[i] = h;
+            if (multiset) {
+                value += key(i, h);
+            } else {
+                value ^= key(i, h);
+            }
+        }
+
+        void truncate(int n) {
+            for (int i = n; i < size; i++) {
+                drop(i, slots[i]);
+            }
+            size = Math.min(size, n);
+        }
+
+        private void drop(int i, long h) {
+            if (multiset) {
+                value -= key(i, h);
+            } else {
+                value ^= key(i, h);
+            }
+        }
+
+        private long key(int i, long h) {
+            return mix(seed ^ (multiset ? h : combine(i, h)));
+        }
+    }
+}
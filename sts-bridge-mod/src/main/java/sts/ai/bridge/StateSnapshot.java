@@ -0,0 +1,494 @@
+package sts.ai.bridge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import sts.ai.state.v1.BatchResult;
+import sts.ai.state.v1.CardState;
+import sts.ai.state.v1.DungeonMapState;
+import sts.ai.state.v1.EventState;
+import sts.ai.state.v1.GameOutcome;
+import sts.ai.state.v1.GameState;
+import sts.ai.state.v1.MonsterState;
+import sts.ai.state.v1.OrbState;
+import sts.ai.state.v1.PlayerState;
+import sts.ai.state.v1.PotionState;
+import sts.ai.state.v1.PowerState;
+import sts.ai.state.v1.RelicState;
+import sts.ai.state.v1.RestSiteState;
+import sts.ai.state.v1.RewardState;
+import sts.ai.state.v1.ShopState;
+
+/**
+ * 两阶段快照的第一阶段产物：游戏线程只把本帧需要的字段抄进扁平数组（int / boolean / 游戏对象上已有的 String 引用），
+ * 由 SnapshotEncoder 的工作线程调用 toBuilder() 构建 Protobuf 并编码。
+ *
+ * 以下部分在游戏线程上直接以不可变消息形式保存：
+ * - 牌组、遗物、地图：来自 SectionCache，未变化时只是复用已有对象
+ * - 奖励、商店、篝火、事件、终局、批量结果：只在非战斗界面或单帧出现，且需要通过反射读取游戏对象
+ *
+ * 目录模式（见 Catalog）下，发布线程在构建前调用 resolveRefs()，把各列的字符串换成 ref 列并清空字符串，
+ * 之后 toBuilder() 与 WireEncoder 只写出 ref。
+ *
+ * 快照对象由 SnapshotEncoder 池化复用，数组只增不减，稳态下不分配。
+ * 写入（capture）只在游戏线程，读取（toBuilder）只在持有该快照的线程，两者通过交接队列建立 happens-before。
+ */
+final class StateSnapshot {
+    long seq;
+    long ackActionId;
+    boolean actionRejected;
+    BatchResult batchResult;
+    /**
+     * 抓取时使用的订阅掩码（见 SectionMask），未订阅的 player 段不写入 GameState。
+     */
+    int sections = SectionMask.ALL;
+
+    int hp;
+    int maxHp;
+    int gold;
+    int energy;
+    int block;
+    int floor;
+    String stance;
+    final Powers playerPowers = new Powers();
+    final ArrayList<RelicState> relics = new ArrayList<>();
+    final Orbs orbs = new Orbs();
+
+    final ArrayList<CardState> masterDeck = new ArrayList<>();
+    final Cards hand = new Cards();
+    final Monsters monsters = new Monsters();
+    final Potions potions = new Potions();
+
+    DungeonMapState map;
+    String screenType;
+    int screenTypeRef;
+    /**
+     * resolveRefs() 之后的目录大小，本帧引用的 ref 都小于它；非目录模式下为 0。
+     */
+    int catalogSize;
+    /**
+     * 抓取时由 StateHash 算出的状态哈希。
+     */
+    long stateHash;
+    /**
+     * 抓取时的决策状态版本号（见 DecisionPoint.version）。
+     */
+    long stateVersion;
+    GameOutcome gameOutcome;
+    RewardState reward;
+    ShopState shop;
+    RestSiteState restSite;
+    EventState event;
+
+    /**
+     * 清空本帧内容，保留数组容量。释放对消息与字符串的引用，避免池中快照长期持有旧对象。
+     */
+    void clear() {
+        seq = 0L;
+        ackActionId = 0L;
+        actionRejected = false;
+        batchResult = null;
+        sections = SectionMask.ALL;
+        stance = null;
+        playerPowers.clear();
+        relics.clear();
+        orbs.clear();
+        masterDeck.clear();
+        hand.clear();
+        monsters.clear();
+        potions.clear();
+        map = null;
+        screenType = null;
+        screenTypeRef = 0;
+        catalogSize = 0;
+        stateHash = 0L;
+        stateVersion = 0L;
+        gameOutcome = null;
+        reward = null;
+        shop = null;
+        restSite = null;
+        event = null;
+    }
+
+    /**
+     * 目录模式下把本帧各列的字符串登记为 ref 并清空字符串，只在发布线程（或 collectGameState）上、构建前调用一次。
+     * 非目录模式下什么也不做。
+     */
+    void resolveRefs() {
+        if (Catalog.ENABLED) {
+            internRefs();
+        }
+    }
+
+    /**
+     * resolveRefs() 的实际转换，不检查目录模式开关（测试直接调用以得到目录模式下的快照）。
+     */
+    void internRefs() {
+        playerPowers.resolveRefs();
+        orbs.resolveRefs();
+        hand.resolveRefs();
+        monsters.resolveRefs();
+        potions.resolveRefs();
+        screenTypeRef = Catalog.ref(Catalog.SCREEN_TYPE, screenType != null ? screenType : "NONE", "");
+        screenType = "";
+        catalogSize = Catalog.size();
+    }
+
+    GameState.Builder toBuilder() {
+        GameState.Builder builder = GameState.newBuilder()
+                .addAllMasterDeck(masterDeck);
+        if (SectionMask.has(sections, GameState.PLAYER_FIELD_NUMBER)) {
+            builder.setPlayer(buildPlayer());
+        }
+
+        for (int i = 0; i < hand.size; i++) {
+            builder.addHand(CardState.newBuilder()
+                    .setId(str(hand.id[i]))
+                    .setName(str(hand.name[i]))
+                    .setCost(hand.cost[i])
+                    .setType(str(hand.type[i]))
+                    .setDamage(hand.damage[i])
+                    .setTarget(str(hand.target[i]))
+                    .setBlock(hand.block[i])
+                    .setIsUpgraded(hand.upgraded[i])
+                    .setMagicNumber(hand.magicNumber[i])
+                    .setExhaust(hand.exhaust[i])
+                    .setIsPlayable(hand.playable[i])
+                    .setRef(hand.ref[i])
+                    .setTypeRef(hand.typeRef[i])
+                    .setTargetRef(hand.targetRef[i])
+                    .build());
+        }
+
+        for (int i = 0; i < monsters.size; i++) {
+            MonsterState.Builder monster = MonsterState.newBuilder()
+                    .setId(str(monsters.id[i]))
+                    .setName(str(monsters.name[i]))
+                    .setHp(monsters.hp[i])
+                    .setMaxHp(monsters.maxHp[i])
+                    .setIntent(str(monsters.intent[i]))
+                    .setBlock(monsters.block[i])
+                    .setIsGone(monsters.gone[i])
+                    .setRef(monsters.ref[i])
+                    .setIntentRef(monsters.intentRef[i]);
+            for (int p = monsters.powersFrom[i]; p < monsters.powersTo[i]; p++) {
+                monster.addPowers(monsters.powers.build(p));
+            }
+            builder.addMonsters(monster.build());
+        }
+
+        for (int i = 0; i < potions.size; i++) {
+            builder.addPotions(PotionState.newBuilder()
+                    .setId(str(potions.id[i]))
+                    .setName(str(potions.name[i]))
+                    .setSlotIndex(i)
+                    .setIsUsable(potions.usable[i])
+                    .setCanTarget(potions.canTarget[i])
+                    .setRef(potions.ref[i])
+                    .build());
+        }
+
+        if (map != null) {
+            builder.setMap(map);
+        }
+        if (gameOutcome != null) {
+            builder.setGameOutcome(gameOutcome);
+        }
+        if (reward != null) {
+            builder.setReward(reward);
+        }
+        if (shop != null) {
+            builder.setShop(shop);
+        }
+        if (restSite != null) {
+            builder.setRestSite(restSite);
+        }
+        if (event != null) {
+            builder.setEvent(event);
+        }
+        builder.setScreenType(screenType != null ? screenType : "NONE");
+
+        if (batchResult != null) {
+            builder.setBatchResult(batchResult);
+        }
+        return builder.setAckActionId(ackActionId)
+                .setActionRejected(actionRejected)
+                .setSeq(seq)
+                .setScreenTypeRef(screenTypeRef)
+                .setStateHash(stateHash)
+                .setStateVersion(stateVersion);
+    }
+
+    private PlayerState buildPlayer() {
+        PlayerState.Builder player = PlayerState.newBuilder()
+                .setHp(hp)
+                .setMaxHp(maxHp)
+                .setGold(gold)
+                .setEnergy(energy)
+                .setBlock(block)
+                .setFloor(floor)
+                .setStance(stance != null ? stance : "")
+                .addAllRelics(relics);
+        for (int i = 0; i < playerPowers.size; i++) {
+            player.addPowers(playerPowers.build(i));
+        }
+        for (int i = 0; i < orbs.size; i++) {
+            player.addOrbs(OrbState.newBuilder()
+                    .setId(str(orbs.id[i]))
+                    .setName(str(orbs.name[i]))
+                    .setEvokeAmount(orbs.evokeAmount[i])
+                    .setPassiveAmount(orbs.passiveAmount[i])
+                    .setRef(orbs.ref[i])
+                    .build());
+        }
+        return player.build();
+    }
+
+    private static String str(String value) {
+        return value != null ? value : "";
+    }
+
+    private static int grow(int length, int needed) {
+        return Math.max(needed, Math.max(8, length * 2));
+    }
+
+    static final class Powers {
+        int size;
+        String[] id = new String[8];
+        String[] name = new String[8];
+        int[] amount = new int[8];
+        int[] ref = new int[8];
+
+        void add(String id, String name, int amount) {
+            if (size == this.id.length) {
+                int capacity = grow(size, size + 1);
+                this.id = Arrays.copyOf(this.id, capacity);
+                this.name = Arrays.copyOf(this.name, capacity);
+                this.amount = Arrays.copyOf(this.amount, capacity);
+                this.ref = Arrays.copyOf(this.ref, capacity);
+            }
+            this.id[size] = id;
+            this.name[size] = name;
+            this.amount[size] = amount;
+            size++;
+        }
+
+        PowerState build(int i) {
+            return PowerState.newBuilder()
+                    .setId(str(id[i]))
+                    .setName(str(name[i]))
+                    .setAmount(amount[i])
+                    .setRef(ref[i])
+                    .build();
+        }
+
+        void resolveRefs() {
+            for (int i = 0; i < size; i++) {
+                ref[i] = Catalog.ref(Catalog.POWER, id[i], name[i]);
+                id[i] = null;
+                name[i] = null;
+            }
+        }
+
+        void clear() {
+            Arrays.fill(id, 0, size, null);
+            Arrays.fill(name, 0, size, null);
+            size = 0;
+        }
+    }
+
+    static final class Orbs {
+        int size;
+        String[] id = new String[8];
+        String[] name = new String[8];
+        int[] evokeAmount = new int[8];
+        int[] passiveAmount = new int[8];
+        int[] ref = new int[8];
+
+        void add(String id, String name, int evokeAmount, int passiveAmount) {
+            if (size == this.id.length) {
+                int capacity = grow(size, size + 1);
+                this.id = Arrays.copyOf(this.id, capacity);
+                this.name = Arrays.copyOf(this.name, capacity);
+                this.evokeAmount = Arrays.copyOf(this.evokeAmount, capacity);
+                this.passiveAmount = Arrays.copyOf(this.passiveAmount, capacity);
+                this.ref = Arrays.copyOf(this.ref, capacity);
+            }
+            this.id[size] = id;
+            this.name[size] = name;
+            this.evokeAmount[size] = evokeAmount;
+            this.passiveAmount[size] = passiveAmount;
+            size++;
+        }
+
+        void resolveRefs() {
+            for (int i = 0; i < size; i++) {
+                ref[i] = Catalog.ref(Catalog.ORB, id[i], name[i]);
+                id[i] = null;
+                name[i] = null;
+            }
+        }
+
+        void clear() {
+            Arrays.fill(id, 0, size, null);
+            Arrays.fill(name, 0, size, null);
+            size = 0;
+        }
+    }
+
+    static final class Cards {
+        int size;
+        String[] id = new String[16];
+        String[] name = new String[16];
+        String[] type = new String[16];
+        String[] target = new String[16];
+        int[] cost = new int[16];
+        int[] damage = new int[16];
+        int[] block = new int[16];
+        int[] magicNumber = new int[16];
+        boolean[] upgraded = new boolean[16];
+        boolean[] exhaust = new boolean[16];
+        boolean[] playable = new boolean[16];
+        int[] ref = new int[16];
+        int[] typeRef = new int[16];
+        int[] targetRef = new int[16];
+
+        /**
+         * 追加一张牌，返回其下标，调用方随后直接写入各列。
+         */
+        int add() {
+            if (size == id.length) {
+                int capacity = grow(size, size + 1);
+                id = Arrays.copyOf(id, capacity);
+                name = Arrays.copyOf(name, capacity);
+                type = Arrays.copyOf(type, capacity);
+                target = Arrays.copyOf(target, capacity);
+                cost = Arrays.copyOf(cost, capacity);
+                damage = Arrays.copyOf(damage, capacity);
+                block = Arrays.copyOf(block, capacity);
+                magicNumber = Arrays.copyOf(magicNumber, capacity);
+                upgraded = Arrays.copyOf(upgraded, capacity);
+                exhaust = Arrays.copyOf(exhaust, capacity);
+                playable = Arrays.copyOf(playable, capacity);
+                ref = Arrays.copyOf(ref, capacity);
+                typeRef = Arrays.copyOf(typeRef, capacity);
+                targetRef = Arrays.copyOf(targetRef, capacity);
+            }
+            return size++;
+        }
+
+        void resolveRefs() {
+            for (int i = 0; i < size; i++) {
+                ref[i] = Catalog.ref(Catalog.CARD, id[i], name[i]);
+                typeRef[i] = type[i] != null ? Catalog.ref(Catalog.CARD_TYPE, type[i], "") : 0;
+                targetRef[i] = target[i] != null ? Catalog.ref(Catalog.CARD_TARGET, target[i], "") : 0;
+                id[i] = null;
+                name[i] = null;
+                type[i] = null;
+                target[i] = null;
+            }
+        }
+
+        void clear() {
+            Arrays.fill(id, 0, size, null);
+            Arrays.fill(name, 0, size, null);
+            Arrays.fill(type, 0, size, null);
+            Arrays.fill(target, 0, size, null);
+            size = 0;
+        }
+    }
+
+    static final class Monsters {
+        int size;
+        String[] id = new String[8];
+        String[] name = new String[8];
+        String[] intent = new String[8];
+        int[] hp = new int[8];
+        int[] maxHp = new int[8];
+        int[] block = new int[8];
+        boolean[] gone = new boolean[8];
+        /**
+         * 第 i 个怪物的能力在 powers 中的区间 [powersFrom[i], powersTo[i])。
+         */
+        int[] powersFrom = new int[8];
+        int[] powersTo = new int[8];
+        int[] ref = new int[8];
+        int[] intentRef = new int[8];
+        final Powers powers = new Powers();
+
+        int add() {
+            if (size == id.length) {
+                int capacity = grow(size, size + 1);
+                id = Arrays.copyOf(id, capacity);
+                name = Arrays.copyOf(name, capacity);
+                intent = Arrays.copyOf(intent, capacity);
+                hp = Arrays.copyOf(hp, capacity);
+                maxHp = Arrays.copyOf(maxHp, capacity);
+                block = Arrays.copyOf(block, capacity);
+                gone = Arrays.copyOf(gone, capacity);
+                powersFrom = Arrays.copyOf(powersFrom, capacity);
+                powersTo = Arrays.copyOf(powersTo, capacity);
+                ref = Arrays.copyOf(ref, capacity);
+                intentRef = Arrays.copyOf(intentRef, capacity);
+            }
+            return size++;
+        }
+
+        void resolveRefs() {
+            for (int i = 0; i < size; i++) {
+                ref[i] = Catalog.ref(Catalog.MONSTER, id[i], name[i]);
+                intentRef[i] = intent[i] != null ? Catalog.ref(Catalog.INTENT, intent[i], "") : 0;
+                id[i] = null;
+                name[i] = null;
+                intent[i] = null;
+            }
+            powers.resolveRefs();
+        }
+
+        void clear() {
+            Arrays.fill(id, 0, size, null);
+            Arrays.fill(name, 0, size, null);
+            Arrays.fill(intent, 0, size, null);
+            powers.clear();
+            size = 0;
+        }
+    }
+
+    static final class Potions {
+        int size;
+        String[] id = new String[8];
+        String[] name = new String[8];
+        boolean[] usable = new boolean[8];
+        boolean[] canTarget = new boolean[8];
+        int[] ref = new int[8];
+
+        void add(String id, String name, boolean usable, boolean canTarget) {
+            if (size == this.id.length) {
+                int capacity = grow(size, size + 1);
+                this.id = Arrays.copyOf(this.id, capacity);
+                this.name = Arrays.copyOf(this.name, capacity);
+                this.usable = Arrays.copyOf(this.usable, capacity);
+                this.canTarget = Arrays.copyOf(this.canTarget, capacity);
+                this.ref = Arrays.copyOf(this.ref, capacity);
+            }
+            this.id[size] = id;
+            this.name[size] = name;
+            this.usable[size] = usable;
+            this.canTarget[size] = canTarget;
+            size++;
+        }
+
+        void resolveRefs() {
+            for (int i = 0; i < size; i++) {
+                ref[i] = Catalog.ref(Catalog.POTION, id[i], name[i]);
+                id[i] = null;
+                name[i] = null;
+            }
+        }
+
+        void clear() {
+            Arrays.fill(id, 0, size, null);
+            Arrays.fill(name, 0, size, null);
+            size = 0;
+        }
+    }
+}
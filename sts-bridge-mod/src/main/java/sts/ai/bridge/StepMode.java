@@ -0,0 +1,93 @@
+package sts.ai.bridge;
+
+import sts.ai.state.v1.GameAction;
+
+/**
+ * 锁步（step）模式，通过 -Dsts.ai.emit.mode=step 开启。
+ * 约定：
+ * 1. 客户端每发送一条 GameAction，桥接层恰好应答一帧 GameState，不会推送任何其它状态帧
+ * 2. 应答帧在动作完全结算、游戏重新等待输入（稳定帧）且决策点已变化时发送
+ * 3. 被忽略的动作（越界、能量不足、界面不符等）同样应答一帧，并置 action_rejected = true
+ * 4. 应答未发出前不会从队列中取下一条动作，客户端可以提前排队
+ * 5. NOOP 动作不改变游戏状态，仅请求在下一个稳定帧应答当前状态（用于连接后获取初始观测）
+ *
+ * 应答帧通过 ack_action_id 回显 GameAction.action_id，便于客户端核对。
+ * 所有方法只允许在游戏主线程中调用。
+ */
+final class StepMode {
+    static final boolean ENABLED = "step".equalsIgnoreCase(System.getProperty("sts.ai.emit.mode", "event"));
+
+    /**
+     * 动作被接受后等待决策点变化的最大帧数，超时后即使签名未变也应答当前状态，避免客户端永久阻塞。批量动作同样使用该上限。
+     */
+    static final int TIMEOUT_FRAMES = Math.max(1, StsAIBridge.intProperty("sts.ai.step.timeoutFrames", 180));
+
+    private static boolean pending = false;
+    private static boolean immediate = false;
+    private static boolean rejected = false;
+    private static long pendingActionId = 0L;
+    private static long signatureBefore = 0L;
+    private static int waitedFrames = 0;
+
+    private StepMode() {
+    }
+
+    static boolean isPending() {
+        return pending;
+    }
+
+    /**
+     * 每帧调用一次，累计等待帧数。
+     */
+    static void onFrame() {
+        if (pending) {
+            waitedFrames++;
+        }
+    }
+
+    static void onAccepted(GameAction action, long signature) {
+        begin(action);
+        signatureBefore = signature;
+    }
+
+    static void onRejected(GameAction action) {
+        begin(action);
+        immediate = true;
+        rejected = true;
+    }
+
+    static void onNoop(GameAction action) {
+        begin(action);
+        immediate = true;
+    }
+
+    /**
+     * 在稳定帧上、DecisionPoint.observe() 之后调用，判断是否应当发送应答帧。
+     */
+    static boolean readyToRespond() {
+        if (!pending || !DecisionPoint.isSettled()) {
+            return false;
+        }
+        return immediate
+                || DecisionPoint.current() != signatureBefore
+                || waitedFrames >= TIMEOUT_FRAMES;
+    }
+
+    /**
+     * 为应答帧写入 ack 字段，并结束本次等待。
+     */
+    static void completeResponse(StateSnapshot snapshot) {
+        snapshot.ackActionId = pendingActionId;
+        snapshot.actionRejected = rejected;
+        pending = false;
+    }
+
+    private static void begin(GameAction action) {
+        pending = true;
+        immediate = false;
+        rejected = false;
+        pendingActionId = action.getActionId();
+        signatureBefore = 0L;
+        waitedFrames = 0;
+    }
+}
@@ -18,7 +18,6 @@ import org.apache.logging.log4j.Logger;
 import com.megacrit.cardcrawl.map.MapEdge;
 import com.megacrit.cardcrawl.map.MapRoomNode;
 import com.megacrit.cardcrawl.rewards.RewardItem;
-import java.lang.reflect.Field;
 import com.megacrit.cardcrawl.shop.ShopScreen;
 import com.megacrit.cardcrawl.potions.AbstractPotion;
 import com.megacrit.cardcrawl.core.CardCrawlGame;
@@ -27,12 +26,7 @@ import com.megacrit.cardcrawl.screens.VictoryScreen;
 import java.util.ArrayList;
 import sts.ai.state.v1.*;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.net.BindException;
-import java.net.ServerSocket;
-import java.net.Socket;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
@@ -40,8 +34,8 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  * 负责：
  * 1. 提供 ModTheSpire 入口（@SpireInitializer + initialize）
  * 2. 在初始化阶段输出心跳日志，验证 Mod 是否被正确加载
- * 3. 通过对 AbstractDungeon.update 的 Patch，周期性采集玩家关键数据（血量、金币）
- * 后续 Protobuf 序列化会在此处接入，将这些数据发送到外部训练 / 推理进程。
+ * 3. 通过对 AbstractDungeon.update 的 Patch，在稳定决策点采集 GameState 并序列化为 Protobuf
+ * 4. 启动 BridgeServer（NIO Socket 服务），将状态发送到外部训练 / 推理进程，并接收控制端的 GameAction
  */
 @SpireInitializer
 public class StsAIBridge {
@@ -52,18 +46,177 @@ public class StsAIBridge {
     private static Logger logger;
 
     private static volatile boolean socketServerStarted = false;
-    private static ServerSocket serverSocket;
-    private static volatile Socket clientSocket;
-    private static volatile DataInputStream clientIn;
-    private static volatile DataOutputStream clientOut;
+
+    /**
+     * 已启用的传输层，由 -Dsts.ai.transport 指定（逗号分隔，可选 tcp、shm，默认 tcp）。
+     * 初始化完成后不再修改，游戏线程直接遍历。
+     */
+    private static volatile FrameTransport[] transports = new FrameTransport[0];
+    private static volatile ShmTransport shmTransport;
     private static final ConcurrentLinkedQueue<GameAction> actionQueue = new ConcurrentLinkedQueue<>();
 
     /**
      * 数据采样的时间间隔（毫秒）。
-     * 目前简单地使用 System.currentTimeMillis 做节流，后续可以根据采样频率需求动态调整。
+     * 仅在 interval 推送模式下生效（-Dsts.ai.emit.mode=interval），保留旧版按固定窗口采样的行为。
      */
     private static final long LOG_INTERVAL_MS = 3000L;
 
+    /**
+     * 状态推送模式：
+     * - event（默认）：每个新的稳定决策点只推送一次，见 DecisionPoint
+     * - interval：旧版行为，稳定帧上每 LOG_INTERVAL_MS 推送一次
+     * - step：锁步模式，每条动作恰好应答一帧，见 StepMode
+     */
+    private static final boolean EMIT_INTERVAL_MODE = "interval".equalsIgnoreCase(System.getProperty("sts.ai.emit.mode", "event"));
+
+    /**
+     * 要求在下一个稳定帧无条件推送一次当前状态（例如新客户端接入时），由 Socket 线程置位、游戏线程消费。
+     */
+    private static volatile boolean forceEmit = false;
+
+    /**
+     * 上一帧是否处于无消费者的空闲状态，只由游戏线程访问。消费者接入时据此补发一次当前状态。
+     */
+    private static boolean idle = false;
+
+    /**
+     * 最近一次发送的 GameState.seq，只由游戏线程修改。
+     */
+    private static long frameSeq = 0L;
+
+    /**
+     * 逐条动作日志（-Dsts.ai.log.actions=true 开启）。默认关闭，高频动作下避免在游戏线程上拼接和打印字符串。
+     */
+    private static final boolean LOG_ACTIONS = Boolean.getBoolean("sts.ai.log.actions");
+
+    /**
+     * collectGameState() 专用的快照，只由游戏线程使用，不进入 SnapshotEncoder 的对象池。
+     */
+    private static final StateSnapshot scratchSnapshot = new StateSnapshot();
+
+    /**
+     * 牌组、遗物、地图在一幕内很少变化，按元素缓存已构建的子消息，未变化的元素跨帧复用（见 SectionCache）。
+     * 只由游戏线程访问。
+     */
+    private static final SectionCache<AbstractCard, CardState> masterDeckCache = new SectionCache<AbstractCard, CardState>(3, 5) {
+        @Override
+        void key(AbstractCard c, Object[] refs, int[] ints) {
+            refs[0] = c;
+            refs[1] = c.name;
+            refs[2] = c.type;
+            ints[0] = c.cost;
+            ints[1] = c.baseDamage;
+            ints[2] = c.baseBlock;
+            ints[3] = c.magicNumber;
+            ints[4] = (c.upgraded ? 1 : 0) | (c.exhaust ? 2 : 0);
+        }
+
+        @Override
+        CardState build(AbstractCard c) {
+            return cardIdentity(c)
+                    .setCost(c.cost)
+                    .setDamage(c.baseDamage)
+                    .setBlock(c.baseBlock)
+                    .setIsUpgraded(c.upgraded)
+                    .setMagicNumber(c.magicNumber)
+                    .setExhaust(c.exhaust)
+                    .build();
+        }
+    };
+
+    private static final SectionCache<AbstractRelic, RelicState> relicCache = new SectionCache<AbstractRelic, RelicState>(1, 1) {
+        @Override
+        void key(AbstractRelic r, Object[] refs, int[] ints) {
+            refs[0] = r;
+            ints[0] = r.counter;
+        }
+
+        @Override
+        RelicState build(AbstractRelic r) {
+            return relicIdentity(r)
+                    .setCounter(r.counter)
+                    .build();
+        }
+    };
+
+    /**
+     * 决策状态哈希的增量状态（见 StateHash），只由游戏线程访问。
+     */
+    private static final StateHash stateHash = new StateHash();
+
+    private static final SectionCache<MapRoomNode, MapNodeState> mapNodeCache = new SectionCache<MapRoomNode, MapNodeState>(2, 1) {
+        @Override
+        void key(MapRoomNode node, Object[] refs, int[] ints) {
+            // 进入未知房间（?）时 node.room 会被替换为实际房间
+            refs[0] = node;
+            refs[1] = node.room;
+            ints[0] = node.getEdges() != null ? node.getEdges().size() : -1;
+        }
+
+        @Override
+        MapNodeState build(MapRoomNode node) {
+            String roomType = node.room != null ? node.room.getClass().getSimpleName() : "Unknown";
+            MapNodeState.Builder nodeBuilder = MapNodeState.newBuilder()
+                    .setX(node.x)
+                    .setY(node.y)
+                    .setIsAvailable(true); // Simplified availability check for now
+            if (Catalog.ENABLED) {
+                nodeBuilder.setRoomTypeRef(Catalog.ref(Catalog.ROOM_TYPE, roomType, ""));
+            } else {
+                nodeBuilder.setRoomType(roomType);
+            }
+
+            if (node.getEdges() != null) {
+                for (MapEdge edge : node.getEdges()) {
+                    nodeBuilder.addChildren(MapEdgeState.newBuilder()
+                            .setDstX(edge.dstX)
+                            .setDstY(edge.dstY)
+                            .build());
+                }
+            }
+            return nodeBuilder.build();
+        }
+    };
+
+    /**
+     * 牌组、奖励、商店中卡牌的标识字段：目录模式下只写 ref 与 type_ref（见 Catalog），否则写 id / name / type 字符串。
+     * 目录模式下在游戏线程上登记，之后由发布线程写出的帧的 catalogSize 一定覆盖这些 ref。
+     */
+    private static CardState.Builder cardIdentity(AbstractCard c) {
+        if (Catalog.ENABLED) {
+            return CardState.newBuilder()
+                    .setRef(Catalog.ref(Catalog.CARD, c.cardID, c.name))
+                    .setTypeRef(c.type != null ? Catalog.ref(Catalog.CARD_TYPE, c.type.name(), "") : 0);
+        }
+        return CardState.newBuilder()
+                .setId(c.cardID == null ? "" : c.cardID)
+                .setName(c.name == null ? "" : c.name)
+                .setType(c.type != null ? c.type.name() : "");
+    }
+
+    private static RelicState.Builder relicIdentity(AbstractRelic r) {
+        if (Catalog.ENABLED) {
+            return RelicState.newBuilder().setRef(Catalog.ref(Catalog.RELIC, r.relicId, r.name));
+        }
+        return RelicState.newBuilder()
+                .setId(r.relicId)
+                .setName(r.name);
+    }
+
+    private static PotionState.Builder potionIdentity(AbstractPotion p) {
+        if (Catalog.ENABLED) {
+            return PotionState.newBuilder().setRef(Catalog.ref(Catalog.POTION, p.ID, p.name));
+        }
+        return PotionState.newBuilder()
+                .setId(p.ID)
+                .setName(p.name);
+    }
+
+    /**
+     * 上一帧的地图消息，节点、楼层与 Boss 均未变化时整段复用。
+     */
+    private static DungeonMapState lastMapState;
+
     /**
      * Mod 入口，由 ModTheSpire 通过反射调用。
      * 当前职责：
@@ -79,161 +232,581 @@ public class StsAIBridge {
         }
         if (!socketServerStarted) {
             socketServerStarted = true;
-            Thread t = new Thread(new SocketServerRunnable());
-            t.setDaemon(true);
-            t.setName("STS-AI-SocketServer");
-            t.start();
-        }
-    }
-
-    private static class SocketServerRunnable implements Runnable {
-        @Override
-        public void run() {
+            GameFields.verify();
+            // ARCHITECTURE CHANGE: Read port from System Property, default to 9999
+            String portProp = System.getProperty("sts.ai.port", "9999");
+            int port = 9999;
             try {
-                // ARCHITECTURE CHANGE: Read port from System Property, default to 9999
-                String portProp = System.getProperty("sts.ai.port", "9999");
-                int port = 9999;
+                port = Integer.parseInt(portProp);
+            } catch (NumberFormatException e) {
+                System.err.println("[STS-AI-SOCKET] Invalid port property: " + portProp + ", using default 9999.");
+            }
+            String transportProp = System.getProperty("sts.ai.transport", "tcp").toLowerCase();
+            java.util.List<FrameTransport> enabled = new ArrayList<>();
+            if (transportProp.contains("shm")) {
                 try {
-                    port = Integer.parseInt(portProp);
-                } catch (NumberFormatException e) {
-                    System.err.println("[STS-AI-SOCKET] Invalid port property: " + portProp + ", using default 9999.");
+                    shmTransport = ShmTransport.open(System.getProperty("sts.ai.shm.name", String.valueOf(port)));
+                    enabled.add(shmTransport);
+                } catch (IOException e) {
+                    System.out.println("[STS-AI-SHM] Failed to create shared memory rings: " + e.getMessage());
                 }
+            }
+            boolean hasController = shmTransport != null;
+            if (transportProp.contains("pipe")) {
+                enabled.add(PipeTransport.start());
+                hasController = true;
+            }
+            if (transportProp.contains("tcp")) {
+                BridgeServer server = new BridgeServer(port, hasController);
+                enabled.add(server);
+                Thread t = new Thread(server);
+                t.setDaemon(true);
+                t.setName("STS-AI-SocketServer");
+                t.start();
+            }
+            transports = enabled.toArray(new FrameTransport[0]);
+            SnapshotEncoder.start(transports);
+            if (FlowControl.ENABLED) {
+                System.out.println("[STS-AI] Credit flow control enabled, initial credits: " + FlowControl.available());
+            }
+            if (Catalog.ENABLED) {
+                System.out.println("[STS-AI] Catalog mode enabled, " + (Catalog.size() - 1) + " preloaded entries.");
+            }
+        }
+    }
 
-                serverSocket = new ServerSocket(port);
-                System.out.println("[STS-AI-SOCKET] Listening on port " + port);
-                while (true) {
-                    Socket socket = serverSocket.accept();
-                    System.out.println("[STS-AI-SOCKET] Client connected: " + socket.getRemoteSocketAddress());
-                    synchronized (StsAIBridge.class) {
-                        closeClientQuietly();
-                        clientSocket = socket;
-                        clientIn = new DataInputStream(socket.getInputStream());
-                        clientOut = new DataOutputStream(socket.getOutputStream());
-                        Thread reader = new Thread(new ClientActionReader(socket, clientIn));
-                        reader.setDaemon(true);
-                        reader.setName("STS-AI-ActionReceiver");
-                        reader.start();
-                    }
-                }
-            } catch (BindException e) {
-                System.out.println("[STS-AI-SOCKET] Port bind failed (possibly in use): " + e.getMessage());
-            } catch (IOException e) {
-                System.out.println("[STS-AI-SOCKET] Server error: " + e.getMessage());
-            } finally {
-                closeServerQuietly();
+    /**
+     * 读取整数类型的 System Property，非法值时打印告警并回退到默认值。
+     */
+    static int intProperty(String key, int defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("[STS-AI] Invalid property " + key + "=" + value + ", using default " + defaultValue + ".");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 由 Socket 线程调用：把解析好的 GameAction 放入动作队列，由游戏线程在稳定帧上消费。
+     * 只用 action_type_ref 的动作先还原出 action_type（见 Catalog）。
+     */
+    static void enqueueAction(GameAction action) {
+        action = Catalog.resolve(action);
+        if (FlowControl.ENABLED && FlowControl.CREDIT_ACTION.equals(action.getActionType())) {
+            FlowControl.grant(action.getCredits());
+            return;
+        }
+        if (SectionMask.SUBSCRIBE_ACTION.equals(action.getActionType())) {
+            SectionMask.setLocal(action.getSections());
+            return;
+        }
+        if (Catalog.REQUEST_ACTION.equals(action.getActionType())) {
+            Catalog.requestLocalResend();
+            return;
+        }
+        if (BridgeServer.POLL_ACTION.equals(action.getActionType())) {
+            // 长轮询只对 Socket 会话有意义；共享内存的读端直接读取状态环中的最新帧
+            return;
+        }
+        actionQueue.add(action);
+    }
+
+    /**
+     * 由 Socket 线程调用：请求游戏线程在下一个稳定帧重新推送一次当前状态。
+     */
+    static void requestStateResend() {
+        forceEmit = true;
+    }
+
+    /**
+     * 是否有任一传输层存在消费者。没有时 Postfix 只消费动作队列，不判断稳定帧、不抓取快照。
+     */
+    static boolean hasConsumers() {
+        for (FrameTransport transport : transports) {
+            if (transport.hasSessions()) {
+                return true;
             }
         }
+        return false;
     }
 
-    private static void closeClientQuietly() {
-        if (clientIn != null) {
-            try {
-                clientIn.close();
-            } catch (IOException ignored) {
+    /**
+     * 本帧需要抓取的状态段：所有有消费者的传输层订阅掩码的并集，没有任何消费者时按全部段处理。
+     */
+    static int subscribedSections() {
+        int mask = 0;
+        boolean any = false;
+        for (FrameTransport transport : transports) {
+            if (transport.hasSessions()) {
+                mask |= transport.sectionMask();
+                any = true;
             }
         }
-        if (clientOut != null) {
-            try {
-                clientOut.close();
-            } catch (IOException ignored) {
+        return any ? mask : SectionMask.ALL;
+    }
+
+    /**
+     * 根据当前游戏状态构建完整的 GameState.Builder（抓取与构建都在当前线程完成），由调用方补充帧级字段后再 build。
+     * 用于批量动作的中间状态；常规采样走 captureSnapshot() + SnapshotEncoder。
+     * 只允许在游戏主线程中调用，调用方需保证当前处于稳定帧（见 DungeonUpdateMonitorPatch.Postfix）。
+     */
+    static GameState.Builder collectGameState() {
+        StateSnapshot snapshot = scratchSnapshot;
+        try {
+            captureSnapshot(snapshot, subscribedSections());
+            snapshot.resolveRefs();
+            return snapshot.toBuilder().clearSeq();
+        } finally {
+            snapshot.clear();
+        }
+    }
+
+    /**
+     * 两阶段快照的第一阶段：只把当前游戏状态抄进 snapshot 的扁平数组，不构建逐帧变化的 Protobuf 对象。
+     * calculateCardDamage 等需要读写游戏对象的步骤必须留在游戏线程；牌组、遗物、地图通过 SectionCache 直接得到不可变消息。
+     * sections 为订阅掩码（见 SectionMask），未订阅的段整段跳过，连同其中的 calculateCardDamage 与反射读取一起省掉；
+     * screen_type 与 game_outcome 始终抓取。最后由 StateHash 直接读取游戏对象增量更新状态哈希，结果与掩码无关。
+     * 只允许在游戏主线程中调用。
+     */
+    static void captureSnapshot(StateSnapshot s, int sections) {
+        AbstractPlayer player = AbstractDungeon.player;
+        s.sections = sections;
+        if (SectionMask.has(sections, GameState.PLAYER_FIELD_NUMBER)) {
+            s.hp = player.currentHealth;
+            s.maxHp = player.maxHealth;
+            s.gold = player.gold;
+            s.energy = player.energy.energy;
+            s.block = player.currentBlock;
+            s.floor = AbstractDungeon.floorNum;
+            s.stance = player.stance != null ? player.stance.ID : "";
+
+            if (player.powers != null) {
+                for (AbstractPower p : player.powers) {
+                    s.playerPowers.add(p.ID, p.name, p.amount);
+                }
+            }
+
+            if (player.relics != null) {
+                relicCache.begin();
+                for (AbstractRelic r : player.relics) {
+                    relicCache.add(r);
+                }
+                java.util.List<RelicState> relics = relicCache.finish();
+                for (int i = 0; i < relics.size(); i++) {
+                    s.relics.add(relics.get(i));
+                }
+            }
+
+            if (player.orbs != null) {
+                for (AbstractOrb o : player.orbs) {
+                    s.orbs.add(o.ID, o.name, o.evokeAmount, o.passiveAmount);
+                }
             }
         }
-        if (clientSocket != null) {
-            try {
-                clientSocket.close();
-            } catch (IOException ignored) {
+
+        // Collect Master Deck
+        if (player.masterDeck != null && SectionMask.has(sections, GameState.MASTER_DECK_FIELD_NUMBER)) {
+            masterDeckCache.begin();
+            for (AbstractCard c : player.masterDeck.group) {
+                masterDeckCache.add(c);
+            }
+            java.util.List<CardState> deck = masterDeckCache.finish();
+            for (int i = 0; i < deck.size(); i++) {
+                s.masterDeck.add(deck.get(i));
             }
         }
-        clientIn = null;
-        clientOut = null;
-        clientSocket = null;
-    }
 
-    private static void closeServerQuietly() {
-        if (serverSocket != null) {
-            try {
-                serverSocket.close();
-            } catch (IOException ignored) {
+        if (player.hand != null && player.hand.group != null && SectionMask.has(sections, GameState.HAND_FIELD_NUMBER)) {
+            StateSnapshot.Cards hand = s.hand;
+            for (AbstractCard c : player.hand.group) {
+                if (c == null) {
+                    continue;
+                }
+                c.calculateCardDamage(null);
+                int i = hand.add();
+                hand.id[i] = c.cardID;
+                hand.name[i] = c.name;
+                hand.cost[i] = c.costForTurn;
+                hand.type[i] = c.type != null ? c.type.name() : null;
+                hand.damage[i] = c.baseDamage;
+                hand.target[i] = c.target != null ? c.target.name() : null;
+                hand.block[i] = c.block;
+                hand.upgraded[i] = c.upgraded;
+                hand.magicNumber[i] = c.magicNumber;
+                hand.exhaust[i] = c.exhaust;
+                hand.playable[i] = c.costForTurn <= player.energy.energy && c.hasEnoughEnergy() && c.cardPlayable(null);
             }
         }
-        serverSocket = null;
-    }
 
-    private static class ClientActionReader implements Runnable {
-        private final Socket socket;
-        private final DataInputStream in;
+        if (AbstractDungeon.getMonsters() != null && AbstractDungeon.getMonsters().monsters != null
+                && SectionMask.has(sections, GameState.MONSTERS_FIELD_NUMBER)) {
+            StateSnapshot.Monsters monsters = s.monsters;
+            for (AbstractMonster m : AbstractDungeon.getMonsters().monsters) {
+                if (m == null) {
+                    continue;
+                }
+                int i = monsters.add();
+                monsters.id[i] = m.id;
+                monsters.name[i] = m.name;
+                monsters.hp[i] = m.currentHealth;
+                monsters.maxHp[i] = m.maxHealth;
+                monsters.intent[i] = m.intent != null ? m.intent.name() : null;
+                monsters.block[i] = m.currentBlock;
+                monsters.gone[i] = m.isEscaping || m.isDead;
+                monsters.powersFrom[i] = monsters.powers.size;
+                if (m.powers != null) {
+                    for (AbstractPower p : m.powers) {
+                        monsters.powers.add(p.ID, p.name, p.amount);
+                    }
+                }
+                monsters.powersTo[i] = monsters.powers.size;
 
-        private ClientActionReader(Socket socket, DataInputStream in) {
-            this.socket = socket;
-            this.in = in;
+                // 注意：move_id 和 specific intent details 需要更深入的 access，这里暂存基础 intent
+            }
         }
 
-        @Override
-        public void run() {
-            try {
-                while (!socket.isClosed()) {
-                    int length;
-                    try {
-                        length = in.readInt();
-                    } catch (IOException e) {
-                        System.out.println("[STS-AI-ACTION] Failed to read action length: " + e.getMessage());
-                        break;
+        // Collect Potions
+        if (player.potions != null && SectionMask.has(sections, GameState.POTIONS_FIELD_NUMBER)) {
+            for (int i = 0; i < player.potions.size(); i++) {
+                AbstractPotion p = player.potions.get(i);
+                // Price not available on AbstractPotion
+                s.potions.add(p.ID, p.name, p.isObtained && !p.isThrown, p.targetRequired); // basic usability check
+            }
+        }
+
+        // Collect Map
+        if (AbstractDungeon.map != null && !AbstractDungeon.map.isEmpty() && SectionMask.has(sections, GameState.MAP_FIELD_NUMBER)) {
+            mapNodeCache.begin();
+            for (ArrayList<MapRoomNode> row : AbstractDungeon.map) {
+                for (MapRoomNode node : row) {
+                    if (node == null) continue;
+                    mapNodeCache.add(node);
+                }
+            }
+            java.util.List<MapNodeState> nodes = mapNodeCache.finish();
+            String bossName = AbstractDungeon.bossKey != null ? AbstractDungeon.bossKey : "";
+            if (mapNodeCache.changed() || lastMapState == null
+                    || lastMapState.getFloor() != AbstractDungeon.floorNum
+                    || !lastMapState.getBossName().equals(bossName)) {
+                lastMapState = DungeonMapState.newBuilder()
+                        .setFloor(AbstractDungeon.floorNum)
+                        .setBossName(bossName)
+                        .addAllNodes(nodes)
+                        .build();
+            }
+            s.map = lastMapState;
+        }
+
+        // Determine Screen Type
+        String screenType = "NONE";
+        
+        // Check Game Over
+        if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.DEATH || AbstractDungeon.screen == AbstractDungeon.CurrentScreen.VICTORY) {
+            screenType = AbstractDungeon.screen == AbstractDungeon.CurrentScreen.VICTORY ? "VICTORY" : "GAME_OVER";
+            GameOutcome outcome = GameOutcome.newBuilder()
+                    .setIsDone(true)
+                    .setVictory(AbstractDungeon.screen == AbstractDungeon.CurrentScreen.VICTORY)
+                    .setScore(AbstractDungeon.floorNum * 10) // Simplified score for now
+                    .setAscensionLevel(AbstractDungeon.isAscensionMode ? AbstractDungeon.ascensionLevel : 0)
+                    .build();
+            s.gameOutcome = outcome;
+        }
+        
+        if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.COMBAT_REWARD) {
+            screenType = "REWARD";
+            // Collect Rewards
+            if (AbstractDungeon.combatRewardScreen != null && AbstractDungeon.combatRewardScreen.rewards != null
+                    && SectionMask.has(sections, GameState.REWARD_FIELD_NUMBER)) {
+                RewardState.Builder rewardBuilder = RewardState.newBuilder();
+                for (RewardItem item : AbstractDungeon.combatRewardScreen.rewards) {
+                    RewardItemState.Builder itemBuilder = RewardItemState.newBuilder()
+                            .setType(item.type.name())
+                            .setIsClaimed(item.isDone);
+                    
+                    if (item.type == RewardItem.RewardType.GOLD) {
+                        itemBuilder.setAmount(item.goldAmt);
+                    } else if (item.type == RewardItem.RewardType.RELIC) {
+                        itemBuilder.setId(item.relic != null ? item.relic.relicId : "");
+                    } else if (item.type == RewardItem.RewardType.POTION) {
+                        itemBuilder.setId(item.potion != null ? item.potion.ID : "");
+                    } else if (item.type == RewardItem.RewardType.CARD && item.cards != null) {
+                        for (AbstractCard c : item.cards) {
+                             // Re-use card serialization logic or simplify for rewards
+                             itemBuilder.addCards(cardIdentity(c).build());
+                        }
                     }
-                    if (length <= 0) {
-                        continue;
+                    rewardBuilder.addItems(itemBuilder.build());
+                }
+                s.reward = rewardBuilder.build();
+            }
+        } else if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.MAP) {
+            screenType = "MAP";
+        } else if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.SHOP) {
+            screenType = "SHOP";
+            // Collect Shop
+            if (AbstractDungeon.shopScreen != null && GameFields.SHOP_AVAILABLE
+                    && SectionMask.has(sections, GameState.SHOP_FIELD_NUMBER)) {
+                ShopState.Builder shopBuilder = ShopState.newBuilder()
+                        .setCurrentGold(AbstractDungeon.player.gold)
+                        .setPurgeCost(ShopScreen.actualPurgeCost);
+
+                // Reflection for Relics（字段读取器见 GameFields，启动时解析一次）
+                ArrayList<?> relics = GameFields.SHOP_RELICS.getList(AbstractDungeon.shopScreen);
+                if (relics != null) {
+                    for (Object sr : relics) {
+                        AbstractRelic r = sr != null ? (AbstractRelic) GameFields.STORE_RELIC.get(sr) : null;
+                        if (r != null) {
+                            shopBuilder.addRelics(relicIdentity(r)
+                                    .setPrice(GameFields.STORE_RELIC_PRICE.getInt(sr))
+                                    .build());
+                        }
                     }
-                    byte[] payload = new byte[length];
-                    try {
-                        in.readFully(payload);
-                    } catch (IOException e) {
-                        System.out.println("[STS-AI-ACTION] Failed to read action payload: " + e.getMessage());
-                        break;
+                }
+
+                // Reflection for Potions
+                ArrayList<?> potions = GameFields.SHOP_POTIONS.getList(AbstractDungeon.shopScreen);
+                if (potions != null) {
+                    for (Object sp : potions) {
+                        AbstractPotion p = sp != null ? (AbstractPotion) GameFields.STORE_POTION.get(sp) : null;
+                        if (p != null) {
+                            shopBuilder.addPotions(potionIdentity(p)
+                                    .setPrice(GameFields.STORE_POTION_PRICE.getInt(sp))
+                                    .build());
+                        }
                     }
-                    try {
-                        GameAction action = GameAction.parseFrom(payload);
-                        actionQueue.add(action);
-                        System.out.println("[STS-AI-ACTION] Enqueued GameAction: " + action.toString());
-                    } catch (Exception e) {
-                        System.out.println("[STS-AI-ACTION] Failed to parse GameAction: " + e.getMessage());
+                }
+
+                // Reflection for Cards
+                ArrayList<?> coloredCards = GameFields.SHOP_COLORED_CARDS.getList(AbstractDungeon.shopScreen);
+                ArrayList<?> colorlessCards = GameFields.SHOP_COLORLESS_CARDS.getList(AbstractDungeon.shopScreen);
+                
+                if (coloredCards != null) {
+                    for (Object o : coloredCards) {
+                        if (o instanceof AbstractCard) {
+                            AbstractCard c = (AbstractCard) o;
+                            shopBuilder.addCards(cardIdentity(c)
+                                    .setPrice(c.price)
+                                    .build());
+                        }
                     }
                 }
-            } finally {
-                synchronized (StsAIBridge.class) {
-                    if (socket == clientSocket) {
-                        closeClientQuietly();
+                if (colorlessCards != null) {
+                    for (Object o : colorlessCards) {
+                        if (o instanceof AbstractCard) {
+                            AbstractCard c = (AbstractCard) o;
+                            shopBuilder.addCards(cardIdentity(c)
+                                    .setPrice(c.price)
+                                    .build());
+                        }
                     }
                 }
+                
+                s.shop = shopBuilder.build();
+            }
+        } else if (AbstractDungeon.isScreenUp && (AbstractDungeon.getCurrRoom() instanceof com.megacrit.cardcrawl.rooms.RestRoom)) {
+              screenType = "REST";
+             // Collect Rest Site
+             if (AbstractDungeon.getCurrRoom() instanceof com.megacrit.cardcrawl.rooms.RestRoom && GameFields.REST_SITE_AVAILABLE
+                     && SectionMask.has(sections, GameState.REST_SITE_FIELD_NUMBER)) {
+                 com.megacrit.cardcrawl.rooms.RestRoom restRoom = (com.megacrit.cardcrawl.rooms.RestRoom) AbstractDungeon.getCurrRoom();
+                 RestSiteState.Builder restBuilder = RestSiteState.newBuilder()
+                         .setHealAmount((int)(AbstractDungeon.player.maxHealth * 0.3f));
+
+                 if (restRoom.campfireUI != null) {
+                      ArrayList<?> buttons = GameFields.CAMPFIRE_BUTTONS.getList(restRoom.campfireUI);
+                      if (buttons != null) {
+                          for (Object opt : buttons) {
+                              String optClass = opt.getClass().getSimpleName();
+                              // usable 声明在 AbstractCampfireOption 上，旧实现只查具体子类，总是读不到
+                              boolean usable = GameFields.CAMPFIRE_OPTION_USABLE.getBoolean(opt);
+                             
+                             if (usable) {
+                                 if (optClass.contains("RestOption")) restBuilder.setHasRest(true);
+                                 else if (optClass.contains("SmithOption")) restBuilder.setHasSmith(true);
+                                 else if (optClass.contains("LiftOption")) restBuilder.setHasLift(true);
+                                 else if (optClass.contains("TokeOption")) restBuilder.setHasToke(true);
+                                 else if (optClass.contains("DigOption")) restBuilder.setHasDig(true);
+                             }
+                         }
+                     }
+                 }
+                 s.restSite = restBuilder.build();
+             }
+        } else if (AbstractDungeon.getCurrRoom() != null && AbstractDungeon.getCurrRoom().phase == AbstractRoom.RoomPhase.COMBAT) {
+            screenType = "COMBAT";
+        } else if (AbstractDungeon.getCurrRoom() instanceof com.megacrit.cardcrawl.rooms.EventRoom) {
+            screenType = "EVENT";
+            // Collect Event
+            if (AbstractDungeon.getCurrRoom().event != null && SectionMask.has(sections, GameState.EVENT_FIELD_NUMBER)) {
+                 EventState.Builder eventBuilder = EventState.newBuilder()
+                         .setEventId(AbstractDungeon.getCurrRoom().event.getClass().getSimpleName());
+                 // Options scraping is complex due to UI structure
+                 s.event = eventBuilder.build();
             }
         }
+        
+        s.screenType = screenType;
+        s.stateHash = stateHash.update(player, screenType);
+        s.stateVersion = DecisionPoint.version();
     }
 
-    // Reflection Helper
-    private static <T> T getPrivateField(Object instance, String fieldName, Class<T> type) {
-        if (instance == null) return null;
-        try {
-            Field field = instance.getClass().getDeclaredField(fieldName);
-            field.setAccessible(true);
-            return type.cast(field.get(instance));
-        } catch (NoSuchFieldException e) {
-            try {
-                Field field = instance.getClass().getSuperclass().getDeclaredField(fieldName);
-                field.setAccessible(true);
-                return type.cast(field.get(instance));
-            } catch (Exception ex) {
-                // Silent fail or log if needed
-                return null;
-            }
-        } catch (Exception e) {
-            return null;
+    /**
+     * 在游戏主线程上执行一条 GameAction。
+     * 返回 true 表示动作已被游戏接受并开始结算（本帧不应再处理其它动作）；
+     * 返回 false 表示动作在当前状态下无效而被忽略。
+     */
+    static boolean executeAction(GameAction action, AbstractPlayer player, GameActionManager manager) {
+        if ("END_TURN".equals(action.getActionType())) {
+            AbstractRoom room = AbstractDungeon.getCurrRoom();
+            if (room != null
+                    && room.phase == AbstractRoom.RoomPhase.COMBAT
+                    && !manager.turnHasEnded) {
+                if (LOG_ACTIONS) System.out.println("[STS-AI-ACTION] 执行 END_TURN 动作");
+                AbstractDungeon.overlayMenu.endTurnButton.disable(true);
+                player.isEndingTurn = true;
+                manager.addToBottom(new EndTurnAction());
+                return true;
+            } else {
+                if (LOG_ACTIONS) System.out.println("[STS-AI-ACTION] 忽略 END_TURN 动作（非战斗或非玩家回合 / 状态不稳定）");
+            }
+        } else if ("RESET".equals(action.getActionType())) {
+            if (LOG_ACTIONS) System.out.println("[STS-AI-ACTION] 执行 RESET 动作");
+            CardCrawlGame.startOver = true;
+            return true;
+        } else if ("PLAY_CARD".equals(action.getActionType())) {
+            int cardIndex = action.getCardIndex();
+            if (cardIndex < 0 || cardIndex >= player.hand.size()) {
+                if (LOG_ACTIONS) System.out.println("[STS-AI-ACTION] 无效的 card_index，忽略 PLAY_CARD 动作");
+                return false;
+            }
+            AbstractCard card = player.hand.group.get(cardIndex);
+            AbstractMonster target = null;
+            if (card.target == AbstractCard.CardTarget.ENEMY || card.target == AbstractCard.CardTarget.SELF_AND_ENEMY) {
+                if (AbstractDungeon.getMonsters() != null && AbstractDungeon.getMonsters().monsters != null) {
+                    int targetIndex = action.getTargetIndex();
+                    if (targetIndex >= 0 && targetIndex < AbstractDungeon.getMonsters().monsters.size()) {
+                        target = AbstractDungeon.getMonsters().monsters.get(targetIndex);
+                    }
+                }
+                if (target == null) {
+                    if (LOG_ACTIONS) System.out.println("[STS-AI-ACTION] 无法找到有效目标怪物，忽略 PLAY_CARD 动作");
+                    return false;
+                }
+            } else {
+            }
+            if (!card.hasEnoughEnergy()) {
+                if (LOG_ACTIONS) System.out.println("[STS-AI-ACTION] Energy insufficient for " + card.cardID);
+                return false;
+            }
+            if (!card.cardPlayable(target)) {
+                if (LOG_ACTIONS) System.out.println("[STS-AI-ACTION] Card not playable: " + card.cardID + " (Target: " + (target != null ? target.name : "null") + ")");
+                return false;
+            }
+            if (LOG_ACTIONS) System.out.println("[STS-AI-ACTION] 执行 PLAY_CARD 动作: " + card.cardID + " -> " + (target != null ? target.name : "null"));
+            int energyOnUse = player.energy.energy;
+            card.energyOnUse = energyOnUse;
+            player.useCard(card, target, energyOnUse);
+            return true;
+        } else if ("CHOOSE_REWARD".equals(action.getActionType())) {
+            if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.COMBAT_REWARD) {
+                int rewardIndex = action.getTargetIndex();
+                if (AbstractDungeon.combatRewardScreen != null && AbstractDungeon.combatRewardScreen.rewards != null
+                    && rewardIndex >= 0 && rewardIndex < AbstractDungeon.combatRewardScreen.rewards.size()) {
+                     RewardItem item = AbstractDungeon.combatRewardScreen.rewards.get(rewardIndex);
+                     if (!item.isDone) {
+                         item.isDone = true;
+                         item.claimReward();
+                         if (LOG_ACTIONS) System.out.println("[STS-AI-ACTION] Claimed reward index: " + rewardIndex);
+                         // After claiming, we might need to close screen if all done, but game usually handles it or user sends SKIP
+                         return true;
+                     }
+                }
+            }
+        } else if ("SKIP_REWARD".equals(action.getActionType())) {
+             if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.COMBAT_REWARD) {
+                 AbstractDungeon.closeCurrentScreen();
+                 if (LOG_ACTIONS) System.out.println("[STS-AI-ACTION] Skipped rewards.");
+                 return true;
+             }
+        } else if ("CHOOSE_SHOP_CARD".equals(action.getActionType())) {
+             // Implement buying card
+             if (AbstractDungeon.shopScreen != null) {
+                 // Need logic to buy card
+             }
+        } else if ("CHOOSE_SHOP_POTION".equals(action.getActionType())) {
+             // Implement buying potion
+        } else if ("CHOOSE_SHOP_RELIC".equals(action.getActionType())) {
+             // Implement buying relic
+        } else if ("PURGE_CARD".equals(action.getActionType())) {
+             // Implement purging
+        } else if ("LEAVE_SHOP".equals(action.getActionType())) {
+             if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.SHOP) {
+                 AbstractDungeon.overlayMenu.cancelButton.hb.clicked = true;
+                 if (LOG_ACTIONS) System.out.println("[STS-AI-ACTION] Left shop.");
+                 return true;
+             }
+        } else if ("CHOOSE_REST_OPTION".equals(action.getActionType())) {
+             if (AbstractDungeon.getCurrRoom() instanceof com.megacrit.cardcrawl.rooms.RestRoom) {
+                 com.megacrit.cardcrawl.rooms.RestRoom restRoom = (com.megacrit.cardcrawl.rooms.RestRoom) AbstractDungeon.getCurrRoom();
+                 if (restRoom.campfireUI != null) {
+                      int optionIndex = action.getTargetIndex();
+                      // Reflectively access options or simplify? 
+                      // For V1, maybe just logging as we don't have public access to options list easily
+                      if (LOG_ACTIONS) System.out.println("[STS-AI-ACTION] CHOOSE_REST_OPTION index: " + optionIndex + " (Logic pending reflection access)");
+                 }
+             }
+        } else if ("LEAVE_REST".equals(action.getActionType())) {
+             if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.NONE && AbstractDungeon.getCurrRoom() instanceof com.megacrit.cardcrawl.rooms.RestRoom) {
+                 AbstractDungeon.closeCurrentScreen(); // Or proceed
+                 if (LOG_ACTIONS) System.out.println("[STS-AI-ACTION] Left rest site.");
+                 return true;
+             }
+        } else if ("CHOOSE_MAP_NODE".equals(action.getActionType())) {
+             if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.MAP) {
+                 int x = action.getCardIndex(); // Reuse card_index as X
+                 int y = action.getTargetIndex(); // Reuse target_index as Y
+                 
+                 boolean found = false;
+                 if (AbstractDungeon.map != null) {
+                     for (ArrayList<MapRoomNode> row : AbstractDungeon.map) {
+                         for (MapRoomNode node : row) {
+                             if (node.x == x && node.y == y) {
+                                 // Hard transition logic
+                                 AbstractDungeon.nextRoom = node;
+                                 AbstractDungeon.pathX.add(x);
+                                 AbstractDungeon.pathY.add(y);
+                                 AbstractDungeon.nextRoomTransitionStart();
+                                 if (AbstractDungeon.dungeonMapScreen != null) {
+                                     AbstractDungeon.dungeonMapScreen.dismissable = true;
+                                     AbstractDungeon.closeCurrentScreen();
+                                 }
+                                 if (LOG_ACTIONS) System.out.println("[STS-AI-ACTION] CHOOSE_MAP_NODE executed: " + x + "," + y);
+                                 found = true;
+                                 break;
+                             }
+                         }
+                         if (found) break;
+                     }
+                 }
+                 if (!found) {
+                     if (LOG_ACTIONS) System.out.println("[STS-AI-ACTION] Map node not found: " + x + "," + y);
+                 }
+             }
         }
+        return false;
     }
 
     /**
      * 对 AbstractDungeon.update 做 Patch。
      * 利用 Postfix 在每帧逻辑更新后插入采样点：
      * 1. 只在玩家存在（AbstractDungeon.player != null）时采样
-     * 2. 通过时间节流，每 LOG_INTERVAL_MS 采样一次，避免刷屏
-     * 3. 当前只采集 HP 和 Gold，后续可扩展为完整的 GameState，并序列化为 Protobuf
+     * 2. 事件驱动：每进入一个新的稳定决策点推送一次（见 DecisionPoint），同一决策点不重复推送
+     * 3. 采集完整的 GameState，并序列化为 Protobuf 发送给客户端
      */
     @SpirePatch(
             clz = AbstractDungeon.class,
@@ -250,7 +823,7 @@ public class StsAIBridge {
          * 在 AbstractDungeon.update 执行完成后被调用。
          * 当前实现：
          * - 判空保护：玩家不存在时直接返回
-         * - 时间窗口：间隔不足时不输出
+         * - 决策点：非稳定帧或决策点未变化时不输出
          * - 输出渠道：
          *   - 优先使用 logger.info，方便后续统一收集日志
          *   - 当 logger 尚未初始化时退化为 System.out.println，保证最小可观测性
@@ -259,154 +832,58 @@ public class StsAIBridge {
             if (AbstractDungeon.player == null) {
                 return;
             }
+            if (shmTransport != null) {
+                shmTransport.pollActions();
+            }
+            if (StepMode.ENABLED) {
+                StepMode.onFrame();
+            }
+            ActionBatch.onFrame();
             AbstractPlayer player = AbstractDungeon.player;
             GameActionManager manager = AbstractDungeon.actionManager;
             if (manager == null) {
                 return;
             }
             if (manager.phase != GameActionManager.Phase.WAITING_ON_USER || !manager.actions.isEmpty()) {
+                DecisionPoint.onUnstableFrame();
                 return;
             }
             GameAction action;
-            while ((action = actionQueue.poll()) != null) {
-                if ("END_TURN".equals(action.getActionType())) {
-                    AbstractRoom room = AbstractDungeon.getCurrRoom();
-                    if (room != null
-                            && room.phase == AbstractRoom.RoomPhase.COMBAT
-                            && !manager.turnHasEnded) {
-                        System.out.println("[STS-AI-ACTION] 执行 END_TURN 动作");
-                        AbstractDungeon.overlayMenu.endTurnButton.disable(true);
-                        player.isEndingTurn = true;
-                        manager.addToBottom(new EndTurnAction());
-                        return;
-                    } else {
-                        System.out.println("[STS-AI-ACTION] 忽略 END_TURN 动作（非战斗或非玩家回合 / 状态不稳定）");
-                    }
-                } else if ("RESET".equals(action.getActionType())) {
-                    System.out.println("[STS-AI-ACTION] 执行 RESET 动作");
-                    CardCrawlGame.startOver = true;
-                    return;
-                } else if ("PLAY_CARD".equals(action.getActionType())) {
-                    int cardIndex = action.getCardIndex();
-                    if (cardIndex < 0 || cardIndex >= player.hand.size()) {
-                        System.out.println("[STS-AI-ACTION] 无效的 card_index，忽略 PLAY_CARD 动作");
-                        continue;
-                    }
-                    AbstractCard card = player.hand.group.get(cardIndex);
-                    AbstractMonster target = null;
-                    if (card.target == AbstractCard.CardTarget.ENEMY || card.target == AbstractCard.CardTarget.SELF_AND_ENEMY) {
-                        if (AbstractDungeon.getMonsters() != null && AbstractDungeon.getMonsters().monsters != null) {
-                            int targetIndex = action.getTargetIndex();
-                            if (targetIndex >= 0 && targetIndex < AbstractDungeon.getMonsters().monsters.size()) {
-                                target = AbstractDungeon.getMonsters().monsters.get(targetIndex);
-                            }
-                        }
-                        if (target == null) {
-                            System.out.println("[STS-AI-ACTION] 无法找到有效目标怪物，忽略 PLAY_CARD 动作");
-                            continue;
-                        }
-                    } else {
-                    }
-                    if (!card.hasEnoughEnergy()) {
-                        System.out.println("[STS-AI-ACTION] Energy insufficient for " + card.cardID);
-                        continue;
-                    }
-                    if (!card.cardPlayable(target)) {
-                        System.out.println("[STS-AI-ACTION] Card not playable: " + card.cardID + " (Target: " + (target != null ? target.name : "null") + ")");
-                        continue;
+            while (!ActionBatch.isActive() && !(StepMode.ENABLED && StepMode.isPending())
+                    && (action = actionQueue.poll()) != null) {
+                if (action.hasBatch()) {
+                    // 批次在下面的稳定帧分支中逐个执行
+                    ActionBatch.begin(action);
+                    break;
+                }
+                if (StepMode.ENABLED && "NOOP".equals(action.getActionType())) {
+                    StepMode.onNoop(action);
+                    continue;
+                }
+                long signatureBefore = StepMode.ENABLED ? DecisionPoint.compute() : 0L;
+                if (executeAction(action, player, manager)) {
+                    if (StepMode.ENABLED) {
+                        StepMode.onAccepted(action, signatureBefore);
                     }
-                    System.out.println("[STS-AI-ACTION] 执行 PLAY_CARD 动作: " + card.cardID + " -> " + (target != null ? target.name : "null"));
-                    int energyOnUse = player.energy.energy;
-                    card.energyOnUse = energyOnUse;
-                    player.useCard(card, target, energyOnUse);
                     return;
-                } else if ("CHOOSE_REWARD".equals(action.getActionType())) {
-                    if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.COMBAT_REWARD) {
-                        int rewardIndex = action.getTargetIndex();
-                        if (AbstractDungeon.combatRewardScreen != null && AbstractDungeon.combatRewardScreen.rewards != null
-                            && rewardIndex >= 0 && rewardIndex < AbstractDungeon.combatRewardScreen.rewards.size()) {
-                             RewardItem item = AbstractDungeon.combatRewardScreen.rewards.get(rewardIndex);
-                             if (!item.isDone) {
-                                 item.isDone = true;
-                                 item.claimReward();
-                                 System.out.println("[STS-AI-ACTION] Claimed reward index: " + rewardIndex);
-                                 // After claiming, we might need to close screen if all done, but game usually handles it or user sends SKIP
-                                 return;
-                             }
-                        }
-                    }
-                } else if ("SKIP_REWARD".equals(action.getActionType())) {
-                     if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.COMBAT_REWARD) {
-                         AbstractDungeon.closeCurrentScreen();
-                         System.out.println("[STS-AI-ACTION] Skipped rewards.");
-                         return;
-                     }
-                } else if ("CHOOSE_SHOP_CARD".equals(action.getActionType())) {
-                     // Implement buying card
-                     if (AbstractDungeon.shopScreen != null) {
-                         // Need logic to buy card
-                     }
-                } else if ("CHOOSE_SHOP_POTION".equals(action.getActionType())) {
-                     // Implement buying potion
-                } else if ("CHOOSE_SHOP_RELIC".equals(action.getActionType())) {
-                     // Implement buying relic
-                } else if ("PURGE_CARD".equals(action.getActionType())) {
-                     // Implement purging
-                } else if ("LEAVE_SHOP".equals(action.getActionType())) {
-                     if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.SHOP) {
-                         AbstractDungeon.overlayMenu.cancelButton.hb.clicked = true;
-                         System.out.println("[STS-AI-ACTION] Left shop.");
-                         return;
-                     }
-                } else if ("CHOOSE_REST_OPTION".equals(action.getActionType())) {
-                     if (AbstractDungeon.getCurrRoom() instanceof com.megacrit.cardcrawl.rooms.RestRoom) {
-                         com.megacrit.cardcrawl.rooms.RestRoom restRoom = (com.megacrit.cardcrawl.rooms.RestRoom) AbstractDungeon.getCurrRoom();
-                         if (restRoom.campfireUI != null) {
-                              int optionIndex = action.getTargetIndex();
-                              // Reflectively access options or simplify? 
-                              // For V1, maybe just logging as we don't have public access to options list easily
-                              System.out.println("[STS-AI-ACTION] CHOOSE_REST_OPTION index: " + optionIndex + " (Logic pending reflection access)");
-                         }
-                     }
-                } else if ("LEAVE_REST".equals(action.getActionType())) {
-                     if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.NONE && AbstractDungeon.getCurrRoom() instanceof com.megacrit.cardcrawl.rooms.RestRoom) {
-                         AbstractDungeon.closeCurrentScreen(); // Or proceed
-                         System.out.println("[STS-AI-ACTION] Left rest site.");
-                         return;
-                     }
-                } else if ("CHOOSE_MAP_NODE".equals(action.getActionType())) {
-                     if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.MAP) {
-                         int x = action.getCardIndex(); // Reuse card_index as X
-                         int y = action.getTargetIndex(); // Reuse target_index as Y
-                         
-                         boolean found = false;
-                         if (AbstractDungeon.map != null) {
-                             for (ArrayList<MapRoomNode> row : AbstractDungeon.map) {
-                                 for (MapRoomNode node : row) {
-                                     if (node.x == x && node.y == y) {
-                                         // Hard transition logic
-                                         AbstractDungeon.nextRoom = node;
-                                         AbstractDungeon.pathX.add(x);
-                                         AbstractDungeon.pathY.add(y);
-                                         AbstractDungeon.nextRoomTransitionStart();
-                                         if (AbstractDungeon.dungeonMapScreen != null) {
-                                             AbstractDungeon.dungeonMapScreen.dismissable = true;
-                                             AbstractDungeon.closeCurrentScreen();
-                                         }
-                                         System.out.println("[STS-AI-ACTION] CHOOSE_MAP_NODE executed: " + x + "," + y);
-                                         found = true;
-                                         break;
-                                     }
-                                 }
-                                 if (found) break;
-                             }
-                         }
-                         if (!found) {
-                             System.out.println("[STS-AI-ACTION] Map node not found: " + x + "," + y);
-                         }
-                     }
+                }
+                if (StepMode.ENABLED) {
+                    StepMode.onRejected(action);
                 }
             }
+            if (!ActionBatch.isActive() && !hasConsumers()) {
+                // 没有任何消费者：除了消费动作队列外不做任何桥接工作（不判断稳定帧、不抓取快照）
+                if (!idle) {
+                    idle = true;
+                    System.out.println("[STS-AI] No consumer connected, state sampling paused.");
+                }
+                return;
+            }
+            if (idle) {
+                idle = false;
+                forceEmit = true;
+                System.out.println("[STS-AI] Consumer connected, state sampling resumed.");
+            }
             long now = System.currentTimeMillis();
             boolean isStable = false;
             if (manager.phase == GameActionManager.Phase.WAITING_ON_USER && manager.actions.isEmpty() && !AbstractDungeon.player.isEndingTurn) {
@@ -429,355 +906,60 @@ public class StsAIBridge {
                 }
             }
 
-            if (now - lastLogTime >= LOG_INTERVAL_MS && isStable) {
-                lastLogTime = now;
-                PlayerState.Builder playerStateBuilder = PlayerState.newBuilder()
-                        .setHp(AbstractDungeon.player.currentHealth)
-                        .setMaxHp(AbstractDungeon.player.maxHealth)
-                        .setGold(AbstractDungeon.player.gold)
-                        .setEnergy(AbstractDungeon.player.energy.energy)
-                        .setBlock(AbstractDungeon.player.currentBlock)
-                        .setFloor(AbstractDungeon.floorNum)
-                        .setStance(AbstractDungeon.player.stance != null ? AbstractDungeon.player.stance.ID : "");
-
-                if (AbstractDungeon.player.powers != null) {
-                    for (AbstractPower p : AbstractDungeon.player.powers) {
-                        playerStateBuilder.addPowers(PowerState.newBuilder()
-                                .setId(p.ID)
-                                .setName(p.name)
-                                .setAmount(p.amount)
-                                .build());
-                    }
-                }
-
-                if (AbstractDungeon.player.relics != null) {
-                    for (AbstractRelic r : AbstractDungeon.player.relics) {
-                        playerStateBuilder.addRelics(RelicState.newBuilder()
-                                .setId(r.relicId)
-                                .setName(r.name)
-                                .setCounter(r.counter)
-                                .build());
-                    }
-                }
-
-                if (AbstractDungeon.player.orbs != null) {
-                    for (AbstractOrb o : AbstractDungeon.player.orbs) {
-                        playerStateBuilder.addOrbs(OrbState.newBuilder()
-                                .setId(o.ID)
-                                .setName(o.name)
-                                .setEvokeAmount(o.evokeAmount)
-                                .setPassiveAmount(o.passiveAmount)
-                                .build());
-                    }
-                }
-
-                GameState.Builder gameStateBuilder = GameState.newBuilder()
-                        .setPlayer(playerStateBuilder.build());
-
-                // Collect Master Deck
-                if (AbstractDungeon.player != null && AbstractDungeon.player.masterDeck != null) {
-                    for (AbstractCard c : AbstractDungeon.player.masterDeck.group) {
-                         CardState cardState = CardState.newBuilder()
-                                .setId(c.cardID == null ? "" : c.cardID)
-                                .setName(c.name == null ? "" : c.name)
-                                .setCost(c.cost)
-                                .setType(c.type != null ? c.type.name() : "")
-                                .setDamage(c.baseDamage)
-                                .setBlock(c.baseBlock)
-                                .setIsUpgraded(c.upgraded)
-                                .setMagicNumber(c.magicNumber)
-                                .setExhaust(c.exhaust)
-                                .build();
-                         gameStateBuilder.addMasterDeck(cardState);
-                    }
-                }
-
-                if (AbstractDungeon.player != null && AbstractDungeon.player.hand != null && AbstractDungeon.player.hand.group != null) {
-                    for (AbstractCard c : AbstractDungeon.player.hand.group) {
-                        if (c == null) {
-                            continue;
-                        }
-                        c.calculateCardDamage(null);
-                        int cost = c.costForTurn;
-                        CardState cardState = CardState.newBuilder()
-                                .setId(c.cardID == null ? "" : c.cardID)
-                                .setName(c.name == null ? "" : c.name)
-                                .setCost(cost)
-                                .setType(c.type != null ? c.type.name() : "")
-                                .setDamage(c.baseDamage)
-                                .setTarget(c.target != null ? c.target.name() : "")
-                                .setBlock(c.block)
-                                .setIsUpgraded(c.upgraded)
-                                .setMagicNumber(c.magicNumber)
-                                .setExhaust(c.exhaust)
-                                .setIsPlayable(c.costForTurn <= AbstractDungeon.player.energy.energy && c.hasEnoughEnergy() && c.cardPlayable(null))
-                                .build();
-                        gameStateBuilder.addHand(cardState);
-                    }
-                }
-
-                if (AbstractDungeon.getMonsters() != null && AbstractDungeon.getMonsters().monsters != null) {
-                    for (AbstractMonster m : AbstractDungeon.getMonsters().monsters) {
-                        if (m == null) {
-                            continue;
-                        }
-                        MonsterState.Builder monsterStateBuilder = MonsterState.newBuilder()
-                                .setId(m.id)
-                                .setName(m.name)
-                                .setHp(m.currentHealth)
-                                .setMaxHp(m.maxHealth)
-                                .setIntent(m.intent != null ? m.intent.name() : "")
-                                .setBlock(m.currentBlock)
-                                .setIsGone(m.isEscaping || m.isDead);
-
-                        if (m.powers != null) {
-                            for (AbstractPower p : m.powers) {
-                                monsterStateBuilder.addPowers(PowerState.newBuilder()
-                                        .setId(p.ID)
-                                        .setName(p.name)
-                                        .setAmount(p.amount)
-                                        .build());
-                            }
-                        }
-                        
-                        // 注意：move_id 和 specific intent details 需要更深入的 access，这里暂存基础 intent
-
-                        gameStateBuilder.addMonsters(monsterStateBuilder.build());
-                    }
+            boolean forced = forceEmit;
+            if (!isStable) {
+                DecisionPoint.onUnstableFrame();
+                return;
+            }
+            DecisionPoint.observe();
+            boolean batchDone = false;
+            if (ActionBatch.isActive()) {
+                if (!ActionBatch.advance(player, manager) || !FlowControl.hasCredit()) {
+                    return;
                 }
-
-                // Collect Potions
-                if (AbstractDungeon.player.potions != null) {
-                    for (int i = 0; i < AbstractDungeon.player.potions.size(); i++) {
-                        AbstractPotion p = AbstractDungeon.player.potions.get(i);
-                        gameStateBuilder.addPotions(PotionState.newBuilder()
-                                .setId(p.ID)
-                                .setName(p.name)
-                                .setSlotIndex(i)
-                                .setIsUsable(p.isObtained && !p.isThrown) // basic usability check
-                                .setCanTarget(p.targetRequired)
-                                // .setPrice(p.price) // Price not available on AbstractPotion
-                                .build());
-                    }
+                batchDone = true;
+                DecisionPoint.markEmitted();
+            } else if (StepMode.ENABLED) {
+                if (!StepMode.readyToRespond() || !FlowControl.hasCredit()) {
+                    return;
                 }
-
-                // Collect Map
-                if (AbstractDungeon.map != null && !AbstractDungeon.map.isEmpty()) {
-                    DungeonMapState.Builder mapBuilder = DungeonMapState.newBuilder()
-                            .setFloor(AbstractDungeon.floorNum)
-                            .setBossName(AbstractDungeon.bossKey != null ? AbstractDungeon.bossKey : "");
-                    
-                    for (ArrayList<MapRoomNode> row : AbstractDungeon.map) {
-                        for (MapRoomNode node : row) {
-                            if (node == null) continue;
-                            
-                            MapNodeState.Builder nodeBuilder = MapNodeState.newBuilder()
-                                    .setX(node.x)
-                                    .setY(node.y)
-                                    .setRoomType(node.room != null ? node.room.getClass().getSimpleName() : "Unknown")
-                                    .setIsAvailable(true); // Simplified availability check for now
-                                    
-                            if (node.getEdges() != null) {
-                                for (MapEdge edge : node.getEdges()) {
-                                    nodeBuilder.addChildren(MapEdgeState.newBuilder()
-                                            .setDstX(edge.dstX)
-                                            .setDstY(edge.dstY)
-                                            .build());
-                                }
-                            }
-                            mapBuilder.addNodes(nodeBuilder.build());
-                        }
-                    }
-                    gameStateBuilder.setMap(mapBuilder.build());
+                DecisionPoint.markEmitted();
+            } else if (EMIT_INTERVAL_MODE) {
+                if ((now - lastLogTime < LOG_INTERVAL_MS && !forced) || !FlowControl.hasCredit()) {
+                    return;
                 }
-
-                // Determine Screen Type
-                String screenType = "NONE";
-                
-                // Check Game Over
-                if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.DEATH || AbstractDungeon.screen == AbstractDungeon.CurrentScreen.VICTORY) {
-                    screenType = AbstractDungeon.screen == AbstractDungeon.CurrentScreen.VICTORY ? "VICTORY" : "GAME_OVER";
-                    GameOutcome outcome = GameOutcome.newBuilder()
-                            .setIsDone(true)
-                            .setVictory(AbstractDungeon.screen == AbstractDungeon.CurrentScreen.VICTORY)
-                            .setScore(AbstractDungeon.floorNum * 10) // Simplified score for now
-                            .setAscensionLevel(AbstractDungeon.isAscensionMode ? AbstractDungeon.ascensionLevel : 0)
-                            .build();
-                    gameStateBuilder.setGameOutcome(outcome);
+                lastLogTime = now;
+            } else {
+                if (!FlowControl.hasCredit()) {
+                    // 没有信用时不消费决策点，收到信用后在下一个稳定帧补发
+                    return;
                 }
-                
-                if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.COMBAT_REWARD) {
-                    screenType = "REWARD";
-                    // Collect Rewards
-                    if (AbstractDungeon.combatRewardScreen != null && AbstractDungeon.combatRewardScreen.rewards != null) {
-                        RewardState.Builder rewardBuilder = RewardState.newBuilder();
-                        for (RewardItem item : AbstractDungeon.combatRewardScreen.rewards) {
-                            RewardItemState.Builder itemBuilder = RewardItemState.newBuilder()
-                                    .setType(item.type.name())
-                                    .setIsClaimed(item.isDone);
-                            
-                            if (item.type == RewardItem.RewardType.GOLD) {
-                                itemBuilder.setAmount(item.goldAmt);
-                            } else if (item.type == RewardItem.RewardType.RELIC) {
-                                itemBuilder.setId(item.relic != null ? item.relic.relicId : "");
-                            } else if (item.type == RewardItem.RewardType.POTION) {
-                                itemBuilder.setId(item.potion != null ? item.potion.ID : "");
-                            } else if (item.type == RewardItem.RewardType.CARD && item.cards != null) {
-                                for (AbstractCard c : item.cards) {
-                                     // Re-use card serialization logic or simplify for rewards
-                                     itemBuilder.addCards(CardState.newBuilder()
-                                            .setId(c.cardID)
-                                            .setName(c.name)
-                                            .setType(c.type.name())
-                                            .build());
-                                }
-                            }
-                            rewardBuilder.addItems(itemBuilder.build());
-                        }
-                        gameStateBuilder.setReward(rewardBuilder.build());
-                    }
-                } else if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.MAP) {
-                    screenType = "MAP";
-                } else if (AbstractDungeon.screen == AbstractDungeon.CurrentScreen.SHOP) {
-                    screenType = "SHOP";
-                    // Collect Shop
-                    if (AbstractDungeon.shopScreen != null) {
-                        ShopState.Builder shopBuilder = ShopState.newBuilder()
-                                .setCurrentGold(AbstractDungeon.player.gold)
-                                .setPurgeCost(ShopScreen.actualPurgeCost);
-
-                        // Reflection for Relics
-                        ArrayList<?> relics = getPrivateField(AbstractDungeon.shopScreen, "relics", ArrayList.class);
-                        if (relics != null) {
-                            for (Object sr : relics) {
-                                AbstractRelic r = getPrivateField(sr, "relic", AbstractRelic.class);
-                                Integer price = getPrivateField(sr, "price", Integer.class);
-                                if (r != null && price != null) {
-                                    shopBuilder.addRelics(RelicState.newBuilder()
-                                            .setId(r.relicId)
-                                            .setName(r.name)
-                                            .setPrice(price)
-                                            .build());
-                                }
-                            }
-                        }
-
-                        // Reflection for Potions
-                        ArrayList<?> potions = getPrivateField(AbstractDungeon.shopScreen, "potions", ArrayList.class);
-                        if (potions != null) {
-                            for (Object sp : potions) {
-                                AbstractPotion p = getPrivateField(sp, "potion", AbstractPotion.class);
-                                Integer price = getPrivateField(sp, "price", Integer.class);
-                                if (p != null && price != null) {
-                                    shopBuilder.addPotions(PotionState.newBuilder()
-                                            .setId(p.ID)
-                                            .setName(p.name)
-                                            .setPrice(price)
-                                            .build());
-                                }
-                            }
-                        }
-
-                        // Reflection for Cards
-                        ArrayList<?> coloredCards = getPrivateField(AbstractDungeon.shopScreen, "coloredCards", ArrayList.class);
-                        ArrayList<?> colorlessCards = getPrivateField(AbstractDungeon.shopScreen, "colorlessCards", ArrayList.class);
-                        
-                        if (coloredCards != null) {
-                            for (Object o : coloredCards) {
-                                if (o instanceof AbstractCard) {
-                                    AbstractCard c = (AbstractCard) o;
-                                    shopBuilder.addCards(CardState.newBuilder()
-                                            .setId(c.cardID)
-                                            .setName(c.name)
-                                            .setPrice(c.price)
-                                            .setType(c.type.name())
-                                            .build());
-                                }
-                            }
-                        }
-                        if (colorlessCards != null) {
-                            for (Object o : colorlessCards) {
-                                if (o instanceof AbstractCard) {
-                                    AbstractCard c = (AbstractCard) o;
-                                    shopBuilder.addCards(CardState.newBuilder()
-                                            .setId(c.cardID)
-                                            .setName(c.name)
-                                            .setPrice(c.price)
-                                            .setType(c.type.name())
-                                            .build());
-                                }
-                            }
-                        }
-                        
-                        gameStateBuilder.setShop(shopBuilder.build());
-                    }
-                } else if (AbstractDungeon.isScreenUp && (AbstractDungeon.getCurrRoom() instanceof com.megacrit.cardcrawl.rooms.RestRoom)) {
-                      screenType = "REST";
-                     // Collect Rest Site
-                     if (AbstractDungeon.getCurrRoom() instanceof com.megacrit.cardcrawl.rooms.RestRoom) {
-                         com.megacrit.cardcrawl.rooms.RestRoom restRoom = (com.megacrit.cardcrawl.rooms.RestRoom) AbstractDungeon.getCurrRoom();
-                         RestSiteState.Builder restBuilder = RestSiteState.newBuilder()
-                                 .setHealAmount((int)(AbstractDungeon.player.maxHealth * 0.3f));
-
-                         if (restRoom.campfireUI != null) {
-                              ArrayList<?> buttons = getPrivateField(restRoom.campfireUI, "buttons", ArrayList.class);
-                              if (buttons != null) {
-                                  for (Object opt : buttons) {
-                                      String optClass = opt.getClass().getSimpleName();
-                                      boolean usable = true;
-                                      try {
-                                          Field f = opt.getClass().getDeclaredField("usable");
-                                          f.setAccessible(true);
-                                          usable = f.getBoolean(opt);
-                                     } catch (Exception e) {
-                                         // If field not found, assume true or check superclass if needed
-                                     }
-                                     
-                                     if (usable) {
-                                         if (optClass.contains("RestOption")) restBuilder.setHasRest(true);
-                                         else if (optClass.contains("SmithOption")) restBuilder.setHasSmith(true);
-                                         else if (optClass.contains("LiftOption")) restBuilder.setHasLift(true);
-                                         else if (optClass.contains("TokeOption")) restBuilder.setHasToke(true);
-                                         else if (optClass.contains("DigOption")) restBuilder.setHasDig(true);
-                                     }
-                                 }
-                             }
-                         }
-                         gameStateBuilder.setRestSite(restBuilder.build());
-                     }
-                } else if (AbstractDungeon.getCurrRoom() != null && AbstractDungeon.getCurrRoom().phase == AbstractRoom.RoomPhase.COMBAT) {
-                    screenType = "COMBAT";
-                } else if (AbstractDungeon.getCurrRoom() instanceof com.megacrit.cardcrawl.rooms.EventRoom) {
-                    screenType = "EVENT";
-                    // Collect Event
-                    if (AbstractDungeon.getCurrRoom().event != null) {
-                         EventState.Builder eventBuilder = EventState.newBuilder()
-                                 .setEventId(AbstractDungeon.getCurrRoom().event.getClass().getSimpleName());
-                         // Options scraping is complex due to UI structure
-                         gameStateBuilder.setEvent(eventBuilder.build());
-                    }
+                if (forced) {
+                    DecisionPoint.invalidate();
                 }
-                
-                gameStateBuilder.setScreenType(screenType);
-
-                GameState gameState = gameStateBuilder.build();
-                System.out.println("[STS-AI-PROTO] " + gameState.toString());
-                DataOutputStream out = clientOut;
-                if (out == null) {
+                if (!DecisionPoint.claimIfNew()) {
                     return;
                 }
-                byte[] payload = gameState.toByteArray();
-                try {
-                    out.writeInt(payload.length);
-                    out.write(payload);
-                    out.flush();
-                } catch (IOException e) {
-                    System.out.println("[STS-AI-SOCKET] Send failed: " + e.getMessage());
-                    synchronized (StsAIBridge.class) {
-                        closeClientQuietly();
-                    }
-                }
             }
+            forceEmit = false;
+            FlowControl.consume();
+
+            // 游戏线程只抓取扁平快照，Protobuf 构建与编码由 SnapshotEncoder 完成（sync 模式下仍在本线程）
+            BridgePerf.GAME_THREAD.begin();
+            StateSnapshot snapshot = SnapshotEncoder.acquire();
+            captureSnapshot(snapshot, subscribedSections());
+            if (batchDone) {
+                ActionBatch.completeResponse(snapshot);
+            } else if (StepMode.ENABLED) {
+                StepMode.completeResponse(snapshot);
+            }
+            snapshot.seq = ++frameSeq;
+            BridgePerf.GAME_THREAD.end(BridgePerf.CAPTURE);
+            SnapshotEncoder.submit(snapshot);
+            if (SnapshotEncoder.ASYNC) {
+                BridgePerf.GAME_THREAD.end(BridgePerf.HANDOFF);
+            }
+            BridgePerf.GAME_THREAD.frameDone();
         }
     }
 }
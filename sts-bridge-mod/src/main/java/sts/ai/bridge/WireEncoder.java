@@ -0,0 +1,373 @@
+package sts.ai.bridge;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.WireFormat;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import sts.ai.state.v1.CardState;
+import sts.ai.state.v1.GameState;
+import sts.ai.state.v1.MonsterState;
+import sts.ai.state.v1.OrbState;
+import sts.ai.state.v1.PlayerState;
+import sts.ai.state.v1.PotionState;
+import sts.ai.state.v1.PowerState;
+
+/**
+ * 直接从 StateSnapshot 的扁平数组写出 GameState 的 Protobuf 线格式，不创建 PlayerState / MonsterState / CardState /
+ * PowerState 等逐帧变化的消息对象。输出与 StateSnapshot.toBuilder().build().writeTo() 逐字节一致：
+ * 字段按编号升序写出，proto3 缺省值（0、false、空字符串）不写，消息字段只要存在就写（即使为空）。
+ * 目录模式下字符串列已被 resolveRefs() 清空，同一套代码只写出 ref 列。
+ * 牌组、遗物、地图等已是不可变消息（SectionCache 复用）的部分直接 writeMessage，其序列化大小由 Protobuf 缓存。
+ *
+ * 嵌套消息需要先写长度：sizeOf() 按先序遍历把每个嵌套消息的大小记入 sizes，writeTo() 以同样的顺序依次取出，
+ * 不必在写出时重新计算嵌套消息的大小。字符串的 UTF-8 长度在 sizeOf() 中计算一次，writeString() 写出时由 Protobuf 再算一次。
+ * sizes 数组只增不减，稳态下不分配。
+ * 实例不是线程安全的，由 SnapshotEncoder 在发布线程上独占使用。
+ */
+final class WireEncoder {
+    private int[] sizes = new int[64];
+    private int count;
+    private int cursor;
+
+    /**
+     * 计算 GameState 的序列化大小，同时记录嵌套消息的大小，必须紧接着调用 writeTo()。
+     */
+    int sizeOf(StateSnapshot s) {
+        count = 0;
+        int size = 0;
+        if (SectionMask.has(s.sections, GameState.PLAYER_FIELD_NUMBER)) {
+            size += nested(GameState.PLAYER_FIELD_NUMBER, playerSize(s));
+        }
+        StateSnapshot.Monsters monsters = s.monsters;
+        for (int i = 0; i < monsters.size; i++) {
+            size += nested(GameState.MONSTERS_FIELD_NUMBER, monsterSize(monsters, i));
+        }
+        StateSnapshot.Cards hand = s.hand;
+        for (int i = 0; i < hand.size; i++) {
+            size += nested(GameState.HAND_FIELD_NUMBER, cardSize(hand, i));
+        }
+        StateSnapshot.Potions potions = s.potions;
+        for (int i = 0; i < potions.size; i++) {
+            size += nested(GameState.POTIONS_FIELD_NUMBER, potionSize(potions, i));
+        }
+        size += messageSize(GameState.MAP_FIELD_NUMBER, s.map);
+        size += messageSize(GameState.SHOP_FIELD_NUMBER, s.shop);
+        size += messageSize(GameState.REST_SITE_FIELD_NUMBER, s.restSite);
+        size += messageSize(GameState.EVENT_FIELD_NUMBER, s.event);
+        size += messageSize(GameState.REWARD_FIELD_NUMBER, s.reward);
+        size += stringSize(GameState.SCREEN_TYPE_FIELD_NUMBER, screenType(s));
+        List<CardState> deck = s.masterDeck;
+        for (int i = 0; i < deck.size(); i++) {
+            size += CodedOutputStream.computeMessageSize(GameState.MASTER_DECK_FIELD_NUMBER, deck.get(i));
+        }
+        size += messageSize(GameState.GAME_OUTCOME_FIELD_NUMBER, s.gameOutcome);
+        if (s.ackActionId != 0L) {
+            size += CodedOutputStream.computeInt64Size(GameState.ACK_ACTION_ID_FIELD_NUMBER, s.ackActionId);
+        }
+        if (s.actionRejected) {
+            size += CodedOutputStream.computeBoolSize(GameState.ACTION_REJECTED_FIELD_NUMBER, true);
+        }
+        size += messageSize(GameState.BATCH_RESULT_FIELD_NUMBER, s.batchResult);
+        if (s.seq != 0L) {
+            size += CodedOutputStream.computeInt64Size(GameState.SEQ_FIELD_NUMBER, s.seq);
+        }
+        size += int32Size(GameState.SCREEN_TYPE_REF_FIELD_NUMBER, s.screenTypeRef);
+        if (s.stateHash != 0L) {
+            size += CodedOutputStream.computeFixed64Size(GameState.STATE_HASH_FIELD_NUMBER, s.stateHash);
+        }
+        if (s.stateVersion != 0L) {
+            size += CodedOutputStream.computeInt64Size(GameState.STATE_VERSION_FIELD_NUMBER, s.stateVersion);
+        }
+        return size;
+    }
+
+    /**
+     * 按 sizeOf() 记录的嵌套大小写出 GameState。
+     */
+    void writeTo(StateSnapshot s, CodedOutputStream out) throws IOException {
+        cursor = 0;
+        if (SectionMask.has(s.sections, GameState.PLAYER_FIELD_NUMBER)) {
+            writePlayer(s, out);
+        }
+        StateSnapshot.Monsters monsters = s.monsters;
+        for (int i = 0; i < monsters.size; i++) {
+            writeMonster(monsters, i, out);
+        }
+        StateSnapshot.Cards hand = s.hand;
+        for (int i = 0; i < hand.size; i++) {
+            writeCard(hand, i, out);
+        }
+        StateSnapshot.Potions potions = s.potions;
+        for (int i = 0; i < potions.size; i++) {
+            writePotion(potions, i, out);
+        }
+        writeMessage(GameState.MAP_FIELD_NUMBER, s.map, out);
+        writeMessage(GameState.SHOP_FIELD_NUMBER, s.shop, out);
+        writeMessage(GameState.REST_SITE_FIELD_NUMBER, s.restSite, out);
+        writeMessage(GameState.EVENT_FIELD_NUMBER, s.event, out);
+        writeMessage(GameState.REWARD_FIELD_NUMBER, s.reward, out);
+        writeString(GameState.SCREEN_TYPE_FIELD_NUMBER, screenType(s), out);
+        List<CardState> deck = s.masterDeck;
+        for (int i = 0; i < deck.size(); i++) {
+            out.writeMessage(GameState.MASTER_DECK_FIELD_NUMBER, deck.get(i));
+        }
+        writeMessage(GameState.GAME_OUTCOME_FIELD_NUMBER, s.gameOutcome, out);
+        if (s.ackActionId != 0L) {
+            out.writeInt64(GameState.ACK_ACTION_ID_FIELD_NUMBER, s.ackActionId);
+        }
+        if (s.actionRejected) {
+            out.writeBool(GameState.ACTION_REJECTED_FIELD_NUMBER, true);
+        }
+        writeMessage(GameState.BATCH_RESULT_FIELD_NUMBER, s.batchResult, out);
+        if (s.seq != 0L) {
+            out.writeInt64(GameState.SEQ_FIELD_NUMBER, s.seq);
+        }
+        writeInt32(GameState.SCREEN_TYPE_REF_FIELD_NUMBER, s.screenTypeRef, out);
+        if (s.stateHash != 0L) {
+            out.writeFixed64(GameState.STATE_HASH_FIELD_NUMBER, s.stateHash);
+        }
+        if (s.stateVersion != 0L) {
+            out.writeInt64(GameState.STATE_VERSION_FIELD_NUMBER, s.stateVersion);
+        }
+    }
+
+    private static String screenType(StateSnapshot s) {
+        return s.screenType != null ? s.screenType : "NONE";
+    }
+
+    // ---- 大小计算（先序记录嵌套消息大小） ----
+
+    private int reserve() {
+        if (count == sizes.length) {
+            sizes = Arrays.copyOf(sizes, count * 2);
+        }
+        return count++;
+    }
+
+    private static int nested(int field, int size) {
+        return CodedOutputStream.computeTagSize(field) + CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+    }
+
+    private static int messageSize(int field, MessageLite message) {
+        return message != null ? CodedOutputStream.computeMessageSize(field, message) : 0;
+    }
+
+    private int playerSize(StateSnapshot s) {
+        int slot = reserve();
+        int size = int32Size(PlayerState.HP_FIELD_NUMBER, s.hp)
+                + int32Size(PlayerState.MAX_HP_FIELD_NUMBER, s.maxHp)
+                + int32Size(PlayerState.GOLD_FIELD_NUMBER, s.gold)
+                + int32Size(PlayerState.ENERGY_FIELD_NUMBER, s.energy)
+                + int32Size(PlayerState.BLOCK_FIELD_NUMBER, s.block)
+                + int32Size(PlayerState.FLOOR_FIELD_NUMBER, s.floor);
+        StateSnapshot.Powers powers = s.playerPowers;
+        for (int i = 0; i < powers.size; i++) {
+            size += nested(PlayerState.POWERS_FIELD_NUMBER, powerSize(powers, i));
+        }
+        for (int i = 0; i < s.relics.size(); i++) {
+            size += CodedOutputStream.computeMessageSize(PlayerState.RELICS_FIELD_NUMBER, s.relics.get(i));
+        }
+        size += stringSize(PlayerState.STANCE_FIELD_NUMBER, s.stance);
+        StateSnapshot.Orbs orbs = s.orbs;
+        for (int i = 0; i < orbs.size; i++) {
+            size += nested(PlayerState.ORBS_FIELD_NUMBER, orbSize(orbs, i));
+        }
+        sizes[slot] = size;
+        return size;
+    }
+
+    private int powerSize(StateSnapshot.Powers powers, int i) {
+        int slot = reserve();
+        int size = stringSize(PowerState.ID_FIELD_NUMBER, powers.id[i])
+                + stringSize(PowerState.NAME_FIELD_NUMBER, powers.name[i])
+                + int32Size(PowerState.AMOUNT_FIELD_NUMBER, powers.amount[i])
+                + int32Size(PowerState.REF_FIELD_NUMBER, powers.ref[i]);
+        sizes[slot] = size;
+        return size;
+    }
+
+    private int orbSize(StateSnapshot.Orbs orbs, int i) {
+        int slot = reserve();
+        int size = stringSize(OrbState.ID_FIELD_NUMBER, orbs.id[i])
+                + stringSize(OrbState.NAME_FIELD_NUMBER, orbs.name[i])
+                + int32Size(OrbState.EVOKE_AMOUNT_FIELD_NUMBER, orbs.evokeAmount[i])
+                + int32Size(OrbState.PASSIVE_AMOUNT_FIELD_NUMBER, orbs.passiveAmount[i])
+                + int32Size(OrbState.REF_FIELD_NUMBER, orbs.ref[i]);
+        sizes[slot] = size;
+        return size;
+    }
+
+    private int monsterSize(StateSnapshot.Monsters m, int i) {
+        int slot = reserve();
+        int size = stringSize(MonsterState.ID_FIELD_NUMBER, m.id[i])
+                + stringSize(MonsterState.NAME_FIELD_NUMBER, m.name[i])
+                + int32Size(MonsterState.HP_FIELD_NUMBER, m.hp[i])
+                + int32Size(MonsterState.MAX_HP_FIELD_NUMBER, m.maxHp[i])
+                + stringSize(MonsterState.INTENT_FIELD_NUMBER, m.intent[i])
+                + int32Size(MonsterState.BLOCK_FIELD_NUMBER, m.block[i]);
+        for (int p = m.powersFrom[i]; p < m.powersTo[i]; p++) {
+            size += nested(MonsterState.POWERS_FIELD_NUMBER, powerSize(m.powers, p));
+        }
+        size += boolSize(MonsterState.IS_GONE_FIELD_NUMBER, m.gone[i])
+                + int32Size(MonsterState.REF_FIELD_NUMBER, m.ref[i])
+                + int32Size(MonsterState.INTENT_REF_FIELD_NUMBER, m.intentRef[i]);
+        sizes[slot] = size;
+        return size;
+    }
+
+    private int cardSize(StateSnapshot.Cards c, int i) {
+        int slot = reserve();
+        int size = stringSize(CardState.ID_FIELD_NUMBER, c.id[i])
+                + stringSize(CardState.NAME_FIELD_NUMBER, c.name[i])
+                + int32Size(CardState.COST_FIELD_NUMBER, c.cost[i])
+                + stringSize(CardState.TYPE_FIELD_NUMBER, c.type[i])
+                + int32Size(CardState.DAMAGE_FIELD_NUMBER, c.damage[i])
+                + stringSize(CardState.TARGET_FIELD_NUMBER, c.target[i])
+                + int32Size(CardState.BLOCK_FIELD_NUMBER, c.block[i])
+                + boolSize(CardState.IS_UPGRADED_FIELD_NUMBER, c.upgraded[i])
+                + int32Size(CardState.MAGIC_NUMBER_FIELD_NUMBER, c.magicNumber[i])
+                + boolSize(CardState.EXHAUST_FIELD_NUMBER, c.exhaust[i])
+                + boolSize(CardState.IS_PLAYABLE_FIELD_NUMBER, c.playable[i])
+                + int32Size(CardState.REF_FIELD_NUMBER, c.ref[i])
+                + int32Size(CardState.TYPE_REF_FIELD_NUMBER, c.typeRef[i])
+                + int32Size(CardState.TARGET_REF_FIELD_NUMBER, c.targetRef[i]);
+        sizes[slot] = size;
+        return size;
+    }
+
+    private int potionSize(StateSnapshot.Potions p, int i) {
+        int slot = reserve();
+        int size = stringSize(PotionState.ID_FIELD_NUMBER, p.id[i])
+                + stringSize(PotionState.NAME_FIELD_NUMBER, p.name[i])
+                + int32Size(PotionState.SLOT_INDEX_FIELD_NUMBER, i)
+                + boolSize(PotionState.IS_USABLE_FIELD_NUMBER, p.usable[i])
+                + boolSize(PotionState.CAN_TARGET_FIELD_NUMBER, p.canTarget[i])
+                + int32Size(PotionState.REF_FIELD_NUMBER, p.ref[i]);
+        sizes[slot] = size;
+        return size;
+    }
+
+    private static int int32Size(int field, int value) {
+        return value != 0 ? CodedOutputStream.computeInt32Size(field, value) : 0;
+    }
+
+    private static int boolSize(int field, boolean value) {
+        return value ? CodedOutputStream.computeBoolSize(field, true) : 0;
+    }
+
+    private static int stringSize(int field, String value) {
+        return value != null && !value.isEmpty() ? CodedOutputStream.computeStringSize(field, value) : 0;
+    }
+
+    // ---- 写出（按同样的先序取出嵌套消息大小） ----
+
+    private void beginNested(int field, CodedOutputStream out) throws IOException {
+        out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(sizes[cursor++]);
+    }
+
+    private static void writeMessage(int field, MessageLite message, CodedOutputStream out) throws IOException {
+        if (message != null) {
+            out.writeMessage(field, message);
+        }
+    }
+
+    private void writePlayer(StateSnapshot s, CodedOutputStream out) throws IOException {
+        beginNested(GameState.PLAYER_FIELD_NUMBER, out);
+        writeInt32(PlayerState.HP_FIELD_NUMBER, s.hp, out);
+        writeInt32(PlayerState.MAX_HP_FIELD_NUMBER, s.maxHp, out);
+        writeInt32(PlayerState.GOLD_FIELD_NUMBER, s.gold, out);
+        writeInt32(PlayerState.ENERGY_FIELD_NUMBER, s.energy, out);
+        writeInt32(PlayerState.BLOCK_FIELD_NUMBER, s.block, out);
+        writeInt32(PlayerState.FLOOR_FIELD_NUMBER, s.floor, out);
+        StateSnapshot.Powers powers = s.playerPowers;
+        for (int i = 0; i < powers.size; i++) {
+            writePower(PlayerState.POWERS_FIELD_NUMBER, powers, i, out);
+        }
+        for (int i = 0; i < s.relics.size(); i++) {
+            out.writeMessage(PlayerState.RELICS_FIELD_NUMBER, s.relics.get(i));
+        }
+        writeString(PlayerState.STANCE_FIELD_NUMBER, s.stance, out);
+        StateSnapshot.Orbs orbs = s.orbs;
+        for (int i = 0; i < orbs.size; i++) {
+            beginNested(PlayerState.ORBS_FIELD_NUMBER, out);
+            writeString(OrbState.ID_FIELD_NUMBER, orbs.id[i], out);
+            writeString(OrbState.NAME_FIELD_NUMBER, orbs.name[i], out);
+            writeInt32(OrbState.EVOKE_AMOUNT_FIELD_NUMBER, orbs.evokeAmount[i], out);
+            writeInt32(OrbState.PASSIVE_AMOUNT_FIELD_NUMBER, orbs.passiveAmount[i], out);
+            writeInt32(OrbState.REF_FIELD_NUMBER, orbs.ref[i], out);
+        }
+    }
+
+    private void writePower(int field, StateSnapshot.Powers powers, int i, CodedOutputStream out) throws IOException {
+        beginNested(field, out);
+        writeString(PowerState.ID_FIELD_NUMBER, powers.id[i], out);
+        writeString(PowerState.NAME_FIELD_NUMBER, powers.name[i], out);
+        writeInt32(PowerState.AMOUNT_FIELD_NUMBER, powers.amount[i], out);
+        writeInt32(PowerState.REF_FIELD_NUMBER, powers.ref[i], out);
+    }
+
+    private void writeMonster(StateSnapshot.Monsters m, int i, CodedOutputStream out) throws IOException {
+        beginNested(GameState.MONSTERS_FIELD_NUMBER, out);
+        writeString(MonsterState.ID_FIELD_NUMBER, m.id[i], out);
+        writeString(MonsterState.NAME_FIELD_NUMBER, m.name[i], out);
+        writeInt32(MonsterState.HP_FIELD_NUMBER, m.hp[i], out);
+        writeInt32(MonsterState.MAX_HP_FIELD_NUMBER, m.maxHp[i], out);
+        writeString(MonsterState.INTENT_FIELD_NUMBER, m.intent[i], out);
+        writeInt32(MonsterState.BLOCK_FIELD_NUMBER, m.block[i], out);
+        for (int p = m.powersFrom[i]; p < m.powersTo[i]; p++) {
+            writePower(MonsterState.POWERS_FIELD_NUMBER, m.powers, p, out);
+        }
+        writeBool(MonsterState.IS_GONE_FIELD_NUMBER, m.gone[i], out);
+        writeInt32(MonsterState.REF_FIELD_NUMBER, m.ref[i], out);
+        writeInt32(MonsterState.INTENT_REF_FIELD_NUMBER, m.intentRef[i], out);
+    }
+
+    private void writeCard(StateSnapshot.Cards c, int i, CodedOutputStream out) throws IOException {
+        beginNested(GameState.HAND_FIELD_NUMBER, out);
+        writeString(CardState.ID_FIELD_NUMBER, c.id[i], out);
+        writeString(CardState.NAME_FIELD_NUMBER, c.name[i], out);
+        writeInt32(CardState.COST_FIELD_NUMBER, c.cost[i], out);
+        writeString(CardState.TYPE_FIELD_NUMBER, c.type[i], out);
+        writeInt32(CardState.DAMAGE_FIELD_NUMBER, c.damage[i], out);
+        writeString(CardState.TARGET_FIELD_NUMBER, c.target[i], out);
+        writeInt32(CardState.BLOCK_FIELD_NUMBER, c.block[i], out);
+        writeBool(CardState.IS_UPGRADED_FIELD_NUMBER, c.upgraded[i], out);
+        writeInt32(CardState.MAGIC_NUMBER_FIELD_NUMBER, c.magicNumber[i], out);
+        writeBool(CardState.EXHAUST_FIELD_NUMBER, c.exhaust[i], out);
+        writeBool(CardState.IS_PLAYABLE_FIELD_NUMBER, c.playable[i], out);
+        writeInt32(CardState.REF_FIELD_NUMBER, c.ref[i], out);
+        writeInt32(CardState.TYPE_REF_FIELD_NUMBER, c.typeRef[i], out);
+        writeInt32(CardState.TARGET_REF_FIELD_NUMBER, c.targetRef[i], out);
+    }
+
+    private void writePotion(StateSnapshot.Potions p, int i, CodedOutputStream out) throws IOException {
+        beginNested(GameState.POTIONS_FIELD_NUMBER, out);
+        writeString(PotionState.ID_FIELD_NUMBER, p.id[i], out);
+        writeString(PotionState.NAME_FIELD_NUMBER, p.name[i], out);
+        writeInt32(PotionState.SLOT_INDEX_FIELD_NUMBER, i, out);
+        writeBool(PotionState.IS_USABLE_FIELD_NUMBER, p.usable[i], out);
+        writeBool(PotionState.CAN_TARGET_FIELD_NUMBER, p.canTarget[i], out);
+        writeInt32(PotionState.REF_FIELD_NUMBER, p.ref[i], out);
+    }
+
+    private static void writeInt32(int field, int value, CodedOutputStream out) throws IOException {
+        if (value != 0) {
+            out.writeInt32(field, value);
+        }
+    }
+
+    private static void writeBool(int field, boolean value, CodedOutputStream out) throws IOException {
+        if (value) {
+            out.writeBool(field, true);
+        }
+    }
+
+    private static void writeString(int field, String value, CodedOutputStream out) throws IOException {
+        if (value != null && !value.isEmpty()) {
+            out.writeString(field, value);
+        }
+    }
+}
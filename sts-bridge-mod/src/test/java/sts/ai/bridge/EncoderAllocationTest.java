@@ -0,0 +1,51 @@
+package sts.ai.bridge;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import org.junit.Test;
+
+/**
+ * 稳态编码的分配回归检查：同一快照反复经 FrameEncoder 编码进池化帧并释放，
+ * 每帧分配只允许是 CodedOutputStream 实例本身（见 FrameEncoder），缓冲区、嵌套大小表与帧对象都必须复用。
+ */
+public class EncoderAllocationTest {
+    private static final int WARMUP_FRAMES = 20000;
+    private static final int FRAMES = 50000;
+    /**
+     * 一个 CodedOutputStream（direct 缓冲区实现）实测 136 字节，留出少量余量；任何按元素分配都会远超此值。
+     */
+    private static final long MAX_BYTES_PER_FRAME = 256L;
+
+    @Test
+    public void steadyStateEncodeAllocatesOnlyTheOutputStream() throws IOException {
+        com.sun.management.ThreadMXBean threads = threadBean();
+        assumeTrue(threads != null && threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        StateSnapshot snapshot = Fixtures.combat();
+        WireEncoder wire = new WireEncoder();
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            encodeAndRelease(snapshot, wire);
+        }
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < FRAMES; i++) {
+            encodeAndRelease(snapshot, wire);
+        }
+        long perFrame = (threads.getThreadAllocatedBytes(thread) - before) / FRAMES;
+        assertTrue("steady-state encode allocated " + perFrame + " bytes/frame (max " + MAX_BYTES_PER_FRAME + ")",
+                perFrame <= MAX_BYTES_PER_FRAME);
+    }
+
+    private static void encodeAndRelease(StateSnapshot snapshot, WireEncoder wire) throws IOException {
+        FrameEncoder.encode(snapshot, wire).release();
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+}
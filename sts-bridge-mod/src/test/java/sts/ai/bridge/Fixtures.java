@@ -0,0 +1,153 @@
+package sts.ai.bridge;
+
+import sts.ai.state.v1.BatchResult;
+import sts.ai.state.v1.CardState;
+import sts.ai.state.v1.DungeonMapState;
+import sts.ai.state.v1.EventState;
+import sts.ai.state.v1.GameOutcome;
+import sts.ai.state.v1.GameState;
+import sts.ai.state.v1.MapEdgeState;
+import sts.ai.state.v1.MapNodeState;
+import sts.ai.state.v1.PotionState;
+import sts.ai.state.v1.RelicState;
+import sts.ai.state.v1.RestSiteState;
+import sts.ai.state.v1.RewardItemState;
+import sts.ai.state.v1.RewardState;
+import sts.ai.state.v1.ShopState;
+
+/**
+ * 测试与基准共用的固定快照，不依赖游戏对象。数值按真实对局取值，名称含中文以覆盖多字节 UTF-8。
+ */
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    /**
+     * 战斗帧：玩家（能力、遗物、充能球）、30 张牌组、10 张手牌、3 个带能力的怪物、药水与 60 个节点的地图。
+     */
+    static StateSnapshot combat() {
+        StateSnapshot s = new StateSnapshot();
+        s.seq = 1234L;
+        s.stateHash = 0x9E3779B97F4A7C15L;
+        s.stateVersion = 321L;
+
+        s.hp = 54;
+        s.maxHp = 80;
+        s.gold = 187;
+        s.energy = 3;
+        s.block = 12;
+        s.floor = 23;
+        s.stance = "Wrath";
+        s.playerPowers.add("Strength", "力量", 2);
+        s.playerPowers.add("Dexterity", "敏捷", -1);
+        s.playerPowers.add("Metallicize", "金属化", 4);
+        for (int i = 0; i < 15; i++) {
+            s.relics.add(RelicState.newBuilder().setId("Relic" + i).setName("遗物 " + i).setCounter(i % 3 - 1).build());
+        }
+        s.orbs.add("Lightning", "闪电", 8, 3);
+        s.orbs.add("Frost", "冰霜", 5, 2);
+
+        for (int i = 0; i < 30; i++) {
+            s.masterDeck.add(CardState.newBuilder()
+                    .setId(i % 2 == 0 ? "Strike_R" : "Defend_R")
+                    .setName(i % 2 == 0 ? "打击" : "防御")
+                    .setCost(1)
+                    .setType(i % 2 == 0 ? "ATTACK" : "SKILL")
+                    .setIsUpgraded(i % 5 == 0)
+                    .build());
+        }
+
+        for (int i = 0; i < 10; i++) {
+            int k = s.hand.add();
+            boolean attack = i % 3 != 2;
+            s.hand.id[k] = attack ? "Strike_R" : "Defend_R";
+            s.hand.name[k] = attack ? "打击+" : "防御";
+            s.hand.type[k] = attack ? "ATTACK" : "SKILL";
+            s.hand.target[k] = attack ? "ENEMY" : "SELF";
+            s.hand.cost[k] = i == 9 ? -2 : 1;
+            s.hand.damage[k] = attack ? 9 : 0;
+            s.hand.block[k] = attack ? 0 : 5;
+            s.hand.magicNumber[k] = i % 4 == 0 ? 2 : 0;
+            s.hand.upgraded[k] = attack;
+            s.hand.exhaust[k] = i == 7;
+            s.hand.playable[k] = i < 6;
+        }
+
+        String[] monsterIds = {"JawWorm", "Cultist", "GremlinNob"};
+        String[] monsterNames = {"大颚虫", "邪教徒", "地精大块头"};
+        for (int i = 0; i < monsterIds.length; i++) {
+            StateSnapshot.Monsters m = s.monsters;
+            int k = m.add();
+            m.id[k] = monsterIds[i];
+            m.name[k] = monsterNames[i];
+            m.intent[k] = i == 1 ? "BUFF" : "ATTACK";
+            m.hp[k] = 30 + i * 20;
+            m.maxHp[k] = 44 + i * 20;
+            m.block[k] = i == 0 ? 6 : 0;
+            m.gone[k] = i == 2;
+            m.powersFrom[k] = m.powers.size;
+            m.powers.add("Ritual", "仪式", 3 + i);
+            if (i != 1) {
+                m.powers.add("Vulnerable", "易伤", 2);
+            }
+            m.powersTo[k] = m.powers.size;
+        }
+
+        s.potions.add("Fire Potion", "火焰药水", true, true);
+        s.potions.add("Potion Slot", "药水栏位", false, false);
+        s.potions.add("Block Potion", "格挡药水", true, false);
+
+        DungeonMapState.Builder map = DungeonMapState.newBuilder().setFloor(23).setBossName("The Champ");
+        for (int i = 0; i < 60; i++) {
+            map.addNodes(MapNodeState.newBuilder()
+                    .setX(i % 7)
+                    .setY(i / 7)
+                    .setRoomType(i % 5 == 0 ? "MonsterRoomElite" : "MonsterRoom")
+                    .addChildren(MapEdgeState.newBuilder().setDstX((i + 1) % 7).setDstY(i / 7 + 1)));
+        }
+        s.map = map.build();
+        s.screenType = "COMBAT";
+        return s;
+    }
+
+    /**
+     * 非战斗帧：没有怪物与手牌，带商店、篝火、事件、奖励、终局与批量结果等只在少数帧出现的消息，以及步进模式的应答字段。
+     */
+    static StateSnapshot nonCombat() {
+        StateSnapshot s = new StateSnapshot();
+        s.seq = 98765L;
+        s.ackActionId = 42L;
+        s.actionRejected = true;
+        s.stateHash = -1L;
+        s.stateVersion = 7L;
+        s.hp = 1;
+        s.maxHp = 72;
+        s.gold = 0;
+        s.floor = 51;
+        s.relics.add(RelicState.newBuilder().setId("Burning Blood").setName("燃烧之血").build());
+        s.masterDeck.add(CardState.newBuilder().setId("Bash").setName("痛击").setCost(2).build());
+        s.potions.add("Potion Slot", "药水栏位", false, false);
+        s.shop = ShopState.newBuilder()
+                .addCards(CardState.newBuilder().setId("Offering").setName("祭品").setCost(0))
+                .addRelics(RelicState.newBuilder().setId("Anchor").setName("锚").setPrice(150))
+                .addPotions(PotionState.newBuilder().setId("Fire Potion").setPrice(50))
+                .setPurgeCost(75)
+                .build();
+        s.restSite = RestSiteState.newBuilder().setHasRest(true).setHasSmith(true).setHealAmount(21).build();
+        s.event = EventState.newBuilder().setEventId("Neow").addOptions("领取").addOptions("").build();
+        s.reward = RewardState.newBuilder()
+                .addItems(RewardItemState.newBuilder().setType("GOLD").setAmount(25))
+                .addItems(RewardItemState.newBuilder().setType("CARD")
+                        .addCards(CardState.newBuilder().setId("Anger").setName("愤怒")))
+                .build();
+        s.gameOutcome = GameOutcome.newBuilder().setIsDone(true).setScore(412).setAscensionLevel(20).build();
+        s.batchResult = BatchResult.newBuilder()
+                .setBatchId(42L)
+                .setExecuted(2)
+                .setAborted(true)
+                .addIntermediateStates(GameState.newBuilder().setScreenType("REWARD"))
+                .build();
+        s.screenType = "GAME_OVER";
+        return s;
+    }
+}
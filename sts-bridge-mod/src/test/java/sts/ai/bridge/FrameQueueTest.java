@@ -0,0 +1,75 @@
+package sts.ai.bridge;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import sts.ai.state.v1.GameState;
+
+/**
+ * 控制帧（frame_type 非空）是某个请求的唯一应答，任何溢出策略下都不能被后来的状态帧淘汰。
+ */
+public class FrameQueueTest {
+
+    @Test
+    public void latestOnlyKeepsControlFrames() throws IOException {
+        assertEquals(expected(), drain(fill(OverflowPolicy.LATEST_ONLY)));
+    }
+
+    @Test
+    public void dropOldestKeepsControlFrames() throws IOException {
+        assertEquals(expected(), drain(fill(OverflowPolicy.DROP_OLDEST)));
+    }
+
+    @Test
+    public void latestOnlyStillCoalescesStateFrames() throws IOException {
+        FrameQueue q = new FrameQueue(8, OverflowPolicy.LATEST_ONLY);
+        for (int i = 1; i <= 5; i++) {
+            q.add(state(i));
+        }
+        List<String> frames = drain(q);
+        assertEquals(1, frames.size());
+        assertEquals("5", frames.get(0));
+        assertEquals(4L, q.dropped());
+    }
+
+    private static List<String> expected() {
+        List<String> frames = new ArrayList<>();
+        frames.add("HELLO");
+        frames.add("PONG");
+        frames.add("NOT_MODIFIED");
+        frames.add("6");
+        return frames;
+    }
+
+    /**
+     * 容量 4：三个控制帧之后连续入队 6 个状态帧。
+     */
+    private static FrameQueue fill(OverflowPolicy policy) throws IOException {
+        FrameQueue q = new FrameQueue(4, policy);
+        q.add(FrameEncoder.encode(GameState.newBuilder().setFrameType("HELLO").build()));
+        q.add(FrameEncoder.encode(GameState.newBuilder().setFrameType("PONG").setAckActionId(7L).build()));
+        q.add(FrameEncoder.encode(GameState.newBuilder().setFrameType("NOT_MODIFIED").setStateVersion(3L).build()));
+        for (int i = 1; i <= 6; i++) {
+            q.add(state(i));
+        }
+        return q;
+    }
+
+    private static EncodedFrame state(long seq) throws IOException {
+        return FrameEncoder.encode(GameState.newBuilder().setSeq(seq).setScreenType("COMBAT").build());
+    }
+
+    private static List<String> drain(FrameQueue q) throws IOException {
+        List<String> frames = new ArrayList<>();
+        EncodedFrame frame;
+        while ((frame = q.poll()) != null) {
+            GameState state = FrameEncoder.decode(frame);
+            frames.add(state.getFrameType().isEmpty() ? Long.toString(state.getSeq()) : state.getFrameType());
+            frame.release();
+        }
+        return frames;
+    }
+}
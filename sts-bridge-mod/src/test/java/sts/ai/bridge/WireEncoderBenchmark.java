@@ -0,0 +1,85 @@
+package sts.ai.bridge;
+
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import sts.ai.state.v1.GameState;
+
+/**
+ * WireEncoder（-Dsts.ai.wire.encoder=streaming）与旧版 builder 路径（toBuilder().build() 再序列化）的 JMH 对比，
+ * 两者都写入同一个复用的 direct 缓冲区，只比较编码本身。main() 带 GC profiler 运行，同时给出每帧分配字节数：
+ *
+ *   mvn test-compile exec:exec@wire-benchmark
+ *
+ * （exec-maven-plugin 的 wire-benchmark 执行见 pom.xml，以测试 classpath 启动独立 JVM，JMH 的 fork 沿用该 classpath。）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireEncoderBenchmark {
+    @Param({"combat", "nonCombat", "catalog"})
+    public String fixture;
+
+    private final WireEncoder wire = new WireEncoder();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private StateSnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        if ("nonCombat".equals(fixture)) {
+            snapshot = Fixtures.nonCombat();
+        } else {
+            snapshot = Fixtures.combat();
+            if ("catalog".equals(fixture)) {
+                snapshot.internRefs();
+            }
+        }
+    }
+
+    @Benchmark
+    public int streaming() throws IOException {
+        buffer.clear();
+        CodedOutputStream out = CodedOutputStream.newInstance(buffer);
+        wire.sizeOf(snapshot);
+        wire.writeTo(snapshot, out);
+        out.flush();
+        return buffer.position();
+    }
+
+    @Benchmark
+    public int builder() throws IOException {
+        buffer.clear();
+        CodedOutputStream out = CodedOutputStream.newInstance(buffer);
+        GameState state = snapshot.toBuilder().build();
+        state.getSerializedSize();
+        state.writeTo(out);
+        out.flush();
+        return buffer.position();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WireEncoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,106 @@
+package sts.ai.bridge;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import sts.ai.state.v1.GameState;
+
+/**
+ * WireEncoder 的输出必须与生成的 GameState 类（StateSnapshot.toBuilder().build().toByteArray()）逐字节一致。
+ */
+public class WireEncoderTest {
+    private final WireEncoder wire = new WireEncoder();
+
+    @Test
+    public void emptySnapshot() throws IOException {
+        assertSameBytes(new StateSnapshot());
+    }
+
+    @Test
+    public void combatSnapshot() throws IOException {
+        assertSameBytes(Fixtures.combat());
+    }
+
+    @Test
+    public void nonCombatSnapshot() throws IOException {
+        assertSameBytes(Fixtures.nonCombat());
+    }
+
+    @Test
+    public void catalogModeSnapshot() throws IOException {
+        StateSnapshot s = Fixtures.combat();
+        s.internRefs();
+        assertTrue(s.catalogSize > 1);
+        assertSameBytes(s);
+    }
+
+    @Test
+    public void unsubscribedPlayerSection() throws IOException {
+        StateSnapshot s = Fixtures.combat();
+        s.sections = SectionMask.normalize((1 << GameState.HAND_FIELD_NUMBER) | (1 << GameState.MONSTERS_FIELD_NUMBER));
+        assertSameBytes(s);
+        assertFalse(GameState.parseFrom(encode(s)).hasPlayer());
+    }
+
+    @Test
+    public void extremeValues() throws IOException {
+        StateSnapshot s = Fixtures.combat();
+        s.hp = Integer.MIN_VALUE;
+        s.gold = Integer.MAX_VALUE;
+        s.block = -1;
+        s.hand.cost[0] = -1;
+        s.seq = Long.MAX_VALUE;
+        s.stateHash = Long.MIN_VALUE;
+        s.stance = "";
+        s.hand.name[1] = null;
+        assertSameBytes(s);
+    }
+
+    /**
+     * 同一个 WireEncoder 连续编码不同大小的快照，嵌套大小表的复用不能串帧。
+     */
+    @Test
+    public void encoderReuseAcrossSnapshots() throws IOException {
+        assertSameBytes(Fixtures.combat());
+        assertSameBytes(new StateSnapshot());
+        assertSameBytes(Fixtures.nonCombat());
+        assertSameBytes(Fixtures.combat());
+    }
+
+    @Test
+    public void framePayloadMatchesBuilder() throws IOException {
+        StateSnapshot s = Fixtures.combat();
+        byte[] expected = s.toBuilder().build().toByteArray();
+        EncodedFrame frame = FrameEncoder.encode(s, wire);
+        try {
+            assertEquals(expected.length, frame.payloadLength());
+            ByteBuffer buf = frame.buffer.duplicate();
+            buf.position(0);
+            buf.limit(frame.length());
+            assertEquals(expected.length, buf.getInt());
+            byte[] payload = new byte[expected.length];
+            buf.get(payload);
+            assertArrayEquals(expected, payload);
+        } finally {
+            frame.release();
+        }
+    }
+
+    private void assertSameBytes(StateSnapshot s) throws IOException {
+        assertArrayEquals(s.toBuilder().build().toByteArray(), encode(s));
+    }
+
+    private byte[] encode(StateSnapshot s) throws IOException {
+        byte[] out = new byte[wire.sizeOf(s)];
+        CodedOutputStream stream = CodedOutputStream.newInstance(out);
+        wire.writeTo(s, stream);
+        stream.checkNoSpaceLeft();
+        return out;
+    }
+}
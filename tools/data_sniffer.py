@@ -0,0 +1,78 @@
+"""Read-only sniffer / recorder for a running STS bridge.
+
+Joins as an observer (ClientHello.observer = true), so it can attach to an instance that is
+already being trained without taking the controller slot or adding latency to the trainer.
+
+Usage:
+    python tools/data_sniffer.py --port 9999
+    python tools/data_sniffer.py --port 9999 --record run.bin   # length-prefixed GameState frames
+    python tools/data_sniffer.py --port 9999 --json             # full frames as JSON
+"""
+import argparse
+import os
+import struct
+import sys
+
+sys.path.insert(0, os.path.join(os.path.dirname(os.path.abspath(__file__)), ".."))
+
+from gym_sts.utils.communication import STSCommunicator  # noqa: E402
+
+
+def summarize(state):
+    player = state.player
+    parts = [
+        f"seq={state.seq}",
+        f"screen={state.screen_type or 'NONE'}",
+        f"floor={player.floor}",
+        f"hp={player.hp}/{player.max_hp}",
+        f"block={player.block}",
+        f"energy={player.energy}",
+        f"gold={player.gold}",
+        f"hand={len(state.hand)}",
+        f"monsters={sum(1 for m in state.monsters if not m.is_gone)}",
+    ]
+    if state.HasField("game_outcome"):
+        parts.append(f"outcome={'VICTORY' if state.game_outcome.victory else 'DEFEAT'}")
+    return " ".join(parts)
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Observe GameState frames from a running STS bridge.")
+    parser.add_argument("--host", default="localhost")
+    parser.add_argument("--port", type=int, default=9999)
+    parser.add_argument("--record", help="append every frame (4-byte big-endian length + payload) to this file")
+    parser.add_argument("--json", action="store_true", help="print full frames as JSON instead of a summary line")
+    parser.add_argument("--compression", choices=["deflate"], help="ask the bridge to compress large frames")
+    args = parser.parse_args()
+
+    comm = STSCommunicator(port=args.port, host=args.host, compression=args.compression, observer=True)
+    comm.connect()
+    record = open(args.record, "ab") if args.record else None
+    last_seq = 0
+    try:
+        while True:
+            state = comm.receive_state()
+            if state is None:
+                print("[SNIFFER] Bridge closed the connection.")
+                break
+            if last_seq and state.seq > last_seq + 1:
+                print(f"[SNIFFER] {state.seq - last_seq - 1} frames conflated or dropped before seq {state.seq}")
+            last_seq = state.seq
+            if record is not None:
+                payload = state.SerializeToString()
+                record.write(struct.pack(">I", len(payload)) + payload)
+            if args.json:
+                from google.protobuf.json_format import MessageToJson
+                print(MessageToJson(state))
+            else:
+                print(f"[SNIFFER] {summarize(state)}")
+    except KeyboardInterrupt:
+        pass
+    finally:
+        if record is not None:
+            record.close()
+        comm.close()
+
+
+if __name__ == "__main__":
+    main()
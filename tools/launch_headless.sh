@@ -2,8 +2,12 @@
 # STS-AI-Master Headless Launch Script
 # Usage: ./launch_headless.sh [PORT]
 # Example: ./launch_headless.sh 9999
+#          STS_AI_TRANSPORT=shm ./launch_headless.sh 9999   # shared-memory rings under /dev/shm
+# Pool supervisors that spawn the JVM themselves can use -Dsts.ai.transport=pipe instead of a port
+# (protocol on the child's stdin/stdout, see gym_sts/utils/pipe_communication.py).
 
 PORT=${1:-9999}
+TRANSPORT=${STS_AI_TRANSPORT:-tcp}
 MTS_JAR="libs/ModTheSpire.jar"
 STEAM_PATH="D:/Games/Steam/steamapps/common/SlayTheSpire"
 
@@ -11,7 +15,7 @@ echo "[STS-AI] Launching Slay the Spire in HEADLESS mode on port $PORT..."
 
 # Note: We assume libs/ModTheSpire.jar exists locally or use the one in Steam path
 # If local libs are used:
-java -Dsts.ai.port=$PORT -jar $MTS_JAR --headless --mods "basemod,stslib,sts-ai-bridge"
+java -Dsts.ai.port=$PORT -Dsts.ai.transport=$TRANSPORT -jar $MTS_JAR --headless --mods "basemod,stslib,sts-ai-bridge"
 
 # If using Steam path directly (adjust as needed):
-# java -Dsts.ai.port=$PORT -jar "$STEAM_PATH/ModTheSpire.jar" --headless --mods "basemod,stslib,sts-ai-bridge"
+# java -Dsts.ai.port=$PORT -Dsts.ai.transport=$TRANSPORT -jar "$STEAM_PATH/ModTheSpire.jar" --headless --mods "basemod,stslib,sts-ai-bridge"